@@ -0,0 +1,137 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Stress test for ConcurrentStudentManager.
+ *
+ * Clerk threads add one point to random grades while a reporter thread keeps
+ * taking snapshots. For each thread count it prints the update throughput, once
+ * with a single stripe (one lock over the roster) and once with the default
+ * striping, and checks that:
+ * - every update is in the final grades (no lost updates),
+ * - every snapshot holds at least the updates finished before it was taken and
+ *   at most the ones started before it returned.
+ *
+ * Usage: java -cp benchmarks.jar ConcurrentStress [students] [coursesPerStudent] [updatesPerThread] [maxThreads]
+ * Exits with status 1 if a check fails.
+ */
+public final class ConcurrentStress {
+
+    private static final long REPORT_PAUSE_MS = 10; // Gap between snapshots, like a stream of report requests
+
+    private ConcurrentStress() {
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        int students = args.length > 0 ? Integer.parseInt(args[0]) : 20_000;
+        int courses = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        int updates = args.length > 2 ? Integer.parseInt(args[2]) : 500_000;
+        int maxThreads = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+
+        run(ConcurrentStudentManager.DEFAULT_STRIPES, 1, students, courses, updates, false); // JIT warm-up
+        boolean ok = true;
+        System.out.printf("%d students x %d courses, %d updates per thread%n", students, courses, updates);
+        System.out.printf("%-8s %8s %14s %10s %6s%n", "stripes", "threads", "updates/s", "snapshots", "check");
+        for (int stripes : new int[] {1, ConcurrentStudentManager.DEFAULT_STRIPES}) {
+            for (int threads = 1; threads <= maxThreads; threads = threads < maxThreads ? Math.min(threads * 2, maxThreads) : threads + 1) {
+                ok &= run(stripes, threads, students, courses, updates, true);
+            }
+        }
+        if (!ok) {
+            System.exit(1);
+        }
+    }
+
+    private static boolean run(int stripes, int threads, int students, int courses, int updates, boolean print)
+            throws InterruptedException {
+        ConcurrentStudentManager manager = new ConcurrentStudentManager(stripes);
+        String[] ids = new String[students];
+        String[] courseIds = new String[courses];
+        for (int c = 0; c < courses; c++) {
+            courseIds[c] = "C" + c;
+        }
+        for (int i = 0; i < students; i++) {
+            ids[i] = RosterGenerator.studentId(i);
+            Student s = new Student("First" + i, "Last" + i, ids[i]);
+            for (String courseId : courseIds) {
+                s.addCourses(new Course(courseId, "Course " + courseId, 0));
+            }
+            manager.registerStudent(s);
+        }
+
+        LongAdder started = new LongAdder();
+        LongAdder finished = new LongAdder();
+        AtomicBoolean done = new AtomicBoolean();
+        AtomicBoolean consistent = new AtomicBoolean(true);
+        long[] snapshots = new long[1];
+        Thread reporter = new Thread(() -> {
+            while (!done.get()) {
+                long before = finished.sum();
+                ConcurrentStudentManager.Snapshot snapshot = manager.snapshot();
+                long after = started.sum();
+                long total = (long) totalGrades(snapshot.students());
+                if (total < before || total > after) {
+                    consistent.set(false);
+                }
+                snapshots[0]++;
+                try {
+                    Thread.sleep(REPORT_PAUSE_MS);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        });
+
+        CountDownLatch go = new CountDownLatch(1);
+        List<Thread> clerks = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            Thread clerk = new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                try {
+                    go.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < updates; i++) {
+                    started.increment();
+                    manager.updateGrade(ids[random.nextInt(ids.length)], courseIds[random.nextInt(courseIds.length)],
+                            g -> g + 1);
+                    finished.increment();
+                }
+            });
+            clerk.start();
+            clerks.add(clerk);
+        }
+
+        reporter.start();
+        long start = System.nanoTime();
+        go.countDown();
+        for (Thread clerk : clerks) {
+            clerk.join();
+        }
+        long elapsed = System.nanoTime() - start;
+        done.set(true);
+        reporter.join();
+
+        long expected = (long) threads * updates;
+        boolean noLostUpdates = totalGrades(manager.snapshot().students()) == expected
+                && manager.getChangeSequence() == students + expected;
+        boolean passed = noLostUpdates && consistent.get();
+        if (print) System.out.printf("%-8d %8d %,14.0f %10d %6s%n", stripes, threads, expected / (elapsed / 1e9),
+                snapshots[0], passed ? "ok" : noLostUpdates ? "TORN" : "LOST");
+        return passed;
+    }
+
+    // Every grade starts at 0 and goes up by whole points, so the double sum is exact
+    private static double totalGrades(List<Student> students) {
+        double total = 0;
+        for (Student s : students) {
+            total += s.getStats().getSum();
+        }
+        return total;
+    }
+}
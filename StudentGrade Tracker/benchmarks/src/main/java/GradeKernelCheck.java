@@ -0,0 +1,96 @@
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Equivalence check for the grade kernels: runs ScalarGradeKernels and
+ * VectorGradeKernels on the same random ranges and requires identical results,
+ * comparing sums and extremes bit for bit (Double.doubleToLongBits, so every NaN
+ * counts as the same value).
+ *
+ * Ranges cover every length up to a few blocks at every alignment, then large
+ * arrays. Grades are drawn as real grades (0-100 in hundredths), as values of
+ * wildly different magnitudes where a different order of additions would show in
+ * the last bits, and with NaN, -0.0 and values exactly on the bucket edges mixed in.
+ *
+ * Usage: java --add-modules jdk.incubator.vector -cp benchmarks.jar GradeKernelCheck [trials] [seed]
+ * Exits with status 1 if a check fails, 2 if the Vector API module is missing.
+ */
+public final class GradeKernelCheck {
+
+    private static final double[] EDGES = GradeKernels.edges(10, 10, 8);
+
+    private GradeKernelCheck() {
+    }
+
+    public static void main(String[] args) {
+        int trials = args.length > 0 ? Integer.parseInt(args[0]) : 2_000;
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : 42;
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) {
+            System.out.println("Run with --add-modules jdk.incubator.vector to check the vector kernels.");
+            System.exit(2);
+        }
+        System.out.printf("Vector kernels %s on this machine%n", GradeKernels.isVectorized() ? "in use" : "supported but not used");
+
+        Random random = new Random(seed);
+        int failures = 0;
+        int checks = 0;
+        for (int kind = 0; kind < 3; kind++) {
+            double[] grades = generate(random, 4 * GradeKernels.SUMS + 8, kind);
+            for (int from = 0; from < 8; from++) {
+                for (int to = from; to <= grades.length; to++) {
+                    failures += check(grades, from, to, random);
+                    checks++;
+                }
+            }
+        }
+        for (int t = 0; t < trials; t++) {
+            double[] grades = generate(random, 1 + random.nextInt(t % 100 == 0 ? 2_000_000 : 5_000), t % 3);
+            int from = random.nextInt(Math.min(grades.length, 64));
+            failures += check(grades, from, from + random.nextInt(grades.length - from + 1), random);
+            checks++;
+        }
+        System.out.printf("%d ranges checked, %d mismatches%n", checks, failures);
+        System.exit(failures == 0 ? 0 : 1);
+    }
+
+    private static int check(double[] grades, int from, int to, Random random) {
+        GradeKernels.Totals scalar = ScalarGradeKernels.totals(grades, from, to);
+        GradeKernels.Totals vector = VectorGradeKernels.totals(grades, from, to);
+        double threshold = random.nextBoolean() ? 50.0 : grades[random.nextInt(grades.length)];
+        int scalarBelow = ScalarGradeKernels.countBelow(grades, from, to, threshold);
+        int vectorBelow = VectorGradeKernels.countBelow(grades, from, to, threshold);
+        int[] scalarBuckets = ScalarGradeKernels.histogram(grades, from, to, EDGES);
+        int[] vectorBuckets = VectorGradeKernels.histogram(grades, from, to, EDGES);
+        boolean same = scalar.count() == vector.count()
+                && Double.doubleToLongBits(scalar.sum()) == Double.doubleToLongBits(vector.sum())
+                && Double.doubleToLongBits(scalar.highest()) == Double.doubleToLongBits(vector.highest())
+                && Double.doubleToLongBits(scalar.lowest()) == Double.doubleToLongBits(vector.lowest())
+                && scalarBelow == vectorBelow
+                && Arrays.equals(scalarBuckets, vectorBuckets);
+        if (!same) {
+            System.out.printf("Mismatch on [%d, %d) of %d: %s %d %s vs %s %d %s%n", from, to, grades.length,
+                    scalar, scalarBelow, Arrays.toString(scalarBuckets), vector, vectorBelow, Arrays.toString(vectorBuckets));
+            return 1;
+        }
+        return 0;
+    }
+
+    // kind 0: real grades; 1: mixed magnitudes and signs; 2: real grades with special values
+    private static double[] generate(Random random, int length, int kind) {
+        double[] grades = new double[length];
+        for (int i = 0; i < length; i++) {
+            grades[i] = switch (kind) {
+                case 0 -> random.nextInt(10_001) / 100.0;
+                case 1 -> (random.nextDouble() - 0.3) * Math.pow(10, random.nextInt(24) - 8);
+                default -> switch (random.nextInt(20)) {
+                    case 0 -> Double.NaN;
+                    case 1 -> -0.0;
+                    case 2 -> EDGES[random.nextInt(EDGES.length)];
+                    case 3 -> Math.nextDown(EDGES[random.nextInt(EDGES.length)]);
+                    default -> random.nextInt(10_001) / 100.0;
+                };
+            };
+        }
+        return grades;
+    }
+}
@@ -0,0 +1,140 @@
+import java.io.BufferedInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Load test for GradeServer's student lookup.
+ *
+ * Starts a server on a free port over a generated roster, then runs the given
+ * number of clients, each on its own virtual thread with one kept-alive
+ * connection, sending GET /students/{id} for random students back to back.
+ * With a pipeline depth above 1 each client writes that many requests before
+ * reading the responses. Prints the request rate and latency percentiles.
+ *
+ * Usage: java -cp benchmarks.jar HttpLoad [students] [clients] [seconds] [pipelineDepth]
+ * Exits with status 1 if any request failed.
+ */
+public final class HttpLoad {
+
+    private HttpLoad() {
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int students = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        int clients = args.length > 1 ? Integer.parseInt(args[1]) : 64;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+        int depth = args.length > 3 ? Integer.parseInt(args[3]) : 1;
+
+        // As StudentManagerApp.serve does: without it each kept-alive response waits for a delayed ACK
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+        ConcurrentStudentManager roster = new ConcurrentStudentManager();
+        for (Student s : RosterGenerator.generate(students, 5, 42).getStudents()) {
+            roster.registerStudent(s);
+        }
+        GradeServer server = new GradeServer(roster);
+        server.start(0);
+
+        run(server.getPort(), students, clients, depth, Math.max(1, seconds / 5)); // JIT warm-up
+        Result result = run(server.getPort(), students, clients, depth, seconds);
+        server.stop();
+
+        long[] latencies = result.latencies();
+        System.out.printf("%d students, %d clients, pipeline depth %d, %d s%n", students, clients, depth, seconds);
+        System.out.printf("%,.0f requests/s, %d failed%n", latencies.length / (double) seconds, result.failed());
+        System.out.printf("latency p50 %.3f ms, p99 %.3f ms, p99.9 %.3f ms, max %.3f ms%n",
+                percentile(latencies, 0.50), percentile(latencies, 0.99),
+                percentile(latencies, 0.999), percentile(latencies, 1.0));
+        if (result.failed() > 0) {
+            System.exit(1);
+        }
+    }
+
+    private record Result(long[] latencies, long failed) {
+    }
+
+    private static Result run(int port, int students, int clients, int depth, int seconds)
+            throws InterruptedException {
+        long end = System.nanoTime() + seconds * 1_000_000_000L;
+        AtomicLong failed = new AtomicLong();
+        long[][] perClient = new long[clients][];
+        Thread[] running = new Thread[clients];
+        for (int c = 0; c < clients; c++) {
+            int index = c;
+            running[c] = Thread.ofVirtual().start(() -> {
+                long[] samples = new long[1024];
+                int n = 0;
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                StringBuilder batch = new StringBuilder(64 * depth);
+                try (Socket socket = new Socket("localhost", port)) {
+                    socket.setTcpNoDelay(true);
+                    OutputStream out = socket.getOutputStream();
+                    InputStream in = new BufferedInputStream(socket.getInputStream());
+                    while (System.nanoTime() < end) {
+                        batch.setLength(0);
+                        for (int i = 0; i < depth; i++) {
+                            batch.append("GET /students/").append(RosterGenerator.studentId(random.nextInt(students)))
+                                    .append(" HTTP/1.1\r\nHost: localhost\r\n\r\n");
+                        }
+                        long start = System.nanoTime();
+                        out.write(batch.toString().getBytes(StandardCharsets.US_ASCII));
+                        out.flush();
+                        for (int i = 0; i < depth; i++) {
+                            if (readResponse(in) != 200) failed.incrementAndGet();
+                            if (n == samples.length) samples = Arrays.copyOf(samples, n * 2);
+                            samples[n++] = System.nanoTime() - start;
+                        }
+                    }
+                } catch (IOException e) {
+                    failed.incrementAndGet();
+                }
+                perClient[index] = Arrays.copyOf(samples, n);
+            });
+        }
+        long[] all = new long[0];
+        for (int c = 0; c < clients; c++) {
+            running[c].join();
+            int at = all.length;
+            all = Arrays.copyOf(all, at + perClient[c].length);
+            System.arraycopy(perClient[c], 0, all, at, perClient[c].length);
+        }
+        Arrays.sort(all);
+        return new Result(all, failed.get());
+    }
+
+    // Reads one response, skipping its body, and returns the status code
+    private static int readResponse(InputStream in) throws IOException {
+        String status = readLine(in);
+        int length = 0;
+        for (String header = readLine(in); !header.isEmpty(); header = readLine(in)) {
+            if (header.regionMatches(true, 0, "Content-Length:", 0, 15)) {
+                length = Integer.parseInt(header.substring(15).trim());
+            }
+        }
+        in.skipNBytes(length);
+        return Integer.parseInt(status.substring(9, 12));
+    }
+
+    private static String readLine(InputStream in) throws IOException {
+        StringBuilder sb = new StringBuilder(64);
+        for (int b = in.read(); b != '\n'; b = in.read()) {
+            if (b < 0) throw new EOFException("Connection closed");
+            if (b != '\r') sb.append((char) b);
+        }
+        return sb.toString();
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        if (sorted.length == 0) return Double.NaN;
+        int i = (int) Math.min(sorted.length - 1, Math.ceil(p * sorted.length) - 1);
+        return sorted[Math.max(0, i)] / 1e6;
+    }
+}
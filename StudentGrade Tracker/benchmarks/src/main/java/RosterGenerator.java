@@ -0,0 +1,51 @@
+import java.util.Random;
+
+/**
+ * Builds synthetic rosters for the benchmarks.
+ * Students get IDs S0..S(n-1), first names drawn from a pool of 5,000 and a fixed
+ * number of courses picked from a 200-course catalog, with grades spread over 0-100
+ * in steps of 0.01. The same seed always gives the same roster.
+ */
+public final class RosterGenerator {
+
+    private static final int COURSE_CATALOG = 200;
+    private static final int FIRST_NAMES = 5_000;
+
+    private RosterGenerator() {
+    }
+
+    /**
+     * @param students Number of students to create
+     * @param coursesPerStudent Number of courses each student takes
+     * @param seed Random seed
+     * @return A manager holding the generated roster
+     */
+    public static StudentManager generate(int students, int coursesPerStudent, long seed) {
+        Random random = new Random(seed);
+        String[] courseIds = new String[COURSE_CATALOG];
+        String[] courseNames = new String[COURSE_CATALOG];
+        for (int c = 0; c < COURSE_CATALOG; c++) {
+            courseIds[c] = "CS" + (100 + c);
+            courseNames[c] = "Course " + (100 + c);
+        }
+        StudentManager manager = new StudentManager();
+        for (int i = 0; i < students; i++) {
+            Student s = new Student("First" + random.nextInt(FIRST_NAMES), "Last" + i, studentId(i));
+            int first = random.nextInt(COURSE_CATALOG);
+            for (int c = 0; c < coursesPerStudent; c++) {
+                int course = (first + c) % COURSE_CATALOG;
+                s.addCourses(new Course(courseIds[course], courseNames[course], random.nextInt(10_001) / 100.0));
+            }
+            manager.registerStudent(s);
+        }
+        return manager;
+    }
+
+    /**
+     * @param i Student number
+     * @return The ID the generator gives that student
+     */
+    public static String studentId(int i) {
+        return "S" + i;
+    }
+}
@@ -0,0 +1,171 @@
+import bench.Tracker;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+
+/**
+ * Implements the benchmark interface over a generated StudentManager.
+ * Lives in the unnamed package so it can use the application classes directly.
+ */
+public class TrackerAdapter implements Tracker {
+
+    private final StudentManager manager;
+    private final String[] ids;
+    private final GradeCalculator gc = new GradeCalculator();
+    private final double[] edges = GradeKernels.edges(10, 10, 8);
+
+    public TrackerAdapter(int students, int coursesPerStudent, long seed) {
+        manager = RosterGenerator.generate(students, coursesPerStudent, seed);
+        ids = new String[students];
+        for (int i = 0; i < students; i++) {
+            ids[i] = RosterGenerator.studentId(i);
+        }
+    }
+
+    @Override
+    public String[] studentIds() { return ids; }
+
+    @Override
+    public Object getStudent(String studentId) { return manager.getStudent(studentId); }
+
+    @Override
+    public void searchStudent(String studentId) { manager.searchStudent(studentId); }
+
+    @Override
+    public boolean removeAndReAdd(String studentId) {
+        Student s = manager.getStudent(studentId);
+        manager.removeStudent(studentId);
+        return manager.registerStudent(s);
+    }
+
+    @Override
+    public double aggregatesForEveryStudent() {
+        double total = 0;
+        for (String id : ids) {
+            Student s = manager.getStudent(id);
+            total += gc.get_HighestGrade(s) + gc.get_Average(s) + gc.get_LowestGrade(s);
+        }
+        return total;
+    }
+
+    @Override
+    public double changeGrade(String studentId) {
+        Course c = manager.getStudent(studentId).getCourses().get(0);
+        c.setGrade(100.0 - c.getGrade());
+        return manager.getClassStats().getAverage();
+    }
+
+    @Override
+    public void studentReport(boolean parallel) { manager.studentReport(parallel); }
+
+    @Override
+    public void exportCsv() throws IOException {
+        manager.exportReport(Writer.nullWriter(), ReportWriter.Format.CSV);
+    }
+
+    @Override
+    public void saveToFile(String filename) throws IOException { manager.saveToFile(filename); }
+
+    @Override
+    public Object loadFromFile(String filename) throws IOException {
+        StudentManager loaded = new StudentManager();
+        try {
+            loaded.loadFromFile(filename);
+        } catch (ClassNotFoundException e) {
+            throw new IOException(e);
+        }
+        return loaded;
+    }
+
+    @Override
+    public Object mapFromFile(String filename) throws IOException {
+        StudentManager mapped = new StudentManager();
+        try {
+            mapped.mapFromFile(filename);
+        } catch (ClassNotFoundException e) {
+            throw new IOException(e);
+        }
+        return mapped;
+    }
+
+    @Override
+    public void saveToShards(String dirname, int shards) throws IOException {
+        manager.saveToShards(dirname, shards);
+    }
+
+    @Override
+    public Object loadFromShards(String dirname) throws IOException {
+        StudentManager loaded = new StudentManager();
+        loaded.loadFromShards(dirname);
+        return loaded;
+    }
+
+    @Override
+    public Object openShardsAndGet(String dirname, String studentId) throws IOException {
+        StudentManager opened = new StudentManager();
+        opened.openShards(dirname);
+        return opened.getStudent(studentId);
+    }
+
+    @Override
+    public Object searchNames(String query, int limit) {
+        return manager.getNameSearch().search(query, limit);
+    }
+
+    @Override
+    public Object gradeTotals(double[] grades, boolean vector) {
+        return vector ? VectorGradeKernels.totals(grades, 0, grades.length)
+                : ScalarGradeKernels.totals(grades, 0, grades.length);
+    }
+
+    @Override
+    public int countBelow(double[] grades, double threshold, boolean vector) {
+        return vector ? VectorGradeKernels.countBelow(grades, 0, grades.length, threshold)
+                : ScalarGradeKernels.countBelow(grades, 0, grades.length, threshold);
+    }
+
+    @Override
+    public int[] gradeHistogram(double[] grades, boolean vector) {
+        return vector ? VectorGradeKernels.histogram(grades, 0, grades.length, edges)
+                : ScalarGradeKernels.histogram(grades, 0, grades.length, edges);
+    }
+
+    @Override
+    public long recordGradeHistory(int changesPerStudent) throws InterruptedException {
+        manager.getGradeHistory();
+        long halfway = 0;
+        for (int round = 0; round < changesPerStudent; round++) {
+            if (round == changesPerStudent / 2) {
+                Thread.sleep(2); // So the changes before and after get different times
+                halfway = System.currentTimeMillis();
+                Thread.sleep(2);
+            }
+            for (String id : ids) {
+                List<Course> courses = manager.getStudent(id).getCourses();
+                Course c = courses.get(round % courses.size());
+                c.setGrade(Math.floor(c.getGrade() * 7 + round) % 101);
+            }
+        }
+        return halfway;
+    }
+
+    @Override
+    public boolean searchStudentAsOf(String studentId, long asOf) { return manager.searchStudent(studentId, asOf); }
+
+    @Override
+    public void studentReportAsOf(boolean parallel, long asOf) { manager.studentReport(parallel, asOf); }
+
+    @Override
+    public boolean renameCourse(String courseId, String courseName) { return manager.renameCourse(courseId, courseName); }
+
+    @Override
+    public int renameEachEnrollment(String courseId, String courseName) {
+        CourseIndex.Enrollment enrollment = manager.getCourseIndex().get(courseId);
+        List<Student> students = List.copyOf(enrollment.getStudents());
+        for (Student s : students) {
+            s.getCourse(courseId).setCourseName(courseName);
+        }
+        return students.size();
+    }
+}
@@ -0,0 +1,51 @@
+package bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Renaming one course for everyone taking it: once in the CourseCatalog
+ * ("catalog"), or enrollment by enrollment as before the catalog existed
+ * ("eachEnrollment"). Each call alternates between two names so every call is a
+ * real change. The generator's courses have students * coursesPerStudent / 200
+ * enrollments each; the catalog rename should not grow with that number.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CourseCatalogBenchmark {
+
+    private static final String COURSE = "CS150";
+
+    @Param({"catalog", "eachEnrollment"})
+    public String rename;
+
+    private int calls;
+
+    @Setup(Level.Trial)
+    public void setUp(RosterState roster) {
+        roster.tracker.renameEachEnrollment(COURSE, "Course 150"); // Builds the course index
+    }
+
+    @Benchmark
+    public Object renameCourse(RosterState roster) {
+        String name = (calls++ & 1) == 0 ? "Renamed course" : "Course 150";
+        return rename.equals("catalog") ? roster.tracker.renameCourse(COURSE, name)
+                : roster.tracker.renameEachEnrollment(COURSE, name);
+    }
+}
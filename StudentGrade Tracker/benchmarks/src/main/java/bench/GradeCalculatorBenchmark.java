@@ -0,0 +1,33 @@
+package bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * GradeCalculator aggregates over the whole roster, and a grade change that
+ * keeps them current.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GradeCalculatorBenchmark {
+
+    @Benchmark
+    public double aggregatesForEveryStudent(RosterState roster) {
+        return roster.tracker.aggregatesForEveryStudent();
+    }
+
+    @Benchmark
+    public double changeGrade(RosterState roster) {
+        return roster.tracker.changeGrade(roster.ids[roster.ids.length / 2]);
+    }
+}
@@ -0,0 +1,67 @@
+package bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reads as of a time against the grade history, after every student has had a
+ * grade changed ten times. "current" is the plain searchStudent or studentReport;
+ * "latest" reads as of now, which should cost the same; "halfway" reads as of a
+ * time with five changes per student still to come, so every student is rebuilt
+ * from their chains.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class GradeHistoryBenchmark {
+
+    @Param({"current", "latest", "halfway"})
+    public String asOf;
+
+    private long time;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp(RosterState roster) throws InterruptedException {
+        long halfway = roster.tracker.recordGradeHistory(10);
+        time = asOf.equals("halfway") ? halfway : System.currentTimeMillis();
+    }
+
+    private String nextId(RosterState roster) {
+        next = (next + 7919) % roster.ids.length;
+        return roster.ids[next];
+    }
+
+    @Benchmark
+    public void searchStudent(RosterState roster) {
+        if (asOf.equals("current")) {
+            roster.tracker.searchStudent(nextId(roster));
+        } else {
+            roster.tracker.searchStudentAsOf(nextId(roster), time);
+        }
+    }
+
+    @Benchmark
+    public void studentReport(RosterState roster) {
+        if (asOf.equals("current")) {
+            roster.tracker.studentReport(false);
+        } else {
+            roster.tracker.studentReportAsOf(false, time);
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Class-wide grade kernels on a plain grade array, scalar against Vector API.
+ * The large size does not fit in cache, so the vector kernels should run at
+ * memory bandwidth (grades * 8 bytes / time); the small one shows the compute cost.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+@State(Scope.Thread)
+public class GradeKernelBenchmark {
+
+    @Param({"32768", "30000000"})
+    public int grades;
+
+    @Param({"scalar", "vector"})
+    public String kernels;
+
+    private Tracker tracker;
+    private double[] column;
+    private boolean vector;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        tracker = Tracker.generate(0, 0, 42);
+        vector = kernels.equals("vector");
+        Random random = new Random(42);
+        column = new double[grades];
+        for (int i = 0; i < grades; i++) {
+            column[i] = random.nextInt(10_001) / 100.0;
+        }
+    }
+
+    @Benchmark
+    public Object totals() {
+        return tracker.gradeTotals(column, vector);
+    }
+
+    @Benchmark
+    public int countBelow() {
+        return tracker.countBelow(column, 50.0, vector);
+    }
+
+    @Benchmark
+    public int[] histogram() {
+        return tracker.gradeHistogram(column, vector);
+    }
+}
@@ -0,0 +1,48 @@
+package bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Student lookups: the index lookup behind every operation, the full searchStudent
+ * report, and remove followed by re-adding the same student.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class LookupBenchmark {
+
+    private int next;
+
+    private String nextId(RosterState roster) {
+        next = (next + 7919) % roster.ids.length;
+        return roster.ids[next];
+    }
+
+    @Benchmark
+    public Object getStudent(RosterState roster) {
+        return roster.tracker.getStudent(nextId(roster));
+    }
+
+    @Benchmark
+    public void searchStudent(RosterState roster) {
+        roster.tracker.searchStudent(nextId(roster));
+    }
+
+    @Benchmark
+    public boolean removeAndReAdd(RosterState roster) {
+        return roster.tracker.removeAndReAdd(nextId(roster));
+    }
+}
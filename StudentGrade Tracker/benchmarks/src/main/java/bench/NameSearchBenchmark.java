@@ -0,0 +1,53 @@
+package bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Top-10 name searches: an exact last name, a prefix shared by many students, a
+ * last name with two letters swapped, and a first name plus a last-name prefix.
+ * The index is built once in setup. Run with -p students=1000000 for the size the
+ * index is meant for; every query should stay well under a millisecond.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class NameSearchBenchmark {
+
+    @Param({"exact", "prefix", "typo", "twoWords"})
+    public String query;
+
+    private String text;
+
+    @Setup(Level.Trial)
+    public void setUp(RosterState roster) {
+        String middle = "Last" + roster.students / 2;
+        text = switch (query) {
+            case "exact" -> middle;
+            case "prefix" -> middle.substring(0, Math.min(middle.length(), 6));
+            case "typo" -> "Lsat" + roster.students / 2;
+            default -> "First42 Last1";
+        };
+        roster.tracker.searchNames(text, 10);
+    }
+
+    @Benchmark
+    public Object search(RosterState roster) {
+        return roster.tracker.searchNames(text, 10);
+    }
+}
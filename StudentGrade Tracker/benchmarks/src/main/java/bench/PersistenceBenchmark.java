@@ -0,0 +1,60 @@
+package bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * saveToFile / loadFromFile round trips through a temporary database file,
+ * plus opening the same file memory-mapped.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class PersistenceBenchmark {
+
+    private Path file;
+
+    @Setup(Level.Trial)
+    public void setUp(RosterState roster) throws IOException {
+        file = Files.createTempFile("roster", ".db");
+        roster.tracker.saveToFile(file.toString());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public void saveToFile(RosterState roster) throws IOException {
+        roster.tracker.saveToFile(file.toString());
+    }
+
+    @Benchmark
+    public Object loadFromFile(RosterState roster) throws IOException {
+        return roster.tracker.loadFromFile(file.toString());
+    }
+
+    @Benchmark
+    public Object mapFromFile(RosterState roster) throws IOException {
+        return roster.tracker.mapFromFile(file.toString());
+    }
+}
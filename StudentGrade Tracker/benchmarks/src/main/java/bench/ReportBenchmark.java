@@ -0,0 +1,38 @@
+package bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Class report generation: console report (sequential and parallel) and CSV export.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReportBenchmark {
+
+    @Benchmark
+    public void studentReport(RosterState roster) {
+        roster.tracker.studentReport(false);
+    }
+
+    @Benchmark
+    public void studentReportParallel(RosterState roster) {
+        roster.tracker.studentReport(true);
+    }
+
+    @Benchmark
+    public void exportCsv(RosterState roster) throws IOException {
+        roster.tracker.exportCsv();
+    }
+}
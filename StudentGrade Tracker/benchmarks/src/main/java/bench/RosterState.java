@@ -0,0 +1,44 @@
+package bench;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+
+/**
+ * Shared benchmark state: a generated roster sized by the students and
+ * coursesPerStudent parameters. System.out is replaced with a discarding stream
+ * so benchmarks of printing methods measure the work, not the console.
+ */
+@State(Scope.Benchmark)
+public class RosterState {
+
+    @Param({"1000", "100000"})
+    public int students;
+
+    @Param({"5", "20"})
+    public int coursesPerStudent;
+
+    public Tracker tracker;
+    public String[] ids;
+
+    private PrintStream console;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        tracker = Tracker.generate(students, coursesPerStudent, 42);
+        ids = tracker.studentIds();
+        console = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        System.setOut(console);
+    }
+}
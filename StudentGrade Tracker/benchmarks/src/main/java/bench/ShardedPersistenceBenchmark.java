@@ -0,0 +1,74 @@
+package bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * saveToShards / loadFromShards round trips through a temporary shard directory,
+ * plus opening the shards lazily and looking up one student. Compare with
+ * PersistenceBenchmark for the single-file numbers; loading should speed up with
+ * the shard count up to the number of cores.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class ShardedPersistenceBenchmark {
+
+    @Param({"1", "4", "16"})
+    public int shards;
+
+    private Path dir;
+    private String id;
+
+    @Setup(Level.Trial)
+    public void setUp(RosterState roster) throws IOException {
+        dir = Files.createTempDirectory("roster-shards");
+        roster.tracker.saveToShards(dir.toString(), shards);
+        id = roster.ids[roster.ids.length / 2];
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(dir)) {
+            List<Path> all = files.sorted(Comparator.reverseOrder()).toList();
+            for (Path p : all) Files.delete(p);
+        }
+    }
+
+    @Benchmark
+    public void saveToShards(RosterState roster) throws IOException {
+        roster.tracker.saveToShards(dir.toString(), shards);
+    }
+
+    @Benchmark
+    public Object loadFromShards(RosterState roster) throws IOException {
+        return roster.tracker.loadFromShards(dir.toString());
+    }
+
+    @Benchmark
+    public Object openShardsAndGet(RosterState roster) throws IOException {
+        return roster.tracker.openShardsAndGet(dir.toString(), id);
+    }
+}
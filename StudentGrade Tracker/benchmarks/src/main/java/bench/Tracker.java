@@ -0,0 +1,108 @@
+package bench;
+
+import java.io.IOException;
+
+/**
+ * The tracker operations the benchmarks measure.
+ *
+ * The application classes live in the unnamed package, which code in a named
+ * package (as JMH requires for benchmarks) cannot refer to. TrackerAdapter, in the
+ * unnamed package, implements this interface over a real StudentManager and is
+ * loaded by name.
+ */
+public interface Tracker {
+
+    /**
+     * Generates a roster (see RosterGenerator) and wraps it.
+     * @param students Number of students
+     * @param coursesPerStudent Courses per student
+     * @param seed Random seed
+     * @return The adapter over the generated roster
+     */
+    static Tracker generate(int students, int coursesPerStudent, long seed) {
+        try {
+            return (Tracker) Class.forName("TrackerAdapter")
+                    .getConstructor(int.class, int.class, long.class)
+                    .newInstance(students, coursesPerStudent, seed);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("TrackerAdapter is missing from the benchmark jar", e);
+        }
+    }
+
+    /** @return The generated student IDs */
+    String[] studentIds();
+
+    /** StudentManager.getStudent */
+    Object getStudent(String studentId);
+
+    /** StudentManager.searchStudent */
+    void searchStudent(String studentId);
+
+    /** StudentManager.removeStudent followed by registerStudent of the same record */
+    boolean removeAndReAdd(String studentId);
+
+    /** GradeCalculator highest + average + lowest for every student */
+    double aggregatesForEveryStudent();
+
+    /** Course.setGrade on one course, then the class average */
+    double changeGrade(String studentId);
+
+    /** StudentManager.studentReport */
+    void studentReport(boolean parallel);
+
+    /** StudentManager.exportReport as CSV to a discarding writer */
+    void exportCsv() throws IOException;
+
+    /** StudentManager.saveToFile */
+    void saveToFile(String filename) throws IOException;
+
+    /** StudentManager.loadFromFile into a new manager */
+    Object loadFromFile(String filename) throws IOException;
+
+    /** StudentManager.mapFromFile into a new manager */
+    Object mapFromFile(String filename) throws IOException;
+
+    /** StudentManager.saveToShards */
+    void saveToShards(String dirname, int shards) throws IOException;
+
+    /** StudentManager.loadFromShards into a new manager */
+    Object loadFromShards(String dirname) throws IOException;
+
+    /** StudentManager.openShards into a new manager, then one lookup */
+    Object openShardsAndGet(String dirname, String studentId) throws IOException;
+
+    /** NameSearch.search on the manager's name search, which is built on the first call */
+    Object searchNames(String query, int limit);
+
+    /** ScalarGradeKernels or VectorGradeKernels.totals over a whole array */
+    Object gradeTotals(double[] grades, boolean vector);
+
+    /** ScalarGradeKernels or VectorGradeKernels.countBelow over a whole array */
+    int countBelow(double[] grades, double threshold, boolean vector);
+
+    /** ScalarGradeKernels or VectorGradeKernels.histogram over a whole array, with edges 10, 20, ..., 90 */
+    int[] gradeHistogram(double[] grades, boolean vector);
+
+    /**
+     * Starts the manager's GradeHistory, then changes one grade of every student
+     * the given number of times.
+     * @return A time halfway through the changes
+     */
+    long recordGradeHistory(int changesPerStudent) throws InterruptedException;
+
+    /** StudentManager.searchStudent as of a time */
+    boolean searchStudentAsOf(String studentId, long asOf);
+
+    /** StudentManager.studentReport as of a time */
+    void studentReportAsOf(boolean parallel, long asOf);
+
+    /** StudentManager.renameCourse, which renames the course in the manager's CourseCatalog */
+    boolean renameCourse(String courseId, String courseName);
+
+    /**
+     * Course.setCourseName on every enrollment in a course, found through the
+     * CourseIndex: the rename as it was done before the catalog
+     * @return The number of enrollments renamed
+     */
+    int renameEachEnrollment(String courseId, String courseName);
+}
@@ -0,0 +1,300 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Loads enrollment rows from CSV or TSV files into a StudentManager without prompting.
+ *
+ * Each row is: student ID, first name, last name, course ID, course name, grade.
+ * A first line naming those columns (e.g. "Student ID" or "student_id") is a header
+ * and is skipped; any other line is a row. The delimiter is a tab if the first line
+ * contains one, otherwise a comma; CSV fields may be quoted.
+ *
+ * Lines are read in chunks. Chunks are parsed, validated and grouped by student on a
+ * thread pool, then applied to the manager in file order on the calling thread, so
+ * the result is the same as a sequential import. Grades must be between 0 and 100,
+ * as with InputeHelper.getGrade. A row whose student ID is already used for a
+ * different name is a conflict: it is not merged into that student. Bad and
+ * conflicting rows are skipped and listed in the Result, in line order.
+ */
+public class BulkImporter {
+
+    private static final int CHUNK_LINES = 8_192;
+
+    // The columns in order, lower case without spaces or punctuation
+    private static final List<String> COLUMNS =
+            List.of("studentid", "firstname", "lastname", "courseid", "coursename", "grade");
+
+    private final StudentManager manager;
+    private final int threads;
+
+    /**
+     * @param manager The manager to import into
+     */
+    public BulkImporter(StudentManager manager) {
+        this(manager, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param manager The manager to import into
+     * @param threads The number of parser threads
+     */
+    public BulkImporter(StudentManager manager, int threads) {
+        this.manager = manager;
+        this.threads = Math.max(1, threads);
+    }
+
+    /**
+     * Imports every row from a reader.
+     * @param in The CSV or TSV text to import
+     * @return Counts, timing and the rejected rows
+     * @throws IOException If the input cannot be read
+     */
+    public Result importFrom(Reader in) throws IOException {
+        long start = System.nanoTime();
+        Result result = new Result();
+        BufferedReader reader = in instanceof BufferedReader ? (BufferedReader) in : new BufferedReader(in, 1 << 16);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            Deque<Future<Chunk>> pending = new ArrayDeque<>();
+            char delimiter = 0;
+            long lineNumber = 0;
+            List<String> lines = new ArrayList<>(CHUNK_LINES);
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (delimiter == 0) {
+                    delimiter = line.indexOf('\t') >= 0 ? '\t' : ',';
+                    if (isHeader(line, delimiter)) continue;
+                }
+                lines.add(line);
+                if (lines.size() == CHUNK_LINES) {
+                    submit(pool, pending, lines, lineNumber - lines.size() + 1, delimiter);
+                    lines = new ArrayList<>(CHUNK_LINES);
+                    // Keep a bounded number of parsed chunks in memory
+                    while (pending.size() > threads * 2) apply(take(pending), result);
+                }
+            }
+            if (!lines.isEmpty()) {
+                submit(pool, pending, lines, lineNumber - lines.size() + 1, delimiter);
+            }
+            while (!pending.isEmpty()) apply(take(pending), result);
+        } finally {
+            pool.shutdownNow();
+        }
+        result.errors.sort(Comparator.comparingLong(RowError::line));
+        result.elapsedNanos = System.nanoTime() - start;
+        return result;
+    }
+
+    private void submit(ExecutorService pool, Deque<Future<Chunk>> pending, List<String> lines,
+                        long firstLine, char delimiter) {
+        pending.addLast(pool.submit(() -> parse(lines, firstLine, delimiter)));
+    }
+
+    private static Chunk take(Deque<Future<Chunk>> pending) throws IOException {
+        try {
+            return pending.removeFirst().get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Import interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Import failed: " + e.getCause(), e.getCause());
+        }
+    }
+
+    // Runs on a pool thread: splits, validates and groups one chunk of lines by student
+    private static Chunk parse(List<String> lines, long firstLine, char delimiter) {
+        Chunk chunk = new Chunk();
+        for (int i = 0; i < lines.size(); i++) {
+            String line = lines.get(i);
+            long number = firstLine + i;
+            if (line.isBlank()) continue;
+            chunk.rows++;
+            List<String> f = split(line, delimiter);
+            if (f.size() != 6) {
+                chunk.errors.add(new RowError(number, "expected 6 fields but found " + f.size(), line));
+                continue;
+            }
+            String studentId = f.get(0).trim();
+            String courseId = f.get(3).trim();
+            if (studentId.isEmpty() || courseId.isEmpty()) {
+                chunk.errors.add(new RowError(number, "student ID and course ID are required", line));
+                continue;
+            }
+            double grade;
+            try {
+                grade = Double.parseDouble(f.get(5).trim());
+            } catch (NumberFormatException e) {
+                chunk.errors.add(new RowError(number, "grade is not a number", line));
+                continue;
+            }
+            if (!(grade >= 0 && grade <= 100)) {
+                chunk.errors.add(new RowError(number, "grade must be between 0 and 100", line));
+                continue;
+            }
+            String first = f.get(1).trim();
+            String last = f.get(2).trim();
+            // Keyed by name as well, so apply can tell which rows match the student's name
+            Group g = chunk.students.computeIfAbsent(studentId + '\0' + first + '\0' + last,
+                    k -> new Group(new Student(first, last, studentId)));
+            g.student.addCourses(new Course(courseId, f.get(4).trim(), grade));
+            g.rows.add(new Row(number, line));
+        }
+        return chunk;
+    }
+
+    // Runs on the calling thread: adds a parsed chunk to the manager in file order
+    private void apply(Chunk chunk, Result result) {
+        result.rowsRead += chunk.rows;
+        result.errors.addAll(chunk.errors);
+        for (Group g : chunk.students.values()) {
+            Student parsed = g.student;
+            Student existing = manager.getStudent(parsed.getStudentId());
+            if (existing != null && !sameName(existing, parsed.getName(), parsed.getLastName())) {
+                String message = conflict(existing, parsed.getName(), parsed.getLastName());
+                for (Row row : g.rows) {
+                    result.errors.add(new RowError(row.line(), message, row.text()));
+                }
+                continue;
+            }
+            if (existing == null) {
+                manager.registerStudent(parsed);
+                result.studentsAdded++;
+            } else {
+                for (Course c : parsed.getCourses()) {
+                    existing.addCourses(new Course(c.getEntry(), c.getGrade()));
+                }
+            }
+            result.rowsImported += parsed.getCourses().size();
+        }
+    }
+
+    // A header names the columns; case, spaces and punctuation are ignored ("Student ID", "student_id")
+    private static boolean isHeader(String line, char delimiter) {
+        List<String> f = split(line, delimiter);
+        if (f.size() != COLUMNS.size()) return false;
+        for (int i = 0; i < f.size(); i++) {
+            String name = f.get(i).toLowerCase(Locale.ROOT).replaceAll("[^a-z0-9]", "");
+            if (!name.equals(COLUMNS.get(i))) return false;
+        }
+        return true;
+    }
+
+    private static boolean sameName(Student s, String first, String last) {
+        return s.getName().equals(first) && s.getLastName().equals(last);
+    }
+
+    private static String conflict(Student s, String first, String last) {
+        return "student ID " + s.getStudentId() + " belongs to " + s.getName() + " " + s.getLastName()
+                + ", not " + first + " " + last;
+    }
+
+    // Splits a line on the delimiter; double-quoted fields may contain the delimiter and "" for a quote
+    static List<String> split(String line, char delimiter) {
+        List<String> fields = new ArrayList<>(6);
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"') {
+                    if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                        field.append('"');
+                        i++;
+                    } else {
+                        quoted = false;
+                    }
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"' && field.length() == 0) {
+                quoted = true;
+            } else if (c == delimiter) {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    /** Rows parsed from one chunk, grouped by student ID and name in file order. */
+    private static final class Chunk {
+        final Map<String, Group> students = new LinkedHashMap<>();
+        final List<RowError> errors = new ArrayList<>();
+        int rows;
+    }
+
+    /** One student's rows in a chunk, kept so a name conflict can be reported row by row. */
+    private static final class Group {
+        final Student student;
+        final List<Row> rows = new ArrayList<>();
+
+        Group(Student student) {
+            this.student = student;
+        }
+    }
+
+    private record Row(long line, String text) {
+    }
+
+    /**
+     * A rejected input row.
+     * @param line The 1-based line number in the input
+     * @param message Why the row was rejected
+     * @param text The row as it appeared in the input
+     */
+    public record RowError(long line, String message, String text) {
+    }
+
+    /**
+     * Outcome of an import.
+     */
+    public static final class Result {
+        private long rowsRead;
+        private long rowsImported;
+        private long studentsAdded;
+        private long elapsedNanos;
+        private final List<RowError> errors = new ArrayList<>();
+
+        public long getRowsRead() { return rowsRead; }
+
+        public long getRowsImported() { return rowsImported; }
+
+        public long getStudentsAdded() { return studentsAdded; }
+
+        public List<RowError> getErrors() { return errors; }
+
+        public double getSeconds() { return elapsedNanos / 1e9; }
+
+        /**
+         * @return Imported rows per second
+         */
+        public double getRowsPerSecond() {
+            return elapsedNanos == 0 ? 0 : rowsImported / getSeconds();
+        }
+
+        /**
+         * @return A one-line summary with throughput
+         */
+        public String summary() {
+            return String.format("%d rows read, %d imported (%d new students), %d rejected in %.2f s (%.0f rows/s)",
+                    rowsRead, rowsImported, studentsAdded, errors.size(), getSeconds(), getRowsPerSecond());
+        }
+    }
+}
@@ -0,0 +1,112 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * One change to the records, numbered with the Roster change sequence.
+ *
+ * Events are built on the thread that made the change and copy every value they
+ * carry, so they can be handed to other threads while the records keep changing;
+ * the courses of a STUDENT_ADDED are outside any catalog, so a later
+ * COURSE_RENAMED does not show in them. Fields that do not apply to a type are
+ * null (or NaN for grades).
+ *
+ * @param sequence The change sequence of this change
+ * @param timestamp When the change was made, in milliseconds since the epoch
+ * @param type What kind of change it was
+ * @param studentId The student's ID (the new one for STUDENT_UPDATED)
+ * @param oldStudentId The ID before a STUDENT_UPDATED
+ * @param name First name, for STUDENT_ADDED and STUDENT_UPDATED
+ * @param lastName Last name, for STUDENT_ADDED and STUDENT_UPDATED
+ * @param courseId The course ID (the new one for COURSE_UPDATED)
+ * @param oldCourseId The course ID before a COURSE_UPDATED
+ * @param courseName The course name, for COURSE_ADDED, COURSE_UPDATED and COURSE_RENAMED
+ * @param grade The grade, for COURSE_ADDED and COURSE_UPDATED
+ * @param oldGrade The grade before a COURSE_UPDATED
+ * @param courses Detached copies of the courses of a STUDENT_ADDED, otherwise empty
+ */
+public record ChangeEvent(long sequence, long timestamp, Type type, String studentId, String oldStudentId,
+                          String name, String lastName, String courseId, String oldCourseId, String courseName,
+                          double grade, double oldGrade, List<Course> courses) {
+
+    /** The kinds of change, one per RosterListener callback. */
+    public enum Type {
+        STUDENT_ADDED, STUDENT_REMOVED, STUDENT_UPDATED, COURSE_ADDED, COURSE_UPDATED, COURSE_RENAMED;
+
+        private final String label = name().toLowerCase();
+    }
+
+    static ChangeEvent studentAdded(long sequence, Student s) {
+        List<Course> courses = new ArrayList<>(s.getCourses().size());
+        for (Course c : s.getCourses()) {
+            courses.add(new Course(c.getCourseId(), c.getCourseName(), c.getGrade()));
+        }
+        return new ChangeEvent(sequence, System.currentTimeMillis(), Type.STUDENT_ADDED, s.getStudentId(), null,
+                s.getName(), s.getLastName(), null, null, null, Double.NaN, Double.NaN,
+                Collections.unmodifiableList(courses));
+    }
+
+    static ChangeEvent studentRemoved(long sequence, Student s) {
+        return new ChangeEvent(sequence, System.currentTimeMillis(), Type.STUDENT_REMOVED, s.getStudentId(), null,
+                null, null, null, null, null, Double.NaN, Double.NaN, List.of());
+    }
+
+    static ChangeEvent studentUpdated(long sequence, Student s, String oldId) {
+        return new ChangeEvent(sequence, System.currentTimeMillis(), Type.STUDENT_UPDATED, s.getStudentId(), oldId,
+                s.getName(), s.getLastName(), null, null, null, Double.NaN, Double.NaN, List.of());
+    }
+
+    static ChangeEvent courseAdded(long sequence, Student s, Course c) {
+        return new ChangeEvent(sequence, System.currentTimeMillis(), Type.COURSE_ADDED, s.getStudentId(), null,
+                null, null, c.getCourseId(), null, c.getCourseName(), c.getGrade(), Double.NaN, List.of());
+    }
+
+    static ChangeEvent courseUpdated(long sequence, Student s, Course c, String oldId, double oldGrade) {
+        return new ChangeEvent(sequence, System.currentTimeMillis(), Type.COURSE_UPDATED, s.getStudentId(), null,
+                null, null, c.getCourseId(), oldId, c.getCourseName(), c.getGrade(), oldGrade, List.of());
+    }
+
+    static ChangeEvent courseRenamed(long sequence, String courseId, String courseName) {
+        return new ChangeEvent(sequence, System.currentTimeMillis(), Type.COURSE_RENAMED, null, null,
+                null, null, courseId, null, courseName, Double.NaN, Double.NaN, List.of());
+    }
+
+    /**
+     * Writes the event as one line of JSON, without the line break. "seq" always
+     * comes first; fields that do not apply are left out.
+     * @param sb Where to write
+     * @return sb
+     */
+    public StringBuilder appendJson(StringBuilder sb) {
+        sb.append("{\"seq\":").append(sequence)
+                .append(",\"time\":").append(timestamp)
+                .append(",\"type\":\"").append(type.label).append('"');
+        field(sb, "studentId", studentId);
+        field(sb, "oldStudentId", oldStudentId);
+        field(sb, "name", name);
+        field(sb, "lastName", lastName);
+        field(sb, "courseId", courseId);
+        field(sb, "oldCourseId", oldCourseId);
+        field(sb, "courseName", courseName);
+        if (!Double.isNaN(grade)) Json.appendNumber(sb.append(",\"grade\":"), grade);
+        if (!Double.isNaN(oldGrade)) Json.appendNumber(sb.append(",\"oldGrade\":"), oldGrade);
+        if (type == Type.STUDENT_ADDED) {
+            sb.append(",\"courses\":[");
+            for (int i = 0; i < courses.size(); i++) {
+                Course c = courses.get(i);
+                if (i > 0) sb.append(',');
+                Json.appendString(sb.append("{\"id\":"), c.getCourseId());
+                Json.appendString(sb.append(",\"name\":"), c.getCourseName());
+                Json.appendNumber(sb.append(",\"grade\":"), c.getGrade()).append('}');
+            }
+            sb.append(']');
+        }
+        return sb.append('}');
+    }
+
+    private static void field(StringBuilder sb, String key, String value) {
+        if (value != null) {
+            Json.appendString(sb.append(",\"").append(key).append("\":"), value);
+        }
+    }
+}
@@ -0,0 +1,229 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Change-data-capture feed: turns every change to a Roster into a
+ * sequenced ChangeEvent and delivers it to pluggable ChangeSinks.
+ *
+ * The feed listens to the roster and puts each event in a bounded queue; a
+ * dispatcher thread takes events off in batches and hands them to every sink in
+ * sequence order. If the sinks fall so far behind that the queue fills up, the
+ * thread making changes waits for room rather than dropping events, so the feed
+ * never has gaps. A sink that fails does not stop the others; its first error is
+ * reported by flush() or close().
+ *
+ * The feed can move to another roster that carries on the same records (see
+ * follow), as it does when the program starts serving: the sinks keep going and
+ * the sequence numbers carry on without a gap.
+ */
+public class ChangeFeed implements RosterListener, Closeable {
+
+    /** Default queue size, in events. */
+    public static final int DEFAULT_CAPACITY = 8192;
+    private static final int BATCH_SIZE = 512;
+    private static final ChangeEvent END = new ChangeEvent(-1, 0, null, null, null, null, null, null, null, null,
+            Double.NaN, Double.NaN, List.of());
+
+    private volatile Roster roster;
+    private final BlockingQueue<ChangeEvent> queue;
+    private final List<ChangeSink> sinks = new CopyOnWriteArrayList<>();
+    private final Thread dispatcher;
+    private final Object progress = new Object(); // Guards delivered and failure; notified after each batch
+    private volatile long published; // Events put in the queue, written only by the thread reporting a change
+    private long delivered;   // Events handed to every sink
+    private IOException failure;
+    private boolean closed;
+
+    private ChangeFeed(Roster roster, int capacity) {
+        this.roster = roster;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.dispatcher = new Thread(this::dispatch, "change-feed");
+        this.dispatcher.setDaemon(true);
+    }
+
+    /**
+     * Starts publishing every change made to a roster.
+     * Changes made before this call are not published.
+     * @param roster The roster to follow
+     * @param capacity Most events to queue before changes wait for the sinks
+     * @return The running feed, with no sinks yet
+     */
+    public static ChangeFeed attach(Roster roster, int capacity) {
+        ChangeFeed feed = new ChangeFeed(roster, capacity);
+        feed.dispatcher.start();
+        roster.addListener(feed);
+        return feed;
+    }
+
+    /**
+     * Stops following the current roster and publishes the changes of another
+     * from now on. The other roster must hold the same records, with the change
+     * sequence the current one has now, so the feed continues without a gap;
+     * neither may change while the feed moves.
+     * @param next The roster to follow
+     * @throws IllegalArgumentException If next's change sequence does not carry on from the current one
+     */
+    public void follow(Roster next) {
+        if (next.getChangeSequence() != roster.getChangeSequence()) {
+            throw new IllegalArgumentException("Change sequence " + next.getChangeSequence()
+                    + " does not carry on from " + roster.getChangeSequence());
+        }
+        roster.removeListener(this);
+        roster = next;
+        next.addListener(this);
+    }
+
+    /**
+     * Adds a destination for events published from now on.
+     * @param sink The sink
+     */
+    public void addSink(ChangeSink sink) {
+        sinks.add(sink);
+    }
+
+    /**
+     * @return The number of events waiting for the sinks
+     */
+    public int getQueued() {
+        return queue.size();
+    }
+
+    /**
+     * Waits until every event published so far has reached the sinks, then flushes the sinks.
+     * @throws IOException If a sink failed since the last flush
+     */
+    public void flush() throws IOException {
+        long target = published;
+        synchronized (progress) {
+            while (delivered < target && dispatcher.isAlive()) {
+                try {
+                    progress.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted while flushing the change feed", e);
+                }
+            }
+        }
+        for (ChangeSink sink : sinks) {
+            sink.flush();
+        }
+        throwFailure();
+    }
+
+    /**
+     * Stops following the roster, delivers the events still queued and closes the sinks.
+     * @throws IOException If a sink failed or could not be closed
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        roster.removeListener(this);
+        publish(END);
+        try {
+            dispatcher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (ChangeSink sink : sinks) {
+            try {
+                sink.close();
+            } catch (IOException e) {
+                fail(e);
+            }
+        }
+        throwFailure();
+    }
+
+    private void publish(ChangeEvent event) {
+        try {
+            queue.put(event);
+            published++;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            fail(new IOException("Interrupted while publishing change " + event.sequence(), e));
+        }
+    }
+
+    // Runs on the dispatcher thread until END is taken
+    private void dispatch() {
+        List<ChangeEvent> batch = new ArrayList<>(BATCH_SIZE);
+        while (true) {
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException e) {
+                return;
+            }
+            queue.drainTo(batch, BATCH_SIZE - 1);
+            boolean end = batch.get(batch.size() - 1) == END;
+            if (end) batch.remove(batch.size() - 1);
+            if (!batch.isEmpty()) {
+                for (ChangeSink sink : sinks) {
+                    try {
+                        sink.write(batch);
+                    } catch (IOException | RuntimeException e) {
+                        fail(e instanceof IOException io ? io : new IOException(e));
+                    }
+                }
+            }
+            synchronized (progress) {
+                delivered += batch.size() + (end ? 1 : 0);
+                progress.notifyAll();
+            }
+            batch.clear();
+            if (end) return;
+        }
+    }
+
+    private void fail(IOException e) {
+        synchronized (progress) {
+            if (failure == null) failure = e;
+        }
+    }
+
+    private void throwFailure() throws IOException {
+        IOException e;
+        synchronized (progress) {
+            e = failure;
+            failure = null;
+        }
+        if (e != null) throw e;
+    }
+
+    @Override
+    public void studentAdded(Student student) {
+        publish(ChangeEvent.studentAdded(roster.getChangeSequence(), student));
+    }
+
+    @Override
+    public void studentRemoved(Student student) {
+        publish(ChangeEvent.studentRemoved(roster.getChangeSequence(), student));
+    }
+
+    @Override
+    public void studentUpdated(Student student, String oldId) {
+        publish(ChangeEvent.studentUpdated(roster.getChangeSequence(), student, oldId));
+    }
+
+    @Override
+    public void courseAdded(Student student, Course course) {
+        publish(ChangeEvent.courseAdded(roster.getChangeSequence(), student, course));
+    }
+
+    @Override
+    public void courseUpdated(Student student, Course course, String oldId, double oldGrade) {
+        publish(ChangeEvent.courseUpdated(roster.getChangeSequence(), student, course, oldId, oldGrade));
+    }
+
+    @Override
+    public void courseRenamed(String courseId, String courseName) {
+        publish(ChangeEvent.courseRenamed(roster.getChangeSequence(), courseId, courseName));
+    }
+}
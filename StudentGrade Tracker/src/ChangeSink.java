@@ -0,0 +1,33 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Destination for the events of a ChangeFeed, such as NdjsonChangeSink.
+ * A sink is only ever called from the feed's dispatcher thread, with events in
+ * sequence order.
+ */
+public interface ChangeSink extends Closeable {
+
+    /**
+     * Takes a batch of events.
+     * @param events Consecutive events, oldest first
+     * @throws IOException If the events cannot be stored; the feed reports it from flush() or close()
+     */
+    void write(List<ChangeEvent> events) throws IOException;
+
+    /**
+     * Makes every event written so far durable. Does nothing by default.
+     * @throws IOException If an I/O error occurs
+     */
+    default void flush() throws IOException {
+    }
+
+    /**
+     * Flushes and releases the sink. Does nothing by default.
+     * @throws IOException If an I/O error occurs
+     */
+    @Override
+    default void close() throws IOException {
+    }
+}
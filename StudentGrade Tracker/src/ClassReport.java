@@ -0,0 +1,162 @@
+import java.io.PrintStream;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Builds the class grade report printed by StudentManager.studentReport.
+ *
+ * The roster comes in first-name order from StudentManager's name index and is
+ * split into ranges. Each range formats its own rows
+ * and computes a partial class total (count, compensated sum, highest, lowest);
+ * partials merge pairwise, so the same code runs on one thread or across a
+ * ForkJoinPool and prints the same report either way.
+ */
+public class ClassReport {
+
+    /** Rosters at least this large are worth reporting in parallel. */
+    public static final int PARALLEL_THRESHOLD = 20_000;
+
+    private static final int LEAF_SIZE = 2_048; // Students formatted by one fork/join task
+
+    private final int studentCount;
+    private final Part totals;
+
+    private ClassReport(int studentCount, Part totals) {
+        this.studentCount = studentCount;
+        this.totals = totals;
+    }
+
+    /**
+     * Computes the report for a roster.
+     * @param byName The students to include, in the order they should appear
+     * @param parallel true to format on the common ForkJoinPool
+     * @return The finished report
+     */
+    public static ClassReport build(List<Student> byName, boolean parallel) {
+        Student[] sorted = byName.toArray(new Student[0]);
+        RowsTask task = new RowsTask(sorted, 0, sorted.length);
+        Part totals = parallel ? ForkJoinPool.commonPool().invoke(task) : task.compute();
+        return new ClassReport(sorted.length, totals);
+    }
+
+    /**
+     * @return The number of students in the report
+     */
+    public int getStudentCount() { return studentCount; }
+
+    /**
+     * @return The highest grade in the class, or 0.0 if there are no grades
+     */
+    public double getClassHighest() { return totals.highest; }
+
+    /**
+     * @return The lowest grade in the class, or Double.MAX_VALUE if there are no grades
+     */
+    public double getClassLowest() { return totals.lowest; }
+
+    /**
+     * @return The average of every grade in the class, or 0 if there are no grades
+     */
+    public double getClassAverage() { return totals.count > 0 ? totals.sum() / totals.count : 0; }
+
+    /**
+     * Prints the report in the console layout used by studentReport.
+     * @param out The stream to print to
+     */
+    public void print(PrintStream out) {
+        out.println("\n=============== CLASS GRADE REPORT ===============");
+        out.printf("%-20s %10s %10s %10s\n", "STUDENT NAME", "HIGHEST", "AVERAGE", "LOWEST");
+        out.println("------------------------------------------------");
+        out.print(totals.rows);
+
+        out.println("\n----------- OVERALL CLASS STATISTICS -----------");
+        out.printf("%-20s: %.2f\n", "Highest Grade (Class)", getClassHighest());
+        out.printf("%-20s: %.2f\n", "Lowest Grade (Class)", getClassLowest());
+        out.printf("%-20s: %.2f\n", "Average Grade (Class)", getClassAverage());
+    }
+
+    /**
+     * Formatted rows and class totals for one range of the sorted roster.
+     * The sum uses Neumaier compensation so that merging partials in a different
+     * grouping does not change the printed average.
+     */
+    static final class Part {
+        final StringBuilder rows;
+        int count;
+        double sum;
+        double compensation;
+        double highest = 0.0;
+        double lowest = Double.MAX_VALUE;
+
+        Part(int students) {
+            rows = new StringBuilder(students * 56);
+        }
+
+        void add(Student student, GradeStats stats) {
+            ReportWriter.appendRow(rows, student, ReportWriter.Format.TEXT);
+            count += stats.getCount();
+            addToSum(stats.getSum());
+            highest = Math.max(highest, stats.getHighest());
+            lowest = Math.min(lowest, stats.getLowest());
+        }
+
+        Part merge(Part next) {
+            rows.append(next.rows);
+            count += next.count;
+            addToSum(next.sum);
+            addToSum(next.compensation);
+            highest = Math.max(highest, next.highest);
+            lowest = Math.min(lowest, next.lowest);
+            return this;
+        }
+
+        double sum() {
+            return sum + compensation;
+        }
+
+        private void addToSum(double value) {
+            double t = sum + value;
+            if (Math.abs(sum) >= Math.abs(value)) {
+                compensation += (sum - t) + value;
+            } else {
+                compensation += (value - t) + sum;
+            }
+            sum = t;
+        }
+    }
+
+    /**
+     * Formats a range of the sorted roster, splitting it in half until ranges are small.
+     */
+    private static final class RowsTask extends RecursiveTask<Part> {
+        private static final long serialVersionUID = 1L;
+
+        private final Student[] students;
+        private final int from;
+        private final int to;
+
+        RowsTask(Student[] students, int from, int to) {
+            this.students = students;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Part compute() {
+            if (to - from <= LEAF_SIZE || getPool() == null) {
+                Part part = new Part(to - from);
+                for (int i = from; i < to; i++) {
+                    part.add(students[i], students[i].getStats());
+                }
+                return part;
+            }
+            int mid = (from + to) >>> 1;
+            RowsTask left = new RowsTask(students, from, mid);
+            RowsTask right = new RowsTask(students, mid, to);
+            right.fork();
+            Part result = left.compute();
+            return result.merge(right.join());
+        }
+    }
+}
@@ -0,0 +1,396 @@
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Column-oriented copy of every grade in a StudentManager, for analytics scans.
+ *
+ * It is a read-side cache, not the storage: Student and Course objects stay the
+ * records, the class report and statistics read them directly, and the store
+ * costs nothing until StudentManager.getColumnarStore() first builds it (the
+ * course report uses it).
+ *
+ * Each enrollment is one row across primitive arrays: student row, course ID code,
+ * handle in the manager's CourseCatalog and grade. Course IDs and student names are
+ * dictionary-encoded, so each distinct string is stored once and rows hold ints;
+ * course names are read through the catalog, so they follow a rename at once.
+ * Scans such as summarizeStudents() walk the grade column sequentially instead of
+ * following references through Student and Course objects.
+ *
+ * The store registers itself as a RosterListener and stays current as the manager
+ * changes. The records know nothing of it: the store maps each student to their
+ * row, and links each student's enrollment rows in the order of their courses, so
+ * a course's row is found by its place in the student's list. Removed rows and students are marked dead and
+ * dropped by compaction once either makes up half of its table. Student and Course
+ * objects stay the source of truth; the Cursor class gives a reusable flyweight
+ * view over rows.
+ */
+public class ColumnarGradeStore implements RosterListener {
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    // Enrollment columns, one entry per row
+    private int[] studentRow = new int[INITIAL_CAPACITY];
+    private int[] courseIdCode = new int[INITIAL_CAPACITY];
+    private int[] courseHandle = new int[INITIAL_CAPACITY];
+    private double[] grade = new double[INITIAL_CAPACITY];
+    private boolean[] dead = new boolean[INITIAL_CAPACITY];
+    private int[] nextRow = new int[INITIAL_CAPACITY]; // The student's next enrollment row, or -1
+    private int rows;
+    private int deadRows;
+
+    // Student columns, one entry per student row
+    private Student[] studentOf = new Student[INITIAL_CAPACITY]; // null once removed
+    private int[] firstNameCode = new int[INITIAL_CAPACITY];
+    private int[] lastNameCode = new int[INITIAL_CAPACITY];
+    private int[] firstRow = new int[INITIAL_CAPACITY]; // The student's first enrollment row, or -1
+    private int[] lastRow = new int[INITIAL_CAPACITY];  // The student's last enrollment row, or -1
+    private final Map<Student, Integer> rowOfStudent = new IdentityHashMap<>(); // Live students only
+    private int students;
+    private int deadStudents;
+
+    private final Dictionary dictionary = new Dictionary();
+    private final CourseCatalog catalog; // The manager's catalog, which the handles are from
+
+    private ColumnarGradeStore(CourseCatalog catalog) {
+        this.catalog = catalog;
+    }
+
+    /**
+     * Builds a store from every student in a manager and keeps it current.
+     * @param manager The manager to mirror
+     * @return The attached store
+     */
+    public static ColumnarGradeStore attach(StudentManager manager) {
+        ColumnarGradeStore store = new ColumnarGradeStore(manager.getCatalog());
+        for (Student s : manager.getStudents()) {
+            store.studentAdded(s);
+        }
+        manager.addListener(store);
+        return store;
+    }
+
+    /**
+     * @return The number of live enrollments
+     */
+    public int size() {
+        return rows - deadRows;
+    }
+
+    /**
+     * Copies the grades of all live enrollments into one contiguous array.
+     * @return Every grade, in row order
+     */
+    public double[] grades() {
+        double[] out = new double[size()];
+        int n = 0;
+        for (int r = 0; r < rows; r++) {
+            if (!dead[r]) out[n++] = grade[r];
+        }
+        return out;
+    }
+
+    /**
+     * Computes highest, lowest, sum and count for every student in one pass over the columns.
+     * @return The per-student results, indexed by student row (rows are renumbered
+     *         when removed students are compacted away, so use them before the next change)
+     */
+    public Summary summarizeStudents() {
+        Summary summary = new Summary(students);
+        for (int r = 0; r < rows; r++) {
+            if (!dead[r]) summary.add(studentRow[r], grade[r]);
+        }
+        return summary;
+    }
+
+    /**
+     * Computes highest, lowest, sum and count for every course ID in one pass over the columns.
+     * @return The per-course results, indexed by dictionary code (see decode)
+     */
+    public Summary summarizeCourses() {
+        Summary summary = new Summary(dictionary.size());
+        for (int r = 0; r < rows; r++) {
+            if (!dead[r]) summary.add(courseIdCode[r], grade[r]);
+        }
+        return summary;
+    }
+
+    /**
+     * Computes highest, lowest, sum and count over every live grade with GradeKernels.
+     * @return The class-wide totals
+     */
+    public GradeKernels.Totals classTotals() {
+        pack();
+        return GradeKernels.totals(grade, 0, rows);
+    }
+
+    /**
+     * Counts the live grades below a threshold with GradeKernels.
+     * @param threshold The threshold; a grade equal to it is not counted
+     * @return The number of grades below it
+     */
+    public int countBelow(double threshold) {
+        pack();
+        return GradeKernels.countBelow(grade, 0, rows, threshold);
+    }
+
+    /**
+     * Counts the live grades per bucket with GradeKernels.histogram.
+     * @param edges Bucket edges in ascending order
+     * @return edges.length + 1 counts
+     */
+    public int[] histogram(double[] edges) {
+        pack();
+        return GradeKernels.histogram(grade, 0, rows, edges);
+    }
+
+    /**
+     * @param studentRow A student row
+     * @return The student ID of that row, or null if the student was removed
+     */
+    public String studentId(int studentRow) {
+        Student student = studentOf[studentRow];
+        return student == null ? null : student.getStudentId();
+    }
+
+    /**
+     * @param code A dictionary code
+     * @return The string it stands for
+     */
+    public String decode(int code) {
+        return dictionary.get(code);
+    }
+
+    /**
+     * @return A new cursor positioned before the first live row
+     */
+    public Cursor cursor() {
+        return new Cursor();
+    }
+
+    @Override
+    public void studentAdded(Student student) {
+        if (students == studentOf.length) growStudents();
+        int s = students++;
+        studentOf[s] = student;
+        firstNameCode[s] = dictionary.code(student.getName());
+        lastNameCode[s] = dictionary.code(student.getLastName());
+        firstRow[s] = -1;
+        lastRow[s] = -1;
+        rowOfStudent.put(student, s);
+        for (Course c : student.getCourses()) {
+            addRow(s, c);
+        }
+    }
+
+    @Override
+    public void studentRemoved(Student student) {
+        Integer removed = rowOfStudent.remove(student);
+        if (removed == null) return;
+        int s = removed;
+        studentOf[s] = null;
+        deadStudents++;
+        for (int r = firstRow[s]; r >= 0; r = nextRow[r]) {
+            dead[r] = true;
+            deadRows++;
+        }
+        if (deadRows > rows / 2 || deadStudents > students / 2) compact();
+    }
+
+    @Override
+    public void studentUpdated(Student student, String oldId) {
+        int s = rowOf(student);
+        if (s < 0) return;
+        firstNameCode[s] = dictionary.code(student.getName());
+        lastNameCode[s] = dictionary.code(student.getLastName());
+    }
+
+    @Override
+    public void courseAdded(Student student, Course course) {
+        int s = rowOf(student);
+        if (s >= 0) addRow(s, course);
+    }
+
+    @Override
+    public void courseUpdated(Student student, Course course, String oldId, double oldGrade) {
+        int r = rowOf(rowOf(student), student.getCourses(), course);
+        if (r < 0) return;
+        courseIdCode[r] = dictionary.code(course.getCourseId());
+        courseHandle[r] = course.getEntry().getHandle();
+        grade[r] = course.getGrade();
+    }
+
+    // The student's row, or -1 if this store does not hold them
+    private int rowOf(Student student) {
+        Integer s = rowOfStudent.get(student);
+        return s == null ? -1 : s;
+    }
+
+    // The row of a course of student row s: rows are linked in the order of the student's courses
+    private int rowOf(int s, List<Course> courses, Course course) {
+        if (s < 0) return -1;
+        int r = firstRow[s];
+        for (int i = 0; i < courses.size() && r >= 0; i++, r = nextRow[r]) {
+            if (courses.get(i) == course) return r;
+        }
+        return -1;
+    }
+
+    private void addRow(int s, Course c) {
+        if (rows == grade.length) growRows(grade.length * 2);
+        studentRow[rows] = s;
+        courseIdCode[rows] = dictionary.code(c.getCourseId());
+        courseHandle[rows] = c.getEntry().getHandle();
+        grade[rows] = c.getGrade();
+        dead[rows] = false;
+        link(s, rows++);
+    }
+
+    // Appends row r to student row s's rows
+    private void link(int s, int r) {
+        nextRow[r] = -1;
+        if (lastRow[s] < 0) firstRow[s] = r;
+        else nextRow[lastRow[s]] = r;
+        lastRow[s] = r;
+    }
+
+    private void growRows(int capacity) {
+        studentRow = Arrays.copyOf(studentRow, capacity);
+        courseIdCode = Arrays.copyOf(courseIdCode, capacity);
+        courseHandle = Arrays.copyOf(courseHandle, capacity);
+        grade = Arrays.copyOf(grade, capacity);
+        dead = Arrays.copyOf(dead, capacity);
+        nextRow = Arrays.copyOf(nextRow, capacity);
+    }
+
+    private void growStudents() {
+        int capacity = studentOf.length * 2;
+        studentOf = Arrays.copyOf(studentOf, capacity);
+        firstNameCode = Arrays.copyOf(firstNameCode, capacity);
+        lastNameCode = Arrays.copyOf(lastNameCode, capacity);
+        firstRow = Arrays.copyOf(firstRow, capacity);
+        lastRow = Arrays.copyOf(lastRow, capacity);
+    }
+
+    // The kernels read the grade column as one dense run, so dead rows are dropped first
+    private void pack() {
+        if (deadRows > 0) compact();
+    }
+
+    // Slides live students and rows down over dead ones, then relinks what moved
+    private void compact() {
+        int[] movedStudent = new int[students];
+        int live = 0;
+        for (int s = 0; s < students; s++) {
+            Student student = studentOf[s];
+            if (student == null) continue;
+            movedStudent[s] = live;
+            studentOf[live] = student;
+            firstNameCode[live] = firstNameCode[s];
+            lastNameCode[live] = lastNameCode[s];
+            firstRow[live] = -1;
+            lastRow[live] = -1;
+            rowOfStudent.put(student, live);
+            live++;
+        }
+        Arrays.fill(studentOf, live, students, null);
+        students = live;
+        deadStudents = 0;
+
+        int n = 0;
+        for (int r = 0; r < rows; r++) {
+            if (dead[r]) continue;
+            studentRow[n] = movedStudent[studentRow[r]];
+            courseIdCode[n] = courseIdCode[r];
+            courseHandle[n] = courseHandle[r];
+            grade[n] = grade[r];
+            dead[n] = false;
+            link(studentRow[n], n); // Rows keep their order, so each student's links keep theirs
+            n++;
+        }
+        rows = n;
+        deadRows = 0;
+    }
+
+    /**
+     * Mergeable highest/lowest/sum/count per key, filled by one scan of the columns.
+     */
+    public static final class Summary {
+        final double[] highest;
+        final double[] lowest;
+        final double[] sum;
+        final int[] count;
+
+        Summary(int keys) {
+            highest = new double[keys];
+            lowest = new double[keys];
+            sum = new double[keys];
+            count = new int[keys];
+            Arrays.fill(lowest, Double.MAX_VALUE);
+        }
+
+        void add(int key, double g) {
+            if (g > highest[key]) highest[key] = g;
+            if (g < lowest[key]) lowest[key] = g;
+            sum[key] += g;
+            count[key]++;
+        }
+
+        public int keys() { return count.length; }
+
+        public int getCount(int key) { return count[key]; }
+
+        public double getHighest(int key) { return highest[key]; }
+
+        public double getLowest(int key) { return lowest[key]; }
+
+        public double getAverage(int key) { return sum[key] / count[key]; }
+    }
+
+    /**
+     * Reusable view of one enrollment row, with the same getters as Course.
+     * next() moves it to the following live row, so one object serves a whole scan.
+     */
+    public final class Cursor {
+        private int row = -1;
+
+        public boolean next() {
+            do {
+                row++;
+            } while (row < rows && dead[row]);
+            return row < rows;
+        }
+
+        public String getStudentId() { return studentOf[studentRow[row]].getStudentId(); }
+
+        public String getCourseId() { return dictionary.get(courseIdCode[row]); }
+
+        public String getCourseName() { return catalog.get(courseHandle[row]).getCourseName(); }
+
+        public double getGrade() { return grade[row]; }
+    }
+
+    /**
+     * Maps each distinct string to a small int code and back.
+     */
+    static final class Dictionary {
+        private final Map<String, Integer> codes = new HashMap<>();
+        private String[] strings = new String[64];
+        private int size;
+
+        int code(String s) {
+            Integer code = codes.get(s);
+            if (code != null) return code;
+            if (size == strings.length) strings = Arrays.copyOf(strings, size * 2);
+            strings[size] = s;
+            codes.put(s, size);
+            return size++;
+        }
+
+        String get(int code) { return strings[code]; }
+
+        int size() { return size; }
+    }
+}
@@ -0,0 +1,676 @@
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.DoubleUnaryOperator;
+import java.util.function.LongConsumer;
+import java.util.function.Supplier;
+
+/**
+ * A student roster that many threads can read and update at once.
+ *
+ * Students are spread over a fixed number of stripes by a hash of their ID. Each
+ * stripe has its own map and read/write lock, so updates to students in different
+ * stripes run in parallel and there is no lock over the whole roster.
+ *
+ * Records are copy-on-write: a change copies the student, changes the copy and
+ * publishes it as a new version tagged with the change's sequence number, so a
+ * published record is never changed again. A whole-roster read (reports, saving)
+ * fixes a sequence number and visits the stripes one at a time, taking from each
+ * the newest version of every record that is no later than that number. It sees
+ * the roster as it was at one instant without holding more than one stripe's read
+ * lock, and never copies a record. Older versions are kept only while a read
+ * that may need them is in progress.
+ *
+ * The manager keeps its own copies of the students: registerStudent copies the
+ * record it is given and getStudent returns a copy, so every change goes through
+ * the methods here and is made under the right lock. Course IDs and names are
+ * kept in the manager's own CourseCatalog. Its entries are never renamed in
+ * place, since that would change published records; renameCourse publishes a
+ * new version of every student taking the course instead.
+ *
+ * Changes are numbered and reported to RosterListeners like StudentManager's, so
+ * a Journal, ChangeFeed or GradeHistory can follow the server's roster. Listeners
+ * are told of a change while the student's stripe is still locked, and while they
+ * are registered changes are numbered and reported one at a time, so every
+ * listener hears of them in sequence order. They are passed the published
+ * records. With no listeners, changes to different stripes do not wait for each
+ * other at all.
+ */
+public class ConcurrentStudentManager implements Roster {
+
+    /** Stripe count used by the no-argument constructor. */
+    public static final int DEFAULT_STRIPES = 64;
+
+    /**
+     * The roster at one instant: every student, in the order they were added, and
+     * the number of the last change they include. The students are the roster's
+     * own records, which are never changed once published; they must not be
+     * changed through the snapshot either.
+     */
+    public record Snapshot(List<Student> students, long sequence) {
+
+        /**
+         * @return The students ordered by first name, keeping the order they were added for equal names
+         */
+        public List<Student> byName() {
+            List<Student> sorted = new ArrayList<>(students);
+            sorted.sort(BY_NAME);
+            return sorted;
+        }
+    }
+
+    // Same order as NameIndex; List.sort is stable, so equal names keep their insertion order
+    private static final Comparator<Student> BY_NAME =
+            Comparator.comparing(Student::getName, Comparator.nullsFirst(Comparator.naturalOrder()));
+
+    /** One version of a student's record; the student is not changed once the version is published. */
+    private static final class Version {
+        final Student student; // null if the student was removed by this change
+        final long order;      // The position the student was added at
+        final long since;      // The change that made this version
+        Version older;         // The version this one replaced, while a snapshot may still need it
+
+        Version(Student student, long order, long since, Version older) {
+            this.student = student;
+            this.order = order;
+            this.since = since;
+            this.older = older;
+        }
+    }
+
+    /** A share of the roster behind its own lock. */
+    private static final class Stripe {
+        final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+        final Map<String, Version> students = new HashMap<>(); // Latest version by student ID
+        final List<String> removed = new ArrayList<>();        // IDs whose latest version is a removal
+    }
+
+    private final Stripe[] stripes;
+    private final int mask;
+    private final AtomicInteger count = new AtomicInteger();
+    private final AtomicLong nextOrder = new AtomicLong();
+    private final AtomicLong changeSequence = new AtomicLong(); // Only increased under a stripe write lock
+    private final List<RosterListener> listeners = new CopyOnWriteArrayList<>();
+    private final ReentrantLock reporting = new ReentrantLock(); // Held while a change is numbered and reported
+    private final CourseCatalog catalog = new CourseCatalog();
+
+    // Sequence numbers pinned by snapshots in progress, with how many hold each
+    private final TreeMap<Long, Integer> pins = new TreeMap<>();
+    private volatile long oldestPin = Long.MAX_VALUE; // Versions a snapshot at this number needs are kept
+
+    /**
+     * Creates an empty roster with DEFAULT_STRIPES stripes.
+     */
+    public ConcurrentStudentManager() {
+        this(DEFAULT_STRIPES);
+    }
+
+    /**
+     * Creates an empty roster.
+     * @param stripes Number of independently locked stripes, rounded up to a power of two;
+     *                1 gives a single lock over the whole roster
+     */
+    public ConcurrentStudentManager(int stripes) {
+        if (stripes < 1) {
+            throw new IllegalArgumentException("Stripe count must be at least 1");
+        }
+        int n = 1;
+        while (n < stripes) n <<= 1;
+        this.stripes = new Stripe[n];
+        for (int i = 0; i < n; i++) {
+            this.stripes[i] = new Stripe();
+        }
+        this.mask = n - 1;
+    }
+
+    /**
+     * Loads a roster saved by StudentManager.saveToFile or by saveToFile here.
+     * Files saved with Java serialization by older versions are read too, and a
+     * ShardedRoster directory is read with its shards in parallel.
+     * @param filename The name of the file to load from
+     * @return A roster holding the file's students, with the saved change sequence
+     * @throws IOException If an I/O error occurs
+     * @throws ClassNotFoundException If the class of a serialized object cannot be found
+     */
+    public static ConcurrentStudentManager load(String filename) throws IOException, ClassNotFoundException {
+        Path path = Paths.get(filename);
+        ConcurrentStudentManager manager = new ConcurrentStudentManager();
+        if (ShardedRoster.isShardedRoster(path)) {
+            ShardedRoster shards = ShardedRoster.open(path);
+            manager.load(shards.readAll(manager.catalog), shards.getSequence());
+            return manager;
+        }
+        boolean legacy = DatabaseMigrator.isLegacyFile(path);
+        List<Student> loaded = legacy ? DatabaseMigrator.readLegacy(path) : RosterFile.read(path, manager.catalog);
+        manager.load(loaded, legacy ? 0 : RosterFile.readSequence(path));
+        return manager;
+    }
+
+    // Fills an empty roster with loaded records as of the saved sequence number
+    private void load(List<Student> loaded, long sequence) {
+        for (Student s : loaded) {
+            Stripe stripe = stripeFor(s.getStudentId());
+            stripe.lock.writeLock().lock();
+            try {
+                if (current(stripe, s.getStudentId()) == null) {
+                    s.join(catalog);
+                    stripe.students.put(s.getStudentId(), new Version(s, nextOrder.getAndIncrement(), 0, null));
+                    count.incrementAndGet();
+                }
+            } finally {
+                stripe.lock.writeLock().unlock();
+            }
+        }
+        changeSequence.set(sequence);
+    }
+
+    /**
+     * @return The number of students
+     */
+    public int getStudentCount() {
+        return count.get();
+    }
+
+    /**
+     * @return The number of the latest change
+     */
+    public long getChangeSequence() {
+        return changeSequence.get();
+    }
+
+    /**
+     * Registers a listener to be told about every change to the roster.
+     * Add listeners before other threads start changing the roster; changes
+     * already in progress may not be reported.
+     * @param listener The listener to add
+     */
+    public void addListener(RosterListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Stops notifying a listener.
+     * @param listener The listener to remove
+     */
+    public void removeListener(RosterListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Runs an action while no change is being made or reported, so the state
+     * listeners keep can be read or saved without racing their callbacks. The
+     * action must not use the roster.
+     * @param action What to run
+     * @param <T> The type of the action's result
+     * @return The action's result
+     */
+    public <T> T holdChanges(Supplier<T> action) {
+        reporting.lock();
+        try {
+            return action.get();
+        } finally {
+            reporting.unlock();
+        }
+    }
+
+    /**
+     * Adds a copy of a student, with their courses.
+     * @param student The student to add
+     * @return true if the student was added, false if the ID is already taken
+     */
+    public boolean registerStudent(Student student) {
+        Student copy = student.copy();
+        copy.join(catalog);
+        return insert(copy);
+    }
+
+    // Adds a record the caller no longer touches; bumps the sequence only if it was added
+    private boolean insert(Student student) {
+        Stripe stripe = stripeFor(student.getStudentId());
+        stripe.lock.writeLock().lock();
+        try {
+            if (current(stripe, student.getStudentId()) != null) {
+                return false;
+            }
+            count.incrementAndGet();
+            publish(stripe, student.getStudentId(), student, nextOrder.getAndIncrement(), l -> l.studentAdded(student));
+            return true;
+        } finally {
+            stripe.lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Gets a copy of one student as they are now.
+     * @param studentId The ID of the student
+     * @return A copy of the student, or null if there is none
+     */
+    public Student getStudent(String studentId) {
+        Stripe stripe = stripeFor(studentId);
+        stripe.lock.readLock().lock();
+        try {
+            Version v = current(stripe, studentId);
+            return v == null ? null : v.student.copy();
+        } finally {
+            stripe.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Gets a student's published record without copying it, for readers that
+     * only look at it. Published records are never changed, and every change
+     * publishes a new one, so the same object means the same record.
+     * @param studentId The ID of the student
+     * @return The roster's own record, which must not be changed, or null if there is no such student
+     */
+    Student getRecord(String studentId) {
+        Stripe stripe = stripeFor(studentId);
+        stripe.lock.readLock().lock();
+        try {
+            Version v = current(stripe, studentId);
+            return v == null ? null : v.student;
+        } finally {
+            stripe.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Removes a student by their ID.
+     * @param studentId The ID of the student to remove
+     * @return true if student was found and removed, false otherwise
+     */
+    public boolean removeStudent(String studentId) {
+        Stripe stripe = stripeFor(studentId);
+        stripe.lock.writeLock().lock();
+        try {
+            Version v = current(stripe, studentId);
+            if (v == null) {
+                return false;
+            }
+            count.decrementAndGet();
+            publish(stripe, studentId, null, v.order, l -> l.studentRemoved(v.student));
+            return true;
+        } finally {
+            stripe.lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Adds a copy of a course to a student's record.
+     * @param studentId The ID of the student
+     * @param course The course to add
+     * @return true if the student was found, false otherwise
+     */
+    public boolean addCourse(String studentId, Course course) {
+        Course added = new Course(catalog.join(course.getEntry()), course.getGrade());
+        Stripe stripe = stripeFor(studentId);
+        stripe.lock.writeLock().lock();
+        try {
+            Version v = current(stripe, studentId);
+            if (v == null) {
+                return false;
+            }
+            Student changed = v.student.copy();
+            changed.addCourses(added);
+            publish(stripe, studentId, changed, v.order, l -> l.courseAdded(changed, added));
+            return true;
+        } finally {
+            stripe.lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Sets the grade of one of a student's courses.
+     * @param studentId The ID of the student
+     * @param courseId The ID of the course
+     * @param grade The new grade
+     * @return true if the course was found, false otherwise
+     */
+    public boolean setGrade(String studentId, String courseId, double grade) {
+        return !Double.isNaN(updateGrade(studentId, courseId, g -> grade));
+    }
+
+    /**
+     * Changes a grade based on its current value, as one atomic step: no other
+     * update to the same student can come between reading the grade and storing the result.
+     * @param studentId The ID of the student
+     * @param courseId The ID of the course
+     * @param update Computes the new grade from the current one
+     * @return The new grade, or NaN if the student or course was not found
+     */
+    public double updateGrade(String studentId, String courseId, DoubleUnaryOperator update) {
+        Stripe stripe = stripeFor(studentId);
+        stripe.lock.writeLock().lock();
+        try {
+            Version v = current(stripe, studentId);
+            if (v == null || v.student.getCourse(courseId) == null) {
+                return Double.NaN;
+            }
+            Student changed = v.student.copy();
+            Course course = changed.getCourse(courseId);
+            double oldGrade = course.getGrade();
+            double grade = update.applyAsDouble(oldGrade);
+            course.setGrade(grade);
+            publish(stripe, studentId, changed, v.order, l -> l.courseUpdated(changed, course, courseId, oldGrade));
+            return grade;
+        } finally {
+            stripe.lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Changes any of a course's ID, name and grade. As with StudentManager.updateCourse,
+     * a new name is given to every student taking the course, by renameCourse, as a
+     * change of its own before the ID and grade are changed in one step.
+     * @param studentId The ID of the student
+     * @param courseId The current ID of the course
+     * @param newId The new course ID, or null to keep it
+     * @param newName The new course name, or null to keep it
+     * @param newGrade The new grade, or NaN to keep it
+     * @return true if the course was found, false otherwise
+     */
+    public boolean updateCourse(String studentId, String courseId, String newId, String newName, double newGrade) {
+        if (newName != null) {
+            Student record = getRecord(studentId);
+            if (record == null || record.getCourse(courseId) == null) {
+                return false;
+            }
+            renameCourse(courseId, newName);
+            if (newId == null && Double.isNaN(newGrade)) {
+                return true;
+            }
+        }
+        Stripe stripe = stripeFor(studentId);
+        stripe.lock.writeLock().lock();
+        try {
+            Version v = current(stripe, studentId);
+            if (v == null || v.student.getCourse(courseId) == null) {
+                return false;
+            }
+            Student changed = v.student.copy();
+            Course course = changed.getCourse(courseId);
+            double oldGrade = course.getGrade();
+            if (newId != null) course.setCourseId(newId);
+            if (!Double.isNaN(newGrade)) course.setGrade(newGrade);
+            publish(stripe, studentId, changed, v.order, l -> l.courseUpdated(changed, course, courseId, oldGrade));
+            return true;
+        } finally {
+            stripe.lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Renames a course for every student taking it, as one change, like
+     * StudentManager.renameCourse. Published records are not changed, so each
+     * student taking the course gets a new version; every stripe is locked while
+     * they are found and published.
+     * @param courseId The ID of the course
+     * @param courseName The new name
+     * @return false if no student takes a course with that ID
+     */
+    public boolean renameCourse(String courseId, String courseName) {
+        for (Stripe stripe : stripes) stripe.lock.writeLock().lock();
+        try {
+            List<Stripe> in = new ArrayList<>();
+            List<Version> found = new ArrayList<>();
+            for (Stripe stripe : stripes) {
+                for (Version v : stripe.students.values()) {
+                    if (v.student != null && v.student.getCourse(courseId) != null) {
+                        in.add(stripe);
+                        found.add(v);
+                    }
+                }
+            }
+            if (found.isEmpty()) {
+                return false;
+            }
+            List<Student> changed = new ArrayList<>(found.size());
+            for (Version v : found) {
+                Student copy = v.student.copy();
+                for (Course c : copy.getCourses()) {
+                    if (courseId.equals(c.getCourseId())) c.setCourseName(courseName);
+                }
+                changed.add(copy);
+            }
+            change(sequence -> {
+                for (int i = 0; i < changed.size(); i++) {
+                    Student s = changed.get(i);
+                    publish(in.get(i), s.getStudentId(), s, found.get(i).order, sequence);
+                }
+            }, l -> l.courseRenamed(courseId, courseName));
+            return true;
+        } finally {
+            for (int i = stripes.length - 1; i >= 0; i--) stripes[i].lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Changes a student's first and last name.
+     * @param studentId The ID of the student
+     * @param name The new first name
+     * @param lastName The new last name
+     * @return true if the student was found, false otherwise
+     */
+    public boolean renameStudent(String studentId, String name, String lastName) {
+        Stripe stripe = stripeFor(studentId);
+        stripe.lock.writeLock().lock();
+        try {
+            Version v = current(stripe, studentId);
+            if (v == null) {
+                return false;
+            }
+            Student changed = v.student.copy();
+            changed.setName(name);
+            changed.setLastName(lastName);
+            publish(stripe, studentId, changed, v.order, l -> l.studentUpdated(changed, studentId));
+            return true;
+        } finally {
+            stripe.lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Gives a student a new ID. The student keeps their place in the roster.
+     * @param oldId The student's current ID
+     * @param newId The ID to give them
+     * @return true if the student was found, false otherwise
+     * @throws IllegalArgumentException If another student already has the new ID
+     */
+    public boolean changeStudentId(String oldId, String newId) {
+        Stripe from = stripeFor(oldId);
+        Stripe to = stripeFor(newId);
+        // Lock in stripe order so two opposite moves cannot deadlock
+        Stripe first = indexOf(oldId) <= indexOf(newId) ? from : to;
+        Stripe second = first == from ? to : from;
+        first.lock.writeLock().lock();
+        second.lock.writeLock().lock();
+        try {
+            Version v = current(from, oldId);
+            if (v == null) {
+                return false;
+            }
+            if (oldId.equals(newId)) {
+                return true;
+            }
+            if (current(to, newId) != null) {
+                throw new IllegalArgumentException("Student ID " + newId + " is already in use");
+            }
+            Student changed = v.student.copy();
+            changed.setStudentId(newId);
+            change(sequence -> {
+                publish(from, oldId, null, v.order, sequence);
+                publish(to, newId, changed, v.order, sequence);
+            }, l -> l.studentUpdated(changed, oldId));
+            return true;
+        } finally {
+            second.lock.writeLock().unlock();
+            first.lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Takes the whole roster as it is at one instant. The stripes are visited one
+     * at a time under their own read lock, taking the version of each record that
+     * was current at the snapshot's sequence number, so no update is half-seen and
+     * a writer waits for at most one stripe's worth of references to be gathered.
+     * @return The students in the order they were added, with the change sequence
+     */
+    public Snapshot snapshot() {
+        long pin = pin();
+        try {
+            long sequence = changeSequence.get(); // Read after pinning, so the versions it needs are kept
+            List<Version> found = new ArrayList<>(count.get());
+            for (Stripe stripe : stripes) {
+                stripe.lock.readLock().lock();
+                try {
+                    for (Version v : stripe.students.values()) {
+                        while (v != null && v.since > sequence) v = v.older;
+                        if (v != null && v.student != null) found.add(v);
+                    }
+                } finally {
+                    stripe.lock.readLock().unlock();
+                }
+            }
+            found.sort(Comparator.comparingLong(v -> v.order));
+            List<Student> students = new ArrayList<>(found.size());
+            for (Version v : found) {
+                students.add(v.student);
+            }
+            return new Snapshot(Collections.unmodifiableList(students), sequence);
+        } finally {
+            unpin(pin);
+        }
+    }
+
+    /**
+     * Prints the class report for a snapshot of the roster, like StudentManager.studentReport.
+     * @param parallel true to compute the report in parallel
+     */
+    public void studentReport(boolean parallel) {
+        List<Student> byName = snapshot().byName();
+        if (byName.isEmpty()) {
+            System.out.println("No students found in records.");
+            return;
+        }
+        ClassReport.build(byName, parallel).print(System.out);
+    }
+
+    /**
+     * Streams the class report for a snapshot of the roster, in first-name order, to a writer.
+     * @param out Where to write the report
+     * @param format The layout to use
+     * @throws IOException If an I/O error occurs
+     */
+    public void exportReport(Writer out, ReportWriter.Format format) throws IOException {
+        List<Student> byName = snapshot().byName();
+        GradeStats classStats = new GradeStats();
+        for (Student s : byName) {
+            classStats.addAll(s.getCourses());
+        }
+        new ReportWriter(out, format).writeReport(byName, classStats);
+    }
+
+    /**
+     * Saves a snapshot of the roster in the binary RosterFile format, so
+     * StudentManager.loadFromFile can read it.
+     * @param filename The name of the file to save to
+     * @throws IOException If an I/O error occurs
+     */
+    public void saveToFile(String filename) throws IOException {
+        Snapshot snapshot = snapshot();
+        RosterFile.write(Paths.get(filename), snapshot.students(), snapshot.sequence());
+    }
+
+    // The student's latest version, or null if there is no such student; needs the stripe's lock
+    private static Version current(Stripe stripe, String studentId) {
+        Version v = stripe.students.get(studentId);
+        return v == null || v.student == null ? null : v;
+    }
+
+    // Publishes a change as the next sequence number and reports it; needs the stripe's write lock
+    private void publish(Stripe stripe, String studentId, Student student, long order, Consumer<RosterListener> report) {
+        change(sequence -> publish(stripe, studentId, student, order, sequence), report);
+    }
+
+    // Numbers a change, makes it and reports it; with listeners, under the reporting lock so they hear it in order
+    private void change(LongConsumer publish, Consumer<RosterListener> report) {
+        if (listeners.isEmpty()) {
+            publish.accept(changeSequence.incrementAndGet());
+            return;
+        }
+        reporting.lock();
+        try {
+            publish.accept(changeSequence.incrementAndGet());
+            for (RosterListener l : listeners) report.accept(l);
+        } finally {
+            reporting.unlock();
+        }
+    }
+
+    // Publishes a student's new version (null for a removal) and drops versions no snapshot needs
+    private void publish(Stripe stripe, String studentId, Student student, long order, long sequence) {
+        Version v = new Version(student, order, sequence, stripe.students.get(studentId));
+        stripe.students.put(studentId, v);
+        if (student == null) stripe.removed.add(studentId);
+        long oldest = oldestPin; // Read after the sequence was increased; see pin
+        while (v != null && v.since > oldest) v = v.older;
+        if (v != null) v.older = null;
+        if (!stripe.removed.isEmpty()) sweep(stripe, oldest);
+    }
+
+    // Forgets removed students that every snapshot in progress already sees as removed
+    private static void sweep(Stripe stripe, long oldest) {
+        stripe.removed.removeIf(id -> {
+            Version v = stripe.students.get(id);
+            if (v == null || v.student != null) return true; // Added again since
+            if (v.since > oldest) return false;
+            stripe.students.remove(id);
+            return true;
+        });
+    }
+
+    /*
+     * A snapshot pins the sequence number before reading the one it will use, and a
+     * writer reads oldestPin after increasing the sequence. So either the writer sees
+     * the pin and keeps the versions the snapshot needs, or the snapshot's number is
+     * at least the writer's and it wants the writer's new version anyway.
+     */
+    private long pin() {
+        synchronized (pins) {
+            long pin = changeSequence.get();
+            pins.merge(pin, 1, Integer::sum);
+            oldestPin = pins.firstKey();
+            return pin;
+        }
+    }
+
+    private void unpin(long pin) {
+        synchronized (pins) {
+            pins.computeIfPresent(pin, (k, n) -> n == 1 ? null : n - 1);
+            oldestPin = pins.isEmpty() ? Long.MAX_VALUE : pins.firstKey();
+        }
+    }
+
+    private int indexOf(String studentId) {
+        int h = studentId.hashCode();
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    private Stripe stripeFor(String studentId) {
+        return stripes[indexOf(studentId)];
+    }
+}
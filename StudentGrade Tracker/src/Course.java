@@ -1,34 +1,94 @@
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
 import java.io.Serializable;
 
 /**
  * This class represents a course taken by a student.
  * It contains the course ID, name, and the student's grade in that course.
+ * The ID and name are kept once in the roster's CourseCatalog and shared by every
+ * student taking the course; each Course holds its catalog entry and its own grade.
  * Implements Serializable so it can be saved and loaded from a file.
  */
 public class Course implements Serializable {
+    // Pinned to the value of the original class so existing Database.txt files still load
+    private static final long serialVersionUID = 8670453376088450482L;
 
-    private String courseId;      // Unique identifier for the course
-    private String courseName;    // Name of the course
-    private double grade;         // Grade the student received
+    // The fields of the original class, which is how a course is still serialized
+    private static final ObjectStreamField[] serialPersistentFields = {
+            new ObjectStreamField("courseId", String.class),
+            new ObjectStreamField("courseName", String.class),
+            new ObjectStreamField("grade", double.class)
+    };
 
-    // Constructor to initialize course information
+    private transient CourseCatalog.Entry entry; // Course ID and name, shared through the roster's catalog
+    private double grade;                        // Grade the student received
+
+    private transient Student owner; // Student whose course index holds this course
+
+    // Constructor to initialize course information; the course joins a catalog when added to a roster
     public Course(String courseId, String courseName, double grade) {
-        this.courseId = courseId;
-        this.courseName = courseName;
+        this(CourseCatalog.detached(courseId, courseName), grade);
+    }
+
+    // For readers that have already looked the course up in the catalog
+    Course(CourseCatalog.Entry entry, double grade) {
+        this.entry = entry;
         this.grade = grade;
     }
 
     // Getter methods to access the data
-    public String getCourseId() { return courseId; }
+    public String getCourseId() { return entry.getCourseId(); }
 
-    public String getCourseName() { return courseName; }
+    public String getCourseName() { return entry.getCourseName(); }
 
     public double getGrade() { return grade; }
 
-    // Setter methods to update the data if needed
-    public void setCourseId(String courseId) { this.courseId = courseId; }
+    /**
+     * @return The course's entry in the CourseCatalog
+     */
+    CourseCatalog.Entry getEntry() { return entry; }
 
-    public void setCourseName(String courseName) { this.courseName = courseName; }
+    // Called by the roster the course is added to, before anyone else sees it there
+    void join(CourseCatalog catalog) { entry = catalog.join(entry); }
+
+    // Setter methods to update the data if needed; an ID or name set here applies
+    // to this student only (see StudentManager.renameCourse to rename for everyone)
+    public void setCourseId(String courseId) {
+        if (owner != null) owner.beforeChange();
+        String oldId = entry.getCourseId();
+        entry = entry.with(courseId, entry.getCourseName());
+        if (owner != null) owner.courseChanged(this, oldId, grade);
+    }
+
+    public void setCourseName(String courseName) {
+        if (owner != null) owner.beforeChange();
+        entry = entry.with(entry.getCourseId(), courseName);
+        if (owner != null) owner.courseChanged(this, entry.getCourseId(), grade);
+    }
 
-    public void setGrade(double grade) { this.grade = grade; }
+    public void setGrade(double grade) {
+        if (owner != null) owner.beforeChange();
+        double oldGrade = this.grade;
+        this.grade = grade;
+        if (owner != null) owner.courseChanged(this, entry.getCourseId(), oldGrade);
+    }
+
+    // Called by Student when the course is added to its list
+    void setOwner(Student owner) { this.owner = owner; }
+
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        ObjectOutputStream.PutField fields = out.putFields();
+        fields.put("courseId", entry.getCourseId());
+        fields.put("courseName", entry.getCourseName());
+        fields.put("grade", grade);
+        out.writeFields();
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        ObjectInputStream.GetField fields = in.readFields();
+        entry = CourseCatalog.detached((String) fields.get("courseId", null), (String) fields.get("courseName", null));
+        grade = fields.get("grade", 0.0);
+    }
 }
@@ -0,0 +1,225 @@
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A roster's list of course IDs and names, which its Courses refer to.
+ *
+ * A course's ID and name are held once here, as an Entry, and each student's
+ * Course holds the entry and its own grade, so thousands of students taking the
+ * same course share one ID and one name. Entries are numbered from 0 in the order
+ * they are created; RosterFile writes each course as that number and a grade, and
+ * ColumnarGradeStore keeps the number in its rows.
+ *
+ * Every StudentManager and ConcurrentStudentManager has its own catalog, and
+ * courses added to one are moved into it (see join), so a rename in one roster
+ * does not reach another. A Course made on its own has an entry of its own,
+ * outside any catalog, until it is added to a roster.
+ *
+ * An entry stands for one ID and name pair. Students normally agree on a course's
+ * name, but records that do not keep their own: each distinct pair has its own
+ * entry. rename gives the course's newest entry the new name and points the other
+ * entries with its ID at that one, which renames the course for every student
+ * taking it without visiting them and leaves one entry for the ID to look up.
+ *
+ * A catalog may be used from any thread. Looking up an existing entry does not
+ * lock; creating an entry or renaming does.
+ */
+public final class CourseCatalog {
+
+    /** One course ID and its name, shared by every Course with that pair. */
+    public static final class Entry {
+        private final CourseCatalog catalog; // null for a course made outside any roster
+        private final int handle;
+        private final String courseId;
+        private volatile String courseName;
+        private volatile Entry next;    // An entry with the same course ID and another name, or null
+        private volatile Entry renamed; // The entry this one was folded into by a rename, or null
+
+        private Entry(CourseCatalog catalog, int handle, String courseId, String courseName, Entry next) {
+            this.catalog = catalog;
+            this.handle = handle;
+            this.courseId = courseId;
+            this.courseName = courseName;
+            this.next = next;
+        }
+
+        /**
+         * @return The entry's number, for CourseCatalog.get, or -1 outside any catalog
+         */
+        public int getHandle() { return handle; }
+
+        public String getCourseId() { return courseId; }
+
+        public String getCourseName() { return current().courseName; }
+
+        /**
+         * @return The catalog holding the entry, or null if it is in none
+         */
+        CourseCatalog getCatalog() { return catalog; }
+
+        /**
+         * @return The entry that now carries this one's name: itself, unless a rename folded it into another
+         */
+        Entry current() {
+            Entry e = this;
+            for (Entry r = e.renamed; r != null; r = e.renamed) e = r;
+            return e;
+        }
+
+        /**
+         * Gets the entry for the same catalog with another ID or name.
+         * @return The entry, outside any catalog if this one is
+         */
+        Entry with(String courseId, String courseName) {
+            return catalog != null ? catalog.intern(courseId, courseName) : detached(courseId, courseName);
+        }
+    }
+
+    private static final Object NULL_ID = new Object(); // Key for a null course ID
+
+    private final Map<Object, Entry> byId = new ConcurrentHashMap<>(); // The newest entry for each ID
+    private final CourseCatalog source; // The catalog this is a copy of, or null
+    private volatile Entry[] entries = new Entry[256]; // By handle
+    private int size;
+
+    /**
+     * Creates an empty catalog.
+     */
+    public CourseCatalog() {
+        this.source = null;
+    }
+
+    private CourseCatalog(CourseCatalog source) {
+        this.source = source;
+    }
+
+    /**
+     * Makes an entry that belongs to no catalog, for a course not on any roster.
+     * @param courseId The course ID
+     * @param courseName The course name
+     * @return The new entry
+     */
+    static Entry detached(String courseId, String courseName) {
+        return new Entry(null, -1, courseId, courseName, null);
+    }
+
+    /**
+     * Gets the entry for a course ID and name, creating it the first time the pair is seen.
+     * @param courseId The course ID
+     * @param courseName The course name
+     * @return The shared entry
+     */
+    public Entry intern(String courseId, String courseName) {
+        Entry found = find(byId.get(key(courseId)), courseName);
+        return found != null ? found : add(courseId, courseName);
+    }
+
+    /**
+     * Gets this catalog's entry for the same ID and name as an entry of any catalog.
+     * @param entry The entry to look up
+     * @return The entry itself if it is this catalog's, or this catalog's entry for its pair
+     */
+    public Entry join(Entry entry) {
+        return entry.catalog == this ? entry : intern(entry.getCourseId(), entry.getCourseName());
+    }
+
+    /**
+     * @param handle An entry's handle
+     * @return The entry
+     * @throws ArrayIndexOutOfBoundsException If no entry has that handle
+     */
+    public Entry get(int handle) {
+        return entries[handle];
+    }
+
+    /**
+     * @return The number of entries created; every handle is below it
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Copies the catalog as it is now, keeping every handle. Later renames in
+     * either catalog do not show in the other.
+     * @return The copy
+     */
+    synchronized CourseCatalog copy() {
+        CourseCatalog copy = new CourseCatalog(this);
+        Entry[] all = new Entry[Math.max(size, 1)];
+        for (int h = 0; h < size; h++) {
+            Entry e = entries[h];
+            if (e.renamed == null) {
+                all[h] = new Entry(copy, h, e.courseId, e.courseName, null);
+                copy.byId.merge(key(e.courseId), all[h], (older, added) -> { added.next = older; return added; });
+            }
+        }
+        for (int h = 0; h < size; h++) {
+            if (all[h] == null) all[h] = all[entries[h].current().handle]; // Folded entries share their copy
+        }
+        copy.entries = all;
+        copy.size = size;
+        return copy;
+    }
+
+    /**
+     * Gets the copy of an entry of the catalog this was copied from.
+     * @param entry An entry of any catalog
+     * @return The entry with the same handle here, or the entry itself if it is not from that catalog
+     *         or was created after the copy
+     */
+    Entry copyOf(Entry entry) {
+        return entry.catalog == source && source != null && entry.handle < size ? entries[entry.handle] : entry;
+    }
+
+    /**
+     * Gives a course ID a new name, which renames the course for every student
+     * taking it. The other entries with the ID are folded into the newest one, so
+     * the ID is left with a single entry. Use StudentManager.renameCourse so
+     * listeners hear of it.
+     * @param courseId The course ID
+     * @param courseName The new name
+     * @return false if no entry has that course ID
+     */
+    synchronized boolean rename(String courseId, String courseName) {
+        Entry head = byId.get(key(courseId));
+        if (head == null) {
+            return false;
+        }
+        head.courseName = courseName;
+        for (Entry e = head.next; e != null; e = e.next) {
+            e.renamed = head;
+        }
+        head.next = null;
+        return true;
+    }
+
+    private synchronized Entry add(String courseId, String courseName) {
+        Object key = key(courseId);
+        Entry head = byId.get(key);
+        Entry found = find(head, courseName); // Another thread may have added it first
+        if (found != null) {
+            return found;
+        }
+        Entry e = new Entry(this, size, courseId, courseName, head);
+        Entry[] all = entries;
+        if (size == all.length) all = Arrays.copyOf(all, size * 2);
+        all[size++] = e;
+        entries = all;
+        byId.put(key, e);
+        return e;
+    }
+
+    private static Entry find(Entry head, String courseName) {
+        for (Entry e = head; e != null; e = e.next) {
+            if (Objects.equals(e.courseName, courseName)) return e;
+        }
+        return null;
+    }
+
+    private static Object key(String courseId) {
+        return courseId == null ? NULL_ID : courseId;
+    }
+}
@@ -0,0 +1,166 @@
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Index from course ID to everyone enrolled in it, with running statistics per course.
+ *
+ * Each course keeps its enrollments in the order they were made, a GradeStats over
+ * their grades, and the enrollments sorted by grade, so course averages and extremes
+ * are constant-time reads and "students below a grade" only visits the students it
+ * returns. Nothing here scans the whole roster.
+ *
+ * The index registers itself as a RosterListener and follows every added, removed
+ * and regraded course, including a course moving to a new ID.
+ */
+public class CourseIndex implements RosterListener {
+
+    /**
+     * Everyone enrolled in one course.
+     */
+    public static final class Enrollment {
+        private final String courseId;
+        private final Map<Course, Student> students = new LinkedHashMap<>();
+        private final TreeMap<Double, List<Course>> byGrade = new TreeMap<>();
+        private final GradeStats stats = new GradeStats();
+
+        private Enrollment(String courseId) {
+            this.courseId = courseId;
+        }
+
+        public String getCourseId() { return courseId; }
+
+        /**
+         * @return The course name given by the earliest enrollment still in the course
+         */
+        public String getCourseName() {
+            return students.isEmpty() ? null : students.keySet().iterator().next().getCourseName();
+        }
+
+        /**
+         * @return The number of enrollments
+         */
+        public int size() { return students.size(); }
+
+        /**
+         * @return Running statistics over the course's grades
+         */
+        public GradeStats getStats() { return stats; }
+
+        /**
+         * @return The enrolled students, in the order they enrolled
+         */
+        public Collection<Student> getStudents() {
+            return Collections.unmodifiableCollection(students.values());
+        }
+
+        /**
+         * Gets the students whose grade in this course is below a threshold, lowest grade first.
+         * @param threshold Grades strictly below this are included
+         * @return The matching students
+         */
+        public List<Student> studentsBelow(double threshold) {
+            List<Student> out = new ArrayList<>();
+            for (List<Course> sameGrade : byGrade.headMap(threshold, false).values()) {
+                for (Course c : sameGrade) out.add(students.get(c));
+            }
+            return out;
+        }
+
+        private void add(Student student, Course course) {
+            students.put(course, student);
+            byGrade.computeIfAbsent(course.getGrade(), g -> new ArrayList<>(2)).add(course);
+            stats.add(course.getGrade());
+        }
+
+        private void regrade(Course course, double oldGrade) {
+            List<Course> sameGrade = byGrade.get(oldGrade);
+            sameGrade.remove(course);
+            if (sameGrade.isEmpty()) byGrade.remove(oldGrade);
+            byGrade.computeIfAbsent(course.getGrade(), g -> new ArrayList<>(2)).add(course);
+            stats.replace(oldGrade, course.getGrade());
+        }
+
+        private void remove(Course course, double grade) {
+            if (students.remove(course) == null) {
+                return;
+            }
+            List<Course> sameGrade = byGrade.get(grade);
+            sameGrade.remove(course);
+            if (sameGrade.isEmpty()) byGrade.remove(grade);
+            stats.remove(grade);
+        }
+    }
+
+    private final Map<String, Enrollment> courses = new TreeMap<>();
+
+    /**
+     * Builds an index of every enrollment in a manager and keeps it current.
+     * @param manager The manager to index
+     * @return The attached index
+     */
+    public static CourseIndex attach(StudentManager manager) {
+        CourseIndex index = new CourseIndex();
+        for (Student s : manager.getStudents()) {
+            index.studentAdded(s);
+        }
+        manager.addListener(index);
+        return index;
+    }
+
+    /**
+     * @param courseId The course ID
+     * @return Everyone enrolled in the course, or null if nobody is
+     */
+    public Enrollment get(String courseId) {
+        return courses.get(courseId);
+    }
+
+    /**
+     * @return Every course with at least one enrollment, ordered by course ID
+     */
+    public Collection<Enrollment> getCourses() {
+        return Collections.unmodifiableCollection(courses.values());
+    }
+
+    private void enroll(Student student, Course course) {
+        courses.computeIfAbsent(course.getCourseId(), Enrollment::new).add(student, course);
+    }
+
+    private void unenroll(Course course, String courseId, double grade) {
+        Enrollment e = courses.get(courseId);
+        if (e != null) {
+            e.remove(course, grade);
+            if (e.size() == 0) courses.remove(courseId);
+        }
+    }
+
+    @Override
+    public void studentAdded(Student student) {
+        for (Course c : student.getCourses()) enroll(student, c);
+    }
+
+    @Override
+    public void studentRemoved(Student student) {
+        for (Course c : student.getCourses()) unenroll(c, c.getCourseId(), c.getGrade());
+    }
+
+    @Override
+    public void courseAdded(Student student, Course course) {
+        enroll(student, course);
+    }
+
+    @Override
+    public void courseUpdated(Student student, Course course, String oldId, double oldGrade) {
+        if (!oldId.equals(course.getCourseId())) {
+            unenroll(course, oldId, oldGrade);
+            enroll(student, course);
+        } else if (Double.compare(oldGrade, course.getGrade()) != 0) {
+            courses.get(oldId).regrade(course, oldGrade); // Keeps the student's place in the course
+        }
+    }
+}
@@ -0,0 +1,93 @@
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * One-time converter from the old Java-serialized Database.txt to the binary RosterFile format.
+ * The original file is kept next to the new one with a ".bak" suffix. Both the backup and
+ * the converted file are forced to disk before the original is replaced, so a crash
+ * leaves either the old file or the new one.
+ */
+public class DatabaseMigrator {
+
+    private static final int SERIALIZATION_MAGIC = 0xACED; // First two bytes of an ObjectOutputStream
+
+    private DatabaseMigrator() {
+    }
+
+    /**
+     * Checks whether a file was written by ObjectOutputStream.
+     * @param path The file to check
+     * @return true if the file uses Java serialization
+     * @throws IOException If the file cannot be read
+     */
+    public static boolean isLegacyFile(Path path) throws IOException {
+        try (InputStream in = Files.newInputStream(path)) {
+            return ((in.read() << 8) | in.read()) == SERIALIZATION_MAGIC;
+        }
+    }
+
+    /**
+     * Reads a file written by the old ObjectOutputStream-based saveToFile.
+     * @param path The file to read
+     * @return The saved students
+     * @throws IOException If an I/O error occurs
+     * @throws ClassNotFoundException If the class of a serialized object cannot be found
+     */
+    @SuppressWarnings("unchecked")
+    public static List<Student> readLegacy(Path path) throws IOException, ClassNotFoundException {
+        try (ObjectInputStream ois = new ObjectInputStream(new FileInputStream(path.toFile()))) {
+            return (List<Student>) ois.readObject();
+        }
+    }
+
+    /**
+     * Converts a legacy database file in place, if it is one.
+     * @param filename The database file
+     * @return true if the file was converted, false if it was missing or already binary
+     * @throws IOException If an I/O error occurs
+     * @throws ClassNotFoundException If the class of a serialized object cannot be found
+     */
+    public static boolean migrateIfLegacy(String filename) throws IOException, ClassNotFoundException {
+        Path path = Paths.get(filename);
+        if (!Files.exists(path) || !isLegacyFile(path)) {
+            return false;
+        }
+        List<Student> students = readLegacy(path);
+        Path backup = Paths.get(filename + ".bak");
+        Files.copy(path, backup, StandardCopyOption.REPLACE_EXISTING);
+        try (FileChannel channel = FileChannel.open(backup, StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+        RosterFile.writeAtomically(path, students, 0);
+        return true;
+    }
+
+    /**
+     * Converts the database files named on the command line (Database.txt by default).
+     *
+     * @param args Database files to convert
+     */
+    public static void main(String[] args) {
+        String[] files = args.length > 0 ? args : new String[] {"Database.txt"};
+        for (String file : files) {
+            try {
+                if (migrateIfLegacy(file)) {
+                    System.out.println(file + ": converted (original kept as " + file + ".bak)");
+                } else {
+                    System.out.println(file + ": nothing to convert");
+                }
+            } catch (IOException | ClassNotFoundException e) {
+                System.out.println(file + ": error converting - " + e.getMessage());
+            }
+        }
+    }
+}
@@ -3,6 +3,7 @@ import java.io.Serializable;
 /**
  * This class helps calculate grades for a student.
  * It includes methods to find the highest, lowest, and average grade.
+ * The values come from the student's running GradeStats, so each call is constant time.
  * Implements Serializable so it can be saved and loaded if needed.
  */
 public class GradeCalculator implements Serializable {
@@ -20,13 +21,7 @@ public class GradeCalculator implements Serializable {
      * @return the highest grade among the student's courses
      */
     public double get_HighestGrade(Student student) {
-        double highest = 0.0;
-        for (Course course : student.getCourses()) {
-            if (course.getGrade() > highest) {
-                highest = course.getGrade();
-            }
-        }
-        return highest;
+        return student.getStats().getHighest();
     }
 
     /**
@@ -36,13 +31,7 @@ public class GradeCalculator implements Serializable {
      * @return the lowest grade among the student's courses
      */
     public double get_LowestGrade(Student student) {
-        double lowest = Double.MAX_VALUE;
-        for (Course course : student.getCourses()) {
-            if (course.getGrade() < lowest) {
-                lowest = course.getGrade();
-            }
-        }
-        return lowest;
+        return student.getStats().getLowest();
     }
 
     /**
@@ -52,10 +41,16 @@ public class GradeCalculator implements Serializable {
      * @return the average of all course grades
      */
     public double get_Average(Student student) {
-        double sum = 0.0;
-        for (Course course : student.getCourses()) {
-            sum += course.getGrade();
-        }
-        return sum / student.getCourses().size();
+        return student.getStats().getAverage();
+    }
+
+    /**
+     * Calculates and returns the standard deviation of a student's grades.
+     *
+     * @param student the student to check
+     * @return the population standard deviation of all course grades
+     */
+    public double get_StandardDeviation(Student student) {
+        return Math.sqrt(student.getStats().getVariance());
     }
 }
@@ -0,0 +1,819 @@
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+/**
+ * Every grade change as a timestamped version per student and course, so a
+ * student's record or the class report can be rebuilt as it stood at an earlier
+ * time.
+ *
+ * History starts when the history is attached: the grade a course had then is
+ * its initial version, which has no time. The versions of all of a student's
+ * courses are kept oldest first in one byte array of variable-length numbers:
+ * the course's position in the student's list, the time as milliseconds since
+ * the student's previous version (the first as milliseconds since the epoch),
+ * and the grade as its change in hundredths from the course's previous grade, or
+ * as the raw double when a grade is not a whole number of hundredths. A typical
+ * version takes five to six bytes, and one student's versions are read in a
+ * single pass over one array. Students whose grades never changed have no
+ * versions and cost nothing; a read at or after a student's last change returns
+ * the live record without decoding anything.
+ *
+ * Removed students are kept as a copy of their record, so they appear in reports
+ * of times they were on the roster. Grades, enrollments and who was on the roster
+ * are versioned; student IDs and names are shown as they are now, or were when
+ * the student was removed, and course names as the roster's catalog has them now
+ * (as saved, for students removed before the history was loaded).
+ *
+ * compact(horizon) is the retention policy: versions already replaced at the
+ * horizon are dropped and students removed before it are forgotten, so reads of
+ * earlier times answer as of the horizon. Times never go backwards; a clock that
+ * steps back is read as the last time recorded.
+ *
+ * The history is saved with the roster's change sequence. If the roster has moved
+ * on when it is loaded, as after a crash whose last changes were recovered from
+ * the journal, those changes were made at times the history never saw; a grade
+ * that differs from its last version is recorded at load time, but a course whose
+ * grade had not changed before carries no version to show the change. Rather than
+ * answer wrongly, reads of times before such a gap are refused (see canAnswer)
+ * until compaction moves the horizon past it.
+ *
+ * Records are kept by student ID, so the history can follow a roster whose
+ * records are replaced on every change, such as a ConcurrentStudentManager; it
+ * keeps the latest record it was told about. The history registers itself as a
+ * RosterListener and is not thread-safe: it is changed by the roster's changes,
+ * and anything else must hold them off meanwhile (see
+ * ConcurrentStudentManager.holdChanges). It is saved to and loaded
+ * from its own file (see toBytes, writeAtomically and load); versions are
+ * written as they are held in memory.
+ */
+public class GradeHistory implements RosterListener {
+
+    static final int MAGIC = 0x53474848; // "SGHH"
+    static final short VERSION = 2;
+    private static final byte[] NO_DATA = new byte[0];
+    private static final long[] NO_BITS = new long[0];
+    private static final long EXACT_LIMIT = 1L << 50; // Grades of more hundredths are stored raw
+
+    /** One version of a grade: the time it was set and the grade. */
+    public record Version(long time, double grade) {
+
+        /**
+         * @return true for the grade the course had before its first recorded change, which has no time
+         */
+        public boolean isInitial() {
+            return time == Long.MIN_VALUE;
+        }
+    }
+
+    /** What the history knows about one student, and the versions of their grades. */
+    private static final class Record {
+        Student student;                  // The latest record of a live student, or a copy made when they were removed
+        long added = Long.MIN_VALUE;      // When the student was added; MIN_VALUE if on the roster when history started
+        long removed = Long.MAX_VALUE;    // When the student was removed
+        long lastChange = Long.MIN_VALUE; // Latest of added and the time of the last version
+        long lastTime;                    // Time of the last timed version, which the next is encoded from
+        int span;                         // One more than the highest course position with versions
+        int versions;
+        int length;
+        byte[] data = NO_DATA;
+        long[] versioned = NO_BITS;       // One bit per course position that has versions
+
+        boolean hasVersions(int course) {
+            int word = course >>> 6;
+            return word < versioned.length && (versioned[word] & 1L << course) != 0;
+        }
+
+        void markVersioned(int course) {
+            int word = course >>> 6;
+            if (word >= versioned.length) versioned = Arrays.copyOf(versioned, word + 1);
+            versioned[word] |= 1L << course;
+        }
+
+        Record(Student student) {
+            this.student = student;
+        }
+
+        boolean presentAt(long time) {
+            return added <= time && time < removed;
+        }
+
+        // Records the grade a course had before its first change
+        void initial(int course, double grade) {
+            putVarint((long) course << 1 | 1);
+            putGrade(0.0, grade);
+            versions++;
+            span = Math.max(span, course + 1);
+            markVersioned(course);
+        }
+
+        // Records a new grade; previous is the course's last recorded grade, or 0 for a new course
+        void change(int course, long time, double previous, double grade) {
+            putVarint((long) course << 1);
+            putVarint(time - lastTime);
+            putGrade(previous, grade);
+            lastTime = time;
+            lastChange = Math.max(lastChange, time);
+            versions++;
+            span = Math.max(span, course + 1);
+            markVersioned(course);
+        }
+
+        private void putGrade(double previous, double grade) {
+            if (isExact(previous) && isExact(grade)) {
+                long delta = Math.round(grade * 100) - Math.round(previous * 100);
+                putVarint(((delta << 1) ^ (delta >> 63)) << 1);
+            } else {
+                putVarint(1);
+                long bits = Double.doubleToRawLongBits(grade);
+                for (int shift = 56; shift >= 0; shift -= 8) put((byte) (bits >>> shift));
+            }
+        }
+
+        private void putVarint(long value) {
+            while ((value & ~0x7FL) != 0) {
+                put((byte) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            put((byte) value);
+        }
+
+        private void put(byte b) {
+            if (length == data.length) data = Arrays.copyOf(data, Math.max(16, length * 2));
+            data[length++] = b;
+        }
+
+        // Applies the retention horizon; returns true if nothing is left worth keeping
+        boolean compact(long horizon) {
+            if (added <= horizon) added = Long.MIN_VALUE;
+            if (versions > 0) {
+                int n = versions;
+                int[] course = new int[n];
+                long[] time = new long[n];
+                double[] grade = new double[n];
+                Scan s = new Scan(this);
+                for (int i = 0; s.next(); i++) {
+                    course[i] = s.course;
+                    time[i] = s.initial ? Long.MIN_VALUE : s.time;
+                    grade[i] = s.grade;
+                }
+                // Per course, the version in effect at the horizon and the last version
+                int[] inEffect = new int[span];
+                int[] last = new int[span];
+                Arrays.fill(inEffect, -1);
+                for (int i = 0; i < n; i++) {
+                    if (time[i] <= horizon) inEffect[course[i]] = i;
+                    last[course[i]] = i;
+                }
+                // The version in effect becomes the initial one, unless nothing replaced it
+                byte[] old = data;
+                data = NO_DATA;
+                versioned = NO_BITS;
+                length = versions = span = 0;
+                lastTime = 0;
+                double[] latest = new double[inEffect.length];
+                for (int c = 0; c < inEffect.length; c++) {
+                    int i = inEffect[c];
+                    if (i >= 0 && i < last[c]) {
+                        initial(c, grade[i]);
+                        latest[c] = grade[i];
+                    }
+                }
+                for (int i = 0; i < n; i++) {
+                    int c = course[i];
+                    if (i > inEffect[c] && inEffect[c] < last[c]) {
+                        change(c, time[i], latest[c], grade[i]);
+                        latest[c] = grade[i];
+                    }
+                }
+                data = Arrays.equals(data, 0, length, old, 0, old.length) ? old : Arrays.copyOf(data, length);
+            }
+            return added == Long.MIN_VALUE && versions == 0;
+        }
+    }
+
+    /** Decodes a record's versions oldest first, keeping each course's latest grade. */
+    private static final class Scan {
+        private final Record record;
+        private final double[] latest; // By course position; 0 before a course's first version
+        private int pos;
+        private int index;
+        int course;
+        boolean initial; // The grade before the course's first change, with no time
+        long time;
+        double grade;
+
+        Scan(Record record) {
+            this.record = record;
+            this.latest = new double[record.span];
+        }
+
+        boolean next() {
+            if (index == record.versions) {
+                return false;
+            }
+            long header = varint();
+            course = (int) (header >>> 1);
+            initial = (header & 1) != 0;
+            if (!initial) time += varint();
+            long code = varint();
+            if ((code & 1) == 0) {
+                long zigzag = code >>> 1;
+                long previous = initial ? 0 : Math.round(latest[course] * 100);
+                grade = (previous + ((zigzag >>> 1) ^ -(zigzag & 1))) / 100.0;
+            } else {
+                long bits = 0;
+                for (int i = 0; i < 8; i++) bits = bits << 8 | (record.data[pos++] & 0xFF);
+                grade = Double.longBitsToDouble(bits);
+            }
+            latest[course] = grade;
+            index++;
+            return true;
+        }
+
+        private long varint() {
+            long value = 0;
+            for (int shift = 0; ; shift += 7) {
+                byte b = record.data[pos++];
+                value |= (long) (b & 0x7F) << shift;
+                if (b >= 0) return value;
+            }
+        }
+    }
+
+    private final Roster roster;
+    private final LongSupplier clock;
+    private final Map<String, Record> records = new HashMap<>(); // Live students with a record, by ID
+    private final Map<String, List<Record>> removed = new HashMap<>(); // By the ID the student had when removed
+    private long lastChange = Long.MIN_VALUE; // Time of the latest change recorded
+    private long horizon = Long.MIN_VALUE;    // Reads of earlier times answer as of this time
+    private long unrecordedBefore = Long.MIN_VALUE; // End of the latest gap in the history; earlier reads are refused
+    private long changeCount;  // Changes recorded or compacted away, to tell when the file is out of date
+    private long versionCount; // Versions held
+    private long byteCount;    // Bytes of encoded versions held
+
+    private GradeHistory(Roster roster, LongSupplier clock) {
+        this.roster = roster;
+        this.clock = clock;
+    }
+
+    /**
+     * Starts recording the grade history of every student in a roster.
+     * The grades they have now are the initial versions.
+     * @param roster The roster to follow
+     * @return The attached history
+     */
+    public static GradeHistory attach(Roster roster) {
+        return attach(roster, System::currentTimeMillis);
+    }
+
+    /**
+     * Starts recording with a clock other than the system clock.
+     * @param roster The roster to follow
+     * @param clock Returns the current time in milliseconds since the epoch
+     * @return The attached history
+     */
+    static GradeHistory attach(Roster roster, LongSupplier clock) {
+        GradeHistory history = new GradeHistory(roster, clock);
+        roster.addListener(history);
+        return history;
+    }
+
+    @Override
+    public void studentAdded(Student student) {
+        long now = now();
+        Record r = new Record(student);
+        r.added = now;
+        r.lastChange = now;
+        records.put(student.getStudentId(), r);
+    }
+
+    @Override
+    public void studentRemoved(Student student) {
+        long now = now();
+        Record r = records.remove(student.getStudentId());
+        if (r == null) r = new Record(student);
+        r.student = student.copy();
+        r.removed = now;
+        removed.computeIfAbsent(r.student.getStudentId(), k -> new ArrayList<>(1)).add(r);
+    }
+
+    @Override
+    public void courseAdded(Student student, Course course) {
+        int position = position(student, course);
+        if (position < 0) {
+            return;
+        }
+        Record r = record(student);
+        int before = r.length;
+        r.change(position, now(), 0.0, course.getGrade());
+        versionCount++;
+        byteCount += r.length - before;
+    }
+
+    @Override
+    public void courseUpdated(Student student, Course course, String oldId, double oldGrade) {
+        int position;
+        if (Double.compare(oldGrade, course.getGrade()) == 0 || (position = position(student, course)) < 0) {
+            return;
+        }
+        Record r = record(student);
+        int before = r.length;
+        if (!r.hasVersions(position)) {
+            r.initial(position, oldGrade);
+            versionCount++;
+        }
+        r.change(position, now(), oldGrade, course.getGrade());
+        versionCount++;
+        byteCount += r.length - before;
+    }
+
+    @Override
+    public void studentUpdated(Student student, String oldId) {
+        Record r = records.remove(oldId);
+        if (r != null) {
+            r.student = student;
+            records.put(student.getStudentId(), r);
+        }
+    }
+
+    // The student's record, holding the latest version of the student
+    private Record record(Student student) {
+        Record r = records.computeIfAbsent(student.getStudentId(), k -> new Record(student));
+        r.student = student;
+        return r;
+    }
+
+    // The current time, never before the last change, counted as a new change
+    private long now() {
+        lastChange = Math.max(Math.max(clock.getAsLong(), 0), lastChange);
+        changeCount++;
+        return lastChange;
+    }
+
+    // Position of a course in the student's list; courses are only ever appended
+    private static int position(Student student, Course course) {
+        List<Course> courses = student.getCourses();
+        for (int i = courses.size() - 1; i >= 0; i--) {
+            if (courses.get(i) == course) return i;
+        }
+        return -1;
+    }
+
+    /**
+     * Tells whether the history can rebuild records as of a time: it cannot for
+     * times before a gap of changes it did not see being made.
+     * @param time Milliseconds since the epoch
+     * @return false if asOf and rosterAsOf would refuse the time
+     */
+    public boolean canAnswer(long time) {
+        return Math.max(time, horizon) >= unrecordedBefore;
+    }
+
+    /**
+     * @return The end of the latest gap of changes the history did not see being
+     *         made, before which reads are refused; Long.MIN_VALUE if there is none
+     */
+    public long getUnrecordedBefore() {
+        return unrecordedBefore;
+    }
+
+    /**
+     * Gets a student's record as it stood at a time.
+     * @param studentId The student's current ID, or the ID they had when they were removed
+     * @param time Milliseconds since the epoch
+     * @return The live student if their grades have not changed since, a detached
+     *         copy holding the courses and grades of that time, or null if no
+     *         student with that ID was on the roster then
+     * @throws IllegalArgumentException If the time is before a gap in the history (see canAnswer)
+     */
+    public Student asOf(String studentId, long time) {
+        time = answerable(time);
+        Student live = roster.getStudent(studentId);
+        if (live != null) {
+            Student past = asOf(live, records.get(studentId), time);
+            if (past != null) return past;
+        }
+        for (Record r : removed.getOrDefault(studentId, List.of())) {
+            if (r.presentAt(time)) return asOf(r.student, r, time);
+        }
+        return null;
+    }
+
+    /**
+     * Rebuilds the roster as it stood at a time.
+     * @param byName Every student now on the roster, in first-name order
+     * @param time Milliseconds since the epoch
+     * @return The students on the roster then, in first-name order; byName itself
+     *         if nothing has changed since
+     * @throws IllegalArgumentException If the time is before a gap in the history (see canAnswer)
+     */
+    public List<Student> rosterAsOf(List<Student> byName, long time) {
+        time = answerable(time);
+        if (time >= lastChange) {
+            return byName;
+        }
+        List<Student> live = new ArrayList<>(byName.size());
+        for (Student s : byName) {
+            Student past = asOf(s, records.get(s.getStudentId()), time);
+            if (past != null) live.add(past);
+        }
+        List<Student> gone = new ArrayList<>();
+        for (List<Record> list : removed.values()) {
+            for (Record r : list) {
+                if (r.presentAt(time)) gone.add(asOf(r.student, r, time));
+            }
+        }
+        if (gone.isEmpty()) {
+            return live;
+        }
+        // Removed students go before the first live student with a later name
+        Comparator<Student> order = Comparator.comparing(Student::getName,
+                Comparator.nullsFirst(Comparator.naturalOrder()));
+        gone.sort(order);
+        List<Student> merged = new ArrayList<>(live.size() + gone.size());
+        int g = 0;
+        for (Student s : live) {
+            while (g < gone.size() && order.compare(gone.get(g), s) < 0) merged.add(gone.get(g++));
+            merged.add(s);
+        }
+        merged.addAll(gone.subList(g, gone.size()));
+        return merged;
+    }
+
+    // The time reads answer as of: no earlier than the horizon, and not before a gap
+    private long answerable(long time) {
+        if (!canAnswer(time)) {
+            throw new IllegalArgumentException("Grade history has changes before " + unrecordedBefore
+                    + " that were not recorded with their times");
+        }
+        return Math.max(time, horizon);
+    }
+
+    // A student at a time, or null if they were not on the roster then
+    private static Student asOf(Student student, Record r, long time) {
+        if (r == null) {
+            return student;
+        }
+        if (!r.presentAt(time)) {
+            return null;
+        }
+        if (time >= r.lastChange) {
+            return student;
+        }
+        // Per course: 0 if its grade never changed, 1 with its grade at that time, 2 if added later
+        double[] grades = new double[r.span];
+        byte[] state = new byte[r.span];
+        Scan s = new Scan(r);
+        while (s.next()) {
+            if (s.initial || s.time <= time) {
+                grades[s.course] = s.grade;
+                state[s.course] = 1;
+            } else if (state[s.course] == 0) {
+                state[s.course] = 2;
+            }
+        }
+        Student past = new Student(student.getName(), student.getLastName(), student.getStudentId());
+        List<Course> courses = student.getCourses();
+        for (int i = 0; i < courses.size(); i++) {
+            Course c = courses.get(i);
+            int known = i < state.length ? state[i] : 0;
+            if (known == 0) {
+                past.addCourses(new Course(c.getCourseId(), c.getCourseName(), c.getGrade()));
+            } else if (known == 1) {
+                past.addCourses(new Course(c.getCourseId(), c.getCourseName(), grades[i]));
+            }
+        }
+        return past;
+    }
+
+    /**
+     * Gets every recorded grade of one of a live student's courses.
+     * @param student The student
+     * @param course One of their courses
+     * @return The versions, oldest first; empty if the grade has not changed since history started
+     */
+    public List<Version> versions(Student student, Course course) {
+        Record r = records.get(student.getStudentId());
+        int position = r == null ? -1 : position(student, course);
+        if (position < 0 || position >= r.span) {
+            return List.of();
+        }
+        List<Version> list = new ArrayList<>();
+        Scan s = new Scan(r);
+        while (s.next()) {
+            if (s.course == position) list.add(new Version(s.initial ? Long.MIN_VALUE : s.time, s.grade));
+        }
+        return list;
+    }
+
+    /**
+     * Applies the retention policy: drops every version that had already been
+     * replaced at the horizon and forgets students removed before it. Reads of
+     * earlier times then answer as of the horizon.
+     * @param horizon Milliseconds since the epoch; an earlier horizon than the last one does nothing
+     */
+    public void compact(long horizon) {
+        if (horizon <= this.horizon) {
+            return;
+        }
+        this.horizon = horizon;
+        changeCount++;
+        records.values().removeIf(r -> r.compact(horizon));
+        for (Iterator<List<Record>> it = removed.values().iterator(); it.hasNext(); ) {
+            List<Record> list = it.next();
+            list.removeIf(r -> r.removed <= horizon);
+            for (Record r : list) r.compact(horizon);
+            if (list.isEmpty()) it.remove();
+        }
+        recount();
+    }
+
+    private void recount() {
+        versionCount = 0;
+        byteCount = 0;
+        for (Record r : records.values()) count(r);
+        for (List<Record> list : removed.values()) {
+            for (Record r : list) count(r);
+        }
+    }
+
+    private void count(Record r) {
+        versionCount += r.versions;
+        byteCount += r.length;
+    }
+
+    /**
+     * @return The time reads are answered as of at the earliest, or Long.MIN_VALUE before any compaction
+     */
+    public long getHorizon() {
+        return horizon;
+    }
+
+    /**
+     * @return Number of changes recorded so far; it changes whenever the history does
+     */
+    public long getChangeCount() {
+        return changeCount;
+    }
+
+    /**
+     * @return Number of grade versions held, counting initial grades
+     */
+    public long getVersionCount() {
+        return versionCount;
+    }
+
+    /**
+     * @return Bytes of encoded versions held
+     */
+    public long getByteCount() {
+        return byteCount;
+    }
+
+    /**
+     * Encodes the whole history, for writing on another thread with writeAtomically
+     * while this one keeps changing.
+     *
+     * Layout (all numbers big-endian, strings as in DataOutput.writeUTF):
+     * - int magic "SGHH", short version, long horizon, long time of the last change,
+     *   long change sequence of the roster, long end of the latest gap (since version 2)
+     * - int count, then per live student: ID, then the record
+     * - int count, then per removed student: ID, a flag and first name, a flag and
+     *   last name, int course count, per course: ID, name and grade at removal;
+     *   then the record
+     * - a record is long added, long removed, long last change, long time of the
+     *   last version, int course span, the IDs of the courses in the span, int
+     *   version count, int byte count and the encoded versions
+     * @return The encoded history
+     */
+    public byte[] toBytes() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream((int) Math.min(Integer.MAX_VALUE - 8, byteCount * 2 + 1024));
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(MAGIC);
+            out.writeShort(VERSION);
+            out.writeLong(horizon);
+            out.writeLong(lastChange);
+            out.writeLong(roster.getChangeSequence());
+            out.writeLong(unrecordedBefore);
+            out.writeInt(records.size());
+            for (Record r : records.values()) {
+                out.writeUTF(r.student.getStudentId());
+                writeRecord(out, r);
+            }
+            List<Record> gone = new ArrayList<>();
+            removed.values().forEach(gone::addAll);
+            out.writeInt(gone.size());
+            for (Record r : gone) {
+                Student s = r.student;
+                out.writeUTF(s.getStudentId());
+                writeNullable(out, s.getName());
+                writeNullable(out, s.getLastName());
+                out.writeInt(s.getCourses().size());
+                for (Course c : s.getCourses()) {
+                    out.writeUTF(c.getCourseId());
+                    out.writeUTF(c.getCourseName());
+                    out.writeDouble(c.getGrade());
+                }
+                writeRecord(out, r);
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException(e); // A ByteArrayOutputStream does not fail
+        }
+        return bytes.toByteArray();
+    }
+
+    private static void writeRecord(DataOutputStream out, Record r) throws IOException {
+        out.writeLong(r.added);
+        out.writeLong(r.removed);
+        out.writeLong(r.lastChange);
+        out.writeLong(r.lastTime);
+        out.writeInt(r.span);
+        List<Course> courses = r.student.getCourses();
+        for (int i = 0; i < r.span; i++) {
+            out.writeUTF(courses.get(i).getCourseId());
+        }
+        out.writeInt(r.versions);
+        out.writeInt(r.length);
+        out.write(r.data, 0, r.length);
+    }
+
+    private static void writeNullable(DataOutputStream out, String s) throws IOException {
+        out.writeBoolean(s != null);
+        if (s != null) out.writeUTF(s);
+    }
+
+    /**
+     * Writes an encoded history to a temporary file next to the target, forces it
+     * to disk and renames it over the target, like RosterFile.writeAtomically.
+     * @param path The file to replace
+     * @param history The history, from toBytes
+     * @throws IOException If an I/O error occurs; the target is then unchanged
+     */
+    public static void writeAtomically(Path path, byte[] history) throws IOException {
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        Files.write(temp, history);
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Replaces the history with one saved by writeAtomically. Live students are
+     * matched by ID, and their versions kept if their courses still start with the
+     * ones the versions refer to; history of students no longer on the roster is
+     * dropped. A grade that differs from its last saved version, such as a change
+     * recovered from the journal after the history was last saved, is recorded as
+     * a new version at the current time. If the roster's change sequence is not
+     * the one the history was saved with, or a grade had to be recorded that way,
+     * the changes in between were not seen, and reads of earlier times are refused
+     * from then on (see canAnswer). Files of version 1 carry no change sequence,
+     * so only differing grades reveal a gap in them.
+     * @param path The file to read
+     * @return false if there is no such file
+     * @throws IOException If the file cannot be read or is not a grade history
+     *         (the history is then unchanged)
+     */
+    public boolean load(Path path) throws IOException {
+        Map<String, Record> live = new HashMap<>();
+        Map<String, List<Record>> gone = new HashMap<>();
+        long savedHorizon;
+        long savedLastChange;
+        long savedSequence = -1;
+        long savedGap = Long.MIN_VALUE;
+        try (InputStream file = Files.newInputStream(path)) {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(file, 1 << 16));
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a grade history file");
+            }
+            short version = in.readShort();
+            if (version > VERSION) {
+                throw new IOException("Unsupported grade history version " + version);
+            }
+            savedHorizon = in.readLong();
+            savedLastChange = in.readLong();
+            if (version >= 2) {
+                savedSequence = in.readLong();
+                savedGap = in.readLong();
+            }
+            for (int i = in.readInt(); i > 0; i--) {
+                Student s = roster.getStudent(in.readUTF());
+                Record r = readRecord(in, s);
+                if (s != null) live.putIfAbsent(s.getStudentId(), r);
+            }
+            for (int i = in.readInt(); i > 0; i--) {
+                String id = in.readUTF();
+                Student s = new Student(readNullable(in), readNullable(in), id);
+                for (int c = in.readInt(); c > 0; c--) {
+                    s.addCourses(new Course(in.readUTF(), in.readUTF(), in.readDouble()));
+                }
+                gone.computeIfAbsent(id, k -> new ArrayList<>(1)).add(readRecord(in, s));
+            }
+        } catch (NoSuchFileException e) {
+            return false;
+        }
+        records.clear();
+        records.putAll(live);
+        removed.clear();
+        removed.putAll(gone);
+        horizon = savedHorizon;
+        lastChange = Math.max(lastChange, savedLastChange);
+        unrecordedBefore = savedGap;
+        boolean missed = savedSequence >= 0 && savedSequence != roster.getChangeSequence();
+        for (Record r : records.values()) {
+            missed |= reconcile(r);
+        }
+        if (missed) {
+            unrecordedBefore = now();
+        }
+        recount();
+        return true;
+    }
+
+    // Reads a record; its versions are dropped if the student's courses no longer match them
+    private static Record readRecord(DataInputStream in, Student student) throws IOException {
+        Record r = new Record(student);
+        r.added = in.readLong();
+        r.removed = in.readLong();
+        r.lastChange = in.readLong();
+        r.lastTime = in.readLong();
+        r.span = in.readInt();
+        List<Course> courses = student == null ? List.of() : student.getCourses();
+        boolean matches = r.span <= courses.size();
+        for (int i = 0; i < r.span; i++) {
+            String courseId = in.readUTF();
+            matches &= i < courses.size() && courses.get(i).getCourseId().equals(courseId);
+        }
+        r.versions = in.readInt();
+        r.length = in.readInt();
+        if (r.span < 0 || r.versions < 0 || r.length < 0) {
+            throw new IOException("Corrupt grade history record");
+        }
+        r.data = new byte[r.length];
+        in.readFully(r.data);
+        if (!matches) {
+            r.data = NO_DATA;
+            r.length = r.versions = r.span = 0;
+            return r;
+        }
+        Scan s = new Scan(r);
+        try {
+            while (s.next()) {
+                if (s.course >= r.span) throw new IOException("Corrupt grade history record");
+                r.markVersioned(s.course);
+            }
+        } catch (ArrayIndexOutOfBoundsException e) {
+            throw new IOException("Corrupt grade history record");
+        }
+        if (s.pos != r.length) throw new IOException("Corrupt grade history record");
+        return r;
+    }
+
+    private static String readNullable(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    // Records grades that changed after the history was saved; returns true if there were any
+    private boolean reconcile(Record r) {
+        if (r.versions == 0) {
+            return false;
+        }
+        Scan s = new Scan(r);
+        while (s.next()) {
+            // Runs to the end, leaving each course's latest grade in s.latest
+        }
+        boolean changed = false;
+        List<Course> courses = r.student.getCourses();
+        for (int i = 0; i < r.span; i++) {
+            double grade = courses.get(i).getGrade();
+            if (r.hasVersions(i) && Double.compare(s.latest[i], grade) != 0) {
+                r.change(i, now(), s.latest[i], grade);
+                changed = true;
+            }
+        }
+        return changed;
+    }
+
+    private static boolean isExact(double grade) {
+        long h = Math.round(grade * 100);
+        return Math.abs(h) < EXACT_LIMIT && Double.compare(h / 100.0, grade) == 0;
+    }
+}
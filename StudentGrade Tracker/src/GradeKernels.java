@@ -0,0 +1,145 @@
+/**
+ * Aggregation kernels over primitive grade arrays, such as the grade column of
+ * ColumnarGradeStore: highest, lowest, sum and count in one pass, the number of
+ * grades below a threshold, and a histogram over bucket edges.
+ *
+ * Each call runs VectorGradeKernels (jdk.incubator.vector) when the JVM was started
+ * with --add-modules jdk.incubator.vector on hardware with 256-bit vectors, and
+ * ScalarGradeKernels otherwise. The two return bit-identical results: both add the
+ * grades into SUMS running sums, grade i of each full block going to sum i % SUMS,
+ * combine those in the same fixed order and then add the remaining tail one by
+ * one. Highest and lowest only move for a strictly greater or smaller grade, as in
+ * ColumnarGradeStore.Summary, so NaN grades are skipped; a lowest grade of -0.0 is
+ * reported as 0.0, leaving nothing that depends on order. The counts are exact.
+ * Switching implementations therefore never changes a printed number.
+ */
+public class GradeKernels {
+
+    /** Number of running sums, which fixes the order grades are added in. */
+    public static final int SUMS = 16;
+
+    private static final boolean VECTORIZED = ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()
+            && VectorGradeKernels.isSupported();
+
+    private GradeKernels() {
+    }
+
+    /**
+     * Highest, lowest, sum and count of a range of grades. As in GradeStats, an
+     * empty range has highest 0.0 and lowest Double.MAX_VALUE.
+     */
+    public record Totals(int count, double sum, double highest, double lowest) {
+
+        /**
+         * @return The average grade, or 0 if there are none
+         */
+        public double average() {
+            return count > 0 ? sum / count : 0;
+        }
+    }
+
+    /**
+     * @return true if the kernels run on the Vector API
+     */
+    public static boolean isVectorized() {
+        return VECTORIZED;
+    }
+
+    /**
+     * Computes highest, lowest, sum and count of grades[from, to) in one pass.
+     * @param grades The grades
+     * @param from First index, inclusive
+     * @param to Last index, exclusive
+     * @return The totals
+     */
+    public static Totals totals(double[] grades, int from, int to) {
+        return VECTORIZED ? VectorGradeKernels.totals(grades, from, to) : ScalarGradeKernels.totals(grades, from, to);
+    }
+
+    /**
+     * Counts the grades in grades[from, to) below a threshold.
+     * @param grades The grades
+     * @param from First index, inclusive
+     * @param to Last index, exclusive
+     * @param threshold The threshold; a grade equal to it is not counted
+     * @return The number of grades below it
+     */
+    public static int countBelow(double[] grades, int from, int to, double threshold) {
+        return VECTORIZED ? VectorGradeKernels.countBelow(grades, from, to, threshold)
+                : ScalarGradeKernels.countBelow(grades, from, to, threshold);
+    }
+
+    /**
+     * Counts the grades in grades[from, to) per bucket. With edges e0 &lt; e1 &lt; ... &lt; en,
+     * bucket 0 holds grades below e0, bucket i grades from e(i-1) up to but not
+     * including ei, and the last bucket grades of en or more.
+     * @param grades The grades
+     * @param from First index, inclusive
+     * @param to Last index, exclusive
+     * @param edges Bucket edges in ascending order
+     * @return edges.length + 1 counts
+     * @throws IllegalArgumentException If the edges are not in ascending order
+     */
+    public static int[] histogram(double[] grades, int from, int to, double[] edges) {
+        checkEdges(edges);
+        return VECTORIZED ? VectorGradeKernels.histogram(grades, from, to, edges)
+                : ScalarGradeKernels.histogram(grades, from, to, edges);
+    }
+
+    /**
+     * @param lowest Lower edge of the first full bucket
+     * @param width Width of each bucket
+     * @param buckets Number of full buckets
+     * @return buckets + 1 edges: lowest, lowest + width, ..., lowest + buckets * width
+     */
+    public static double[] edges(double lowest, double width, int buckets) {
+        double[] edges = new double[buckets + 1];
+        for (int i = 0; i <= buckets; i++) {
+            edges[i] = lowest + i * width;
+        }
+        return edges;
+    }
+
+    /**
+     * Adds up the SUMS running sums in the order both implementations use:
+     * sums i, i + 4, i + 8 and i + 12 pairwise for each i below 4, then those four
+     * results pairwise.
+     * @param sums The running sums
+     * @return Their total
+     */
+    static double combine(double[] sums) {
+        double[] q = new double[4];
+        for (int i = 0; i < 4; i++) {
+            q[i] = (sums[i] + sums[i + 4]) + (sums[i + 8] + sums[i + 12]);
+        }
+        return (q[0] + q[1]) + (q[2] + q[3]);
+    }
+
+    /**
+     * Builds the totals of count grades, turning a lowest grade of -0.0 into 0.0.
+     */
+    static Totals totals(int count, double sum, double highest, double lowest) {
+        return new Totals(count, sum, highest, lowest == 0.0 ? 0.0 : lowest);
+    }
+
+    /**
+     * Turns counts of grades at or above each edge into bucket counts.
+     */
+    static int[] buckets(int total, int[] atOrAbove) {
+        int[] counts = new int[atOrAbove.length + 1];
+        counts[0] = total - (atOrAbove.length > 0 ? atOrAbove[0] : 0);
+        for (int i = 1; i < atOrAbove.length; i++) {
+            counts[i] = atOrAbove[i - 1] - atOrAbove[i];
+        }
+        if (atOrAbove.length > 0) counts[atOrAbove.length] = atOrAbove[atOrAbove.length - 1];
+        return counts;
+    }
+
+    private static void checkEdges(double[] edges) {
+        for (int i = 1; i < edges.length; i++) {
+            if (!(edges[i - 1] < edges[i])) {
+                throw new IllegalArgumentException("Bucket edges must be ascending: " + edges[i - 1] + ", " + edges[i]);
+            }
+        }
+    }
+}
@@ -0,0 +1,254 @@
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Class ranking by average grade: rank of a student, top-N, percentiles and a
+ * grade distribution, without sorting the roster.
+ *
+ * Averages are bounded to 0-100, so each student is counted in one of 10,001
+ * buckets of width 0.01 (the precision reports print). A Fenwick tree over the
+ * bucket counts answers "how many students average above x" in O(log buckets),
+ * which gives ranks, percentiles and range counts; top-N walks the buckets from
+ * the top. Students with equal averages to two decimals share a rank. Students
+ * with no courses have no average and are not ranked. Each bucket links its
+ * students in the order they joined it, so moving a student is constant time
+ * however many share their average.
+ *
+ * The ranking registers itself as a RosterListener and moves a student between
+ * buckets whenever their average changes.
+ */
+public class GradeRanking implements RosterListener {
+
+    private static final int SCALE = 100;                  // Buckets per grade point
+    private static final int BUCKETS = 100 * SCALE + 1;    // 0.00 .. 100.00
+
+    /** A ranked student's place: their bucket and their neighbours in it. */
+    private static final class Node {
+        final Student student;
+        int bucket;
+        Node previous;
+        Node next;
+
+        Node(Student student) {
+            this.student = student;
+        }
+    }
+
+    private final int[] tree = new int[BUCKETS + 1];       // Fenwick tree of bucket counts, 1-based
+    private final Node[] first = new Node[BUCKETS];        // Earliest student to join each bucket
+    private final Node[] last = new Node[BUCKETS];         // Latest student to join each bucket
+    private final Map<Student, Node> bucketOf = new IdentityHashMap<>();
+
+    /**
+     * Builds a ranking of every student in a manager and keeps it current.
+     * @param manager The manager to rank
+     * @return The attached ranking
+     */
+    public static GradeRanking attach(StudentManager manager) {
+        GradeRanking ranking = new GradeRanking();
+        for (Student s : manager.getStudents()) {
+            ranking.update(s);
+        }
+        manager.addListener(ranking);
+        return ranking;
+    }
+
+    /**
+     * @return The number of ranked students (those with at least one course)
+     */
+    public int getRankedCount() {
+        return bucketOf.size();
+    }
+
+    /**
+     * Gets a student's class rank: one more than the number of students with a higher average.
+     * @param student The student
+     * @return The rank, starting at 1, or 0 if the student is not ranked
+     */
+    public int rankOf(Student student) {
+        Node node = bucketOf.get(student);
+        if (node == null) {
+            return 0;
+        }
+        return countFrom(node.bucket + 1) + 1;
+    }
+
+    /**
+     * Gets the share of ranked students whose average is below a student's.
+     * @param student The student
+     * @return A percentage from 0 to 100, or NaN if the student is not ranked
+     */
+    public double percentileOf(Student student) {
+        Node node = bucketOf.get(student);
+        if (node == null) {
+            return Double.NaN;
+        }
+        return 100.0 * prefix(node.bucket) / bucketOf.size();
+    }
+
+    /**
+     * Gets the students with the highest averages, best first.
+     * Students with equal averages are listed in the order they reached that average.
+     * @param n How many students to return at most
+     * @return Up to n students
+     */
+    public List<Student> top(int n) {
+        List<Student> out = new ArrayList<>(Math.min(n, bucketOf.size()));
+        for (int b = BUCKETS - 1; b >= 0 && out.size() < n; b--) {
+            for (Node node = first[b]; node != null && out.size() < n; node = node.next) {
+                out.add(node.student);
+            }
+        }
+        return out;
+    }
+
+    /**
+     * Gets the average at a percentile: the lowest average that at least that share
+     * of ranked students are at or below.
+     * @param percentile From 0 to 100; 10, 20, ... 90 give the deciles
+     * @return The average, or NaN if no student is ranked
+     */
+    public double percentile(double percentile) {
+        int n = bucketOf.size();
+        if (n == 0) {
+            return Double.NaN;
+        }
+        int rank = Math.max(1, (int) Math.ceil(percentile / 100.0 * n));
+        return bucketWithRank(Math.min(rank, n)) / (double) SCALE;
+    }
+
+    /**
+     * Counts students whose average is within a range.
+     * @param low Lowest average to count
+     * @param high Highest average to count
+     * @return The number of ranked students with low &lt;= average &lt;= high
+     */
+    public int countBetween(double low, double high) {
+        int lo = Math.max(0, (int) Math.ceil(low * SCALE - 1e-9));
+        int hi = Math.min(BUCKETS - 1, (int) Math.floor(high * SCALE + 1e-9));
+        return hi < lo ? 0 : prefix(hi + 1) - prefix(lo);
+    }
+
+    /**
+     * Counts students per equal-width range of averages across 0-100.
+     * The last range includes 100.
+     * @param bins Number of ranges, e.g. 10 for 0-10, 10-20, ... 90-100
+     * @return The count in each range, lowest range first
+     */
+    public int[] histogram(int bins) {
+        int[] counts = new int[bins];
+        int previous = 0;
+        for (int i = 0; i < bins; i++) {
+            int end = i == bins - 1 ? BUCKETS : (int) ((long) (i + 1) * (BUCKETS - 1) / bins);
+            int upTo = prefix(end);
+            counts[i] = upTo - previous;
+            previous = upTo;
+        }
+        return counts;
+    }
+
+    // Puts a student in the bucket of their current average, or takes them out if they have none
+    private void update(Student student) {
+        GradeStats stats = student.getStats();
+        int bucket = stats.getCount() == 0 ? -1 : toBucket(stats.getAverage());
+        Node node = bucketOf.get(student);
+        if (node != null && node.bucket == bucket) {
+            return;
+        }
+        if (node != null) {
+            unlink(node);
+        }
+        if (bucket < 0) {
+            bucketOf.remove(student);
+            return;
+        }
+        if (node == null) {
+            node = new Node(student);
+            bucketOf.put(student, node);
+        }
+        node.bucket = bucket;
+        node.previous = last[bucket];
+        node.next = null;
+        if (last[bucket] == null) first[bucket] = node;
+        else last[bucket].next = node;
+        last[bucket] = node;
+        add(bucket, 1);
+    }
+
+    private void remove(Student student) {
+        Node node = bucketOf.remove(student);
+        if (node != null) {
+            unlink(node);
+        }
+    }
+
+    // Takes a student out of their bucket
+    private void unlink(Node node) {
+        int b = node.bucket;
+        if (node.previous == null) first[b] = node.next;
+        else node.previous.next = node.next;
+        if (node.next == null) last[b] = node.previous;
+        else node.next.previous = node.previous;
+        add(b, -1);
+    }
+
+    private static int toBucket(double average) {
+        long b = Math.round(average * SCALE);
+        return (int) Math.max(0, Math.min(BUCKETS - 1, b));
+    }
+
+    private void add(int bucket, int delta) {
+        for (int i = bucket + 1; i <= BUCKETS; i += i & -i) {
+            tree[i] += delta;
+        }
+    }
+
+    // Number of students in buckets below the given one
+    private int prefix(int bucket) {
+        int sum = 0;
+        for (int i = bucket; i > 0; i -= i & -i) {
+            sum += tree[i];
+        }
+        return sum;
+    }
+
+    // Number of students in the given bucket and above
+    private int countFrom(int bucket) {
+        return bucketOf.size() - prefix(bucket);
+    }
+
+    // The bucket holding the rank-th lowest student (rank starting at 1)
+    private int bucketWithRank(int rank) {
+        int pos = 0;
+        for (int step = Integer.highestOneBit(BUCKETS); step > 0; step >>= 1) {
+            int next = pos + step;
+            if (next <= BUCKETS && tree[next] < rank) {
+                pos = next;
+                rank -= tree[next];
+            }
+        }
+        return pos; // 1-based position pos + 1, so bucket index pos
+    }
+
+    @Override
+    public void studentAdded(Student student) {
+        update(student);
+    }
+
+    @Override
+    public void studentRemoved(Student student) {
+        remove(student);
+    }
+
+    @Override
+    public void courseAdded(Student student, Course course) {
+        update(student);
+    }
+
+    @Override
+    public void courseUpdated(Student student, Course course, String oldId, double oldGrade) {
+        update(student);
+    }
+}
@@ -0,0 +1,455 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * HTTP/JSON interface to a ConcurrentStudentManager, built on the JDK's own
+ * HTTP server so it needs no other libraries.
+ *
+ * Every request is handled on its own virtual thread, and connections are kept
+ * alive between requests. The JSON for each student is kept in a ReportCache
+ * that listens to the roster, so repeated lookups of an unchanged student are
+ * not rendered again. Endpoints:
+ * - GET    /students/{id}                  the student, their courses and grade summary
+ * - POST   /students                       add a student: {"id","name","lastName","courses":[...]}
+ * - DELETE /students/{id}                  remove a student
+ * - POST   /students/{id}/courses          add a course: {"id","name","grade"}
+ * - PUT    /students/{id}/courses/{course} change any of "id", "name", "grade"
+ * - GET    /report[?format=csv|fixed|text] the class report, as JSON by default
+ * - POST   /batch                          run a list of requests in one round trip:
+ *                                          [{"method","path","body"}, ...]
+ * - GET    /metrics                        latency per endpoint and gauges, in Prometheus text format
+ * Grades must be between 0 and 100. Errors come back as {"error": "..."}.
+ *
+ * There is no authentication, so the server listens on the loopback address
+ * unless start is given another. Request bodies over MAX_BODY bytes are refused
+ * with 413.
+ */
+public class GradeServer {
+
+    /** Port used when none is given. */
+    public static final int DEFAULT_PORT = 8080;
+
+    /** Largest request body accepted, in bytes; a batch counts as one body. */
+    public static final int MAX_BODY = 1 << 20;
+
+    private static final int BACKLOG = 1024; // Connections waiting to be accepted
+
+    /** Status and body of one handled request. */
+    private record Response(int status, String body, String contentType) {
+        static Response json(int status, String body) {
+            return new Response(status, body, "application/json; charset=utf-8");
+        }
+
+        static Response error(int status, String message) {
+            return json(status, Json.appendString(new StringBuilder("{\"error\":"), message).append('}').toString());
+        }
+
+        boolean isJson() { return contentType.startsWith("application/json"); }
+    }
+
+    private final ConcurrentStudentManager roster;
+    private final ReportCache students = new ReportCache(); // Rendered GET /students/{id} bodies
+    private final Metrics metrics = new Metrics("studentgrade_http");
+    private HttpServer server;
+    private ExecutorService executor;
+
+    /**
+     * Starts listening to the roster's changes, for the student cache; create the
+     * server before other threads change the roster.
+     * @param roster The records to serve
+     */
+    public GradeServer(ConcurrentStudentManager roster) {
+        this.roster = roster;
+        roster.addListener(students);
+        metrics.gauge("students", "Students in the roster", roster::getStudentCount);
+        metrics.gauge("change_sequence", "Number of the latest change", roster::getChangeSequence);
+        metrics.gauge("student_cache_hits", "Student responses served from the cache", students::getHits);
+        metrics.gauge("student_cache_misses", "Student responses rendered", students::getMisses);
+        metrics.gauge("student_cache_evictions", "Responses dropped to stay within the cache size", students::getEvictions);
+        metrics.addHeapGauges();
+    }
+
+    /**
+     * @return Latency of each endpoint, response counts by status class, and gauges
+     */
+    public Metrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Starts listening on the loopback address. Returns once the server is accepting connections.
+     * @param port Port to listen on, or 0 for any free port
+     * @throws IOException If the port cannot be bound
+     */
+    public void start(int port) throws IOException {
+        start(InetAddress.getLoopbackAddress(), port);
+    }
+
+    /**
+     * Starts listening on one address. Anyone who can reach it can change the
+     * records, so only use an address other than loopback on a trusted network.
+     * Returns once the server is accepting connections.
+     * @param address Address to listen on; the wildcard address listens on every interface
+     * @param port Port to listen on, or 0 for any free port
+     * @throws IOException If the port cannot be bound
+     */
+    public void start(InetAddress address, int port) throws IOException {
+        server = HttpServer.create(new InetSocketAddress(address, port), BACKLOG);
+        executor = Executors.newVirtualThreadPerTaskExecutor();
+        server.setExecutor(executor);
+        server.createContext("/", this::exchange);
+        server.start();
+    }
+
+    /**
+     * @return The port the server is listening on
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Stops accepting requests and waits for the ones in progress to finish.
+     */
+    public void stop() {
+        server.stop(1);
+        executor.close();
+    }
+
+    private void exchange(HttpExchange ex) throws IOException {
+        Metrics.Sample sample = metrics.start(route(ex.getRequestMethod(), ex.getRequestURI().getPath()));
+        try {
+            respond(ex);
+        } finally {
+            sample.stop();
+        }
+    }
+
+    private void respond(HttpExchange ex) throws IOException {
+        Response response;
+        try {
+            byte[] bytes;
+            try (InputStream in = ex.getRequestBody()) {
+                bytes = in.readNBytes(MAX_BODY + 1);
+            }
+            if (bytes.length > MAX_BODY) {
+                response = Response.error(413, "Request body is larger than " + MAX_BODY + " bytes");
+            } else {
+                String text = new String(bytes, StandardCharsets.UTF_8);
+                Object body = text.isBlank() ? null : Json.parse(text);
+                response = handle(ex.getRequestMethod(), ex.getRequestURI().getPath(),
+                        query(ex.getRequestURI().getRawQuery()), body, true);
+            }
+        } catch (IllegalArgumentException e) {
+            response = Response.error(400, e.getMessage());
+        } catch (RuntimeException e) {
+            response = Response.error(500, String.valueOf(e));
+        }
+        metrics.increment("responses_" + response.status() / 100 + "xx");
+        byte[] bytes = response.body().getBytes(StandardCharsets.UTF_8);
+        ex.getResponseHeaders().set("Content-Type", response.contentType());
+        ex.sendResponseHeaders(response.status(), bytes.length == 0 ? -1 : bytes.length);
+        if (bytes.length > 0) {
+            try (OutputStream out = ex.getResponseBody()) {
+                out.write(bytes);
+            }
+        }
+        ex.close();
+    }
+
+    // Routes one request; shared by the HTTP handler and the batch endpoint
+    private Response handle(String method, String path, Map<String, String> query, Object body, boolean allowBatch) {
+        String[] parts = path.split("/");
+        List<String> segments = new ArrayList<>();
+        for (String part : parts) {
+            if (!part.isEmpty()) segments.add(part);
+        }
+        if (segments.isEmpty()) {
+            return Response.error(404, "Not found");
+        }
+        switch (segments.get(0)) {
+            case "students" -> {
+                if (segments.size() == 1) {
+                    return method.equals("POST") ? addStudent(body) : notAllowed();
+                }
+                String id = segments.get(1);
+                if (segments.size() == 2) {
+                    return switch (method) {
+                        case "GET" -> getStudent(id);
+                        case "DELETE" -> roster.removeStudent(id) ? Response.json(204, "")
+                                : Response.error(404, "Student with ID " + id + " not found");
+                        default -> notAllowed();
+                    };
+                }
+                if (!segments.get(2).equals("courses") || segments.size() > 4) {
+                    return Response.error(404, "Not found");
+                }
+                if (segments.size() == 3) {
+                    return method.equals("POST") ? addCourse(id, body) : notAllowed();
+                }
+                return method.equals("PUT") ? updateCourse(id, segments.get(3), body) : notAllowed();
+            }
+            case "report" -> {
+                return segments.size() == 1 && method.equals("GET") ? report(query.get("format")) : notAllowed();
+            }
+            case "metrics" -> {
+                return segments.size() == 1 && method.equals("GET") ? metrics() : notAllowed();
+            }
+            case "batch" -> {
+                return allowBatch && segments.size() == 1 && method.equals("POST") ? batch(body) : notAllowed();
+            }
+            default -> {
+                return Response.error(404, "Not found");
+            }
+        }
+    }
+
+    private Response getStudent(String id) {
+        Student s = roster.getRecord(id);
+        if (s == null) {
+            return Response.error(404, "Student with ID " + id + " not found");
+        }
+        return Response.json(200, students.get(s, r -> appendStudent(new StringBuilder(256), r).toString()));
+    }
+
+    private Response addStudent(Object body) {
+        Map<String, Object> fields = object(body);
+        Student s = new Student(text(fields, "name"), text(fields, "lastName"), text(fields, "id"));
+        Object courses = fields.get("courses");
+        if (courses != null) {
+            if (!(courses instanceof List<?> list)) {
+                throw new IllegalArgumentException("\"courses\" must be an array");
+            }
+            for (Object c : list) {
+                s.addCourses(course(object(c)));
+            }
+        }
+        if (!roster.registerStudent(s)) {
+            return Response.error(409, "Student with ID " + s.getStudentId() + " already exists");
+        }
+        return Response.json(201, appendStudent(new StringBuilder(256), s).toString());
+    }
+
+    private Response addCourse(String studentId, Object body) {
+        Course c = course(object(body));
+        if (!roster.addCourse(studentId, c)) {
+            return Response.error(404, "Student with ID " + studentId + " not found");
+        }
+        return getStudent(studentId);
+    }
+
+    private Response updateCourse(String studentId, String courseId, Object body) {
+        Map<String, Object> fields = object(body);
+        String newId = optionalText(fields, "id");
+        String newName = optionalText(fields, "name");
+        double newGrade = fields.get("grade") == null ? Double.NaN : grade(fields);
+        if (!roster.updateCourse(studentId, courseId, newId, newName, newGrade)) {
+            return Response.error(404, "Course with ID " + courseId + " not found for student " + studentId);
+        }
+        return getStudent(studentId);
+    }
+
+    private Response report(String format) {
+        if (format != null && !format.equals("json")) {
+            ReportWriter.Format layout = switch (format) {
+                case "csv" -> ReportWriter.Format.CSV;
+                case "fixed" -> ReportWriter.Format.FIXED_WIDTH;
+                case "text" -> ReportWriter.Format.TEXT;
+                default -> throw new IllegalArgumentException("Unknown report format " + format);
+            };
+            StringWriter out = new StringWriter();
+            try {
+                roster.exportReport(out, layout);
+            } catch (IOException e) {
+                throw new IllegalStateException(e); // StringWriter does not throw
+            }
+            String type = layout == ReportWriter.Format.CSV ? "text/csv" : "text/plain";
+            return new Response(200, out.toString(), type + "; charset=utf-8");
+        }
+        List<Student> byName = roster.snapshot().byName();
+        GradeStats classStats = new GradeStats();
+        StringBuilder sb = new StringBuilder(64 + byName.size() * 96).append("{\"students\":[");
+        for (int i = 0; i < byName.size(); i++) {
+            Student s = byName.get(i);
+            classStats.addAll(s.getCourses());
+            if (i > 0) sb.append(',');
+            sb.append("{\"id\":");
+            Json.appendString(sb, s.getStudentId()).append(",\"name\":");
+            Json.appendString(sb, s.getName()).append(",\"lastName\":");
+            Json.appendString(sb, s.getLastName());
+            appendSummary(sb, s.getStats()).append('}');
+        }
+        sb.append("],\"class\":{\"students\":").append(byName.size());
+        appendSummary(sb, classStats).append("}}");
+        return Response.json(200, sb.toString());
+    }
+
+    private Response metrics() {
+        StringBuilder sb = new StringBuilder(4096);
+        try {
+            metrics.writePrometheus(sb);
+        } catch (IOException e) {
+            throw new IllegalStateException(e); // StringBuilder does not throw
+        }
+        return new Response(200, sb.toString(), "text/plain; version=0.0.4; charset=utf-8");
+    }
+
+    // Runs each request in order and returns every result; batches cannot nest. A failed request
+    // gets its error as its result and the rest still run, since the ones before it are already applied
+    private Response batch(Object body) {
+        if (!(body instanceof List<?> requests)) {
+            throw new IllegalArgumentException("Batch body must be an array of requests");
+        }
+        StringBuilder sb = new StringBuilder(64 * requests.size() + 16).append("{\"results\":[");
+        for (int i = 0; i < requests.size(); i++) {
+            Response r;
+            try {
+                Map<String, Object> request = object(requests.get(i));
+                String path = text(request, "path");
+                int q = path.indexOf('?');
+                String method = text(request, "method").toUpperCase();
+                String bare = q < 0 ? path : path.substring(0, q);
+                Metrics.Sample sample = metrics.start("batch " + route(method, bare));
+                try {
+                    r = handle(method, bare, query(q < 0 ? null : path.substring(q + 1)), request.get("body"), false);
+                } finally {
+                    sample.stop();
+                }
+            } catch (IllegalArgumentException e) {
+                r = Response.error(400, e.getMessage());
+            } catch (RuntimeException e) {
+                r = Response.error(500, String.valueOf(e));
+            }
+            if (i > 0) sb.append(',');
+            sb.append("{\"status\":").append(r.status()).append(",\"body\":");
+            if (r.body().isEmpty()) {
+                sb.append("null");
+            } else if (r.isJson()) {
+                sb.append(r.body());
+            } else {
+                Json.appendString(sb, r.body());
+            }
+            sb.append('}');
+        }
+        return Response.json(200, sb.append("]}").toString());
+    }
+
+    // The endpoint a request is for, with IDs replaced by placeholders, for metrics
+    private static String route(String method, String path) {
+        StringBuilder sb = new StringBuilder(switch (method) {
+            case "GET", "POST", "PUT", "DELETE" -> method;
+            default -> "OTHER";
+        }).append(' ');
+        int segment = 0;
+        for (String part : path.split("/")) {
+            if (part.isEmpty()) continue;
+            sb.append('/').append(switch (segment++) {
+                case 0 -> part.equals("students") || part.equals("report") || part.equals("batch")
+                        || part.equals("metrics") ? part : "{other}";
+                case 1 -> "{id}";
+                case 2 -> part.equals("courses") ? part : "{other}";
+                default -> "{course}";
+            });
+            if (segment > 4) break;
+        }
+        return segment == 0 ? sb.append('/').toString() : sb.toString();
+    }
+
+    private static StringBuilder appendStudent(StringBuilder sb, Student s) {
+        sb.append("{\"id\":");
+        Json.appendString(sb, s.getStudentId()).append(",\"name\":");
+        Json.appendString(sb, s.getName()).append(",\"lastName\":");
+        Json.appendString(sb, s.getLastName()).append(",\"courses\":[");
+        List<Course> courses = s.getCourses();
+        for (int i = 0; i < courses.size(); i++) {
+            Course c = courses.get(i);
+            if (i > 0) sb.append(',');
+            sb.append("{\"id\":");
+            Json.appendString(sb, c.getCourseId()).append(",\"name\":");
+            Json.appendString(sb, c.getCourseName()).append(",\"grade\":");
+            Json.appendNumber(sb, c.getGrade()).append('}');
+        }
+        sb.append(']');
+        return appendSummary(sb, s.getStats()).append('}');
+    }
+
+    // Highest, average and lowest; all null when there are no grades
+    private static StringBuilder appendSummary(StringBuilder sb, GradeStats stats) {
+        boolean empty = stats.getCount() == 0;
+        sb.append(",\"highest\":");
+        Json.appendNumber(sb, empty ? Double.NaN : stats.getHighest()).append(",\"average\":");
+        Json.appendNumber(sb, empty ? Double.NaN : stats.getAverage()).append(",\"lowest\":");
+        return Json.appendNumber(sb, empty ? Double.NaN : stats.getLowest());
+    }
+
+    private static Response notAllowed() {
+        return Response.error(405, "Method not allowed");
+    }
+
+    private static Course course(Map<String, Object> fields) {
+        return new Course(text(fields, "id"), text(fields, "name"), grade(fields));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> object(Object body) {
+        if (!(body instanceof Map)) {
+            throw new IllegalArgumentException("Expected a JSON object");
+        }
+        return (Map<String, Object>) body;
+    }
+
+    private static String text(Map<String, Object> fields, String key) {
+        String s = optionalText(fields, key);
+        if (s == null || s.isEmpty()) {
+            throw new IllegalArgumentException("\"" + key + "\" is required");
+        }
+        return s;
+    }
+
+    private static String optionalText(Map<String, Object> fields, String key) {
+        Object v = fields.get(key);
+        if (v != null && !(v instanceof String)) {
+            throw new IllegalArgumentException("\"" + key + "\" must be a string");
+        }
+        return (String) v;
+    }
+
+    private static double grade(Map<String, Object> fields) {
+        if (!(fields.get("grade") instanceof Double grade)) {
+            throw new IllegalArgumentException("\"grade\" must be a number");
+        }
+        if (grade < 0 || grade > 100) {
+            throw new IllegalArgumentException("Grade must be 0-100");
+        }
+        return grade;
+    }
+
+    private static Map<String, String> query(String raw) {
+        Map<String, String> params = new HashMap<>();
+        if (raw == null || raw.isEmpty()) {
+            return params;
+        }
+        for (String pair : raw.split("&")) {
+            int eq = pair.indexOf('=');
+            String key = eq < 0 ? pair : pair.substring(0, eq);
+            String value = eq < 0 ? "" : pair.substring(eq + 1);
+            params.put(URLDecoder.decode(key, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return params;
+    }
+}
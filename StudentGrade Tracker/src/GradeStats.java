@@ -0,0 +1,176 @@
+import java.util.List;
+import java.util.TreeMap;
+
+/**
+ * Running grade statistics that are updated as grades are added, changed or removed.
+ * Keeps the count, sum and sum of squares, and the highest and lowest grade.
+ * To keep the highest and lowest correct when a grade is removed, class-wide
+ * statistics keep a sorted count of each grade, while a student's statistics
+ * rescan that student's own (short) course list instead.
+ * Class-wide sums live through many more changes than there are grades, so they
+ * use Neumaier compensation, as ClassReport.Part does, rather than drifting with
+ * every grade taken out; a student's sums are recomputed whenever they rescan.
+ * All read methods run in constant time.
+ */
+public class GradeStats {
+
+    private int count;                 // Number of grades recorded
+    private double sum;                // Sum of all grades
+    private double sumCompensation;    // Low-order bits lost from sum
+    private double sumOfSquares;       // Sum of all grades squared
+    private double squaresCompensation; // Low-order bits lost from sumOfSquares
+    private double highest = 0.0;      // Cached highest grade (0.0 when empty, like GradeCalculator)
+    private double lowest = Double.MAX_VALUE; // Cached lowest grade (MAX_VALUE when empty)
+    private final TreeMap<Double, Integer> grades; // Grade -> how many times it occurs, or null
+    private final List<Course> courses;            // Courses to rescan on removal, or null
+
+    /**
+     * Creates empty statistics that keep their own sorted count of grades.
+     */
+    public GradeStats() {
+        this.grades = new TreeMap<>();
+        this.courses = null;
+    }
+
+    /**
+     * Creates empty statistics over a student's course list.
+     * @param courses The courses to rescan when the highest or lowest grade is removed
+     */
+    GradeStats(List<Course> courses) {
+        this.grades = null;
+        this.courses = courses;
+    }
+
+    /**
+     * Records a new grade.
+     * @param grade The grade to add
+     */
+    void add(double grade) {
+        count++;
+        accumulate(grade, grade * grade);
+        if (grades != null) grades.merge(grade, 1, Integer::sum);
+        if (count == 1 || grade > highest) highest = grade;
+        if (count == 1 || grade < lowest) lowest = grade;
+    }
+
+    /**
+     * Removes a grade that was recorded earlier. A student's statistics are
+     * recomputed from their course list, which must already be without it.
+     * @param grade The grade to remove
+     */
+    void remove(double grade) {
+        if (count == 0) {
+            return;
+        }
+        if (courses != null) {
+            rescan();
+            return;
+        }
+        if (grades != null) {
+            Integer occurrences = grades.get(grade);
+            if (occurrences == null) {
+                return;
+            }
+            if (occurrences == 1) {
+                grades.remove(grade);
+            } else {
+                grades.put(grade, occurrences - 1);
+            }
+        }
+        count--;
+        accumulate(-grade, -grade * grade);
+        if (count == 0) {
+            clear();
+        } else if (grades != null) {
+            highest = grades.lastKey();
+            lowest = grades.firstKey();
+        }
+    }
+
+    // Recomputes every statistic from the student's courses
+    private void rescan() {
+        clear();
+        for (Course c : courses) {
+            add(c.getGrade());
+        }
+    }
+
+    private void clear() {
+        count = 0;
+        sum = 0.0;
+        sumCompensation = 0.0;
+        sumOfSquares = 0.0;
+        squaresCompensation = 0.0;
+        highest = 0.0;
+        lowest = Double.MAX_VALUE;
+    }
+
+    // Adds to both sums (negative amounts take a grade away) with Neumaier compensation
+    private void accumulate(double grade, double square) {
+        double t = sum + grade;
+        sumCompensation += lostBits(sum, grade, t);
+        sum = t;
+        t = sumOfSquares + square;
+        squaresCompensation += lostBits(sumOfSquares, square, t);
+        sumOfSquares = t;
+    }
+
+    // The part of a + b that its rounded total t dropped
+    private static double lostBits(double a, double b, double t) {
+        return Math.abs(a) >= Math.abs(b) ? (a - t) + b : (b - t) + a;
+    }
+
+    /**
+     * Replaces one recorded grade with another. A student's statistics are
+     * recomputed from their course list, which must already hold the new grade.
+     * @param oldGrade The grade being replaced
+     * @param newGrade The new grade
+     */
+    void replace(double oldGrade, double newGrade) {
+        if (courses != null) {
+            rescan();
+            return;
+        }
+        remove(oldGrade);
+        add(newGrade);
+    }
+
+    /**
+     * Removes the grades of a list of courses.
+     * @param removed The courses whose grades are removed
+     */
+    void removeAll(List<Course> removed) {
+        for (Course c : removed) remove(c.getGrade());
+    }
+
+    /**
+     * Adds the grades of a list of courses.
+     * @param added The courses whose grades are added
+     */
+    void addAll(List<Course> added) {
+        for (Course c : added) add(c.getGrade());
+    }
+
+    public int getCount() { return count; }
+
+    public double getSum() { return sum + sumCompensation; }
+
+    public double getSumOfSquares() { return sumOfSquares + squaresCompensation; }
+
+    public double getHighest() { return highest; }
+
+    public double getLowest() { return lowest; }
+
+    /**
+     * @return The average grade, or NaN when there are no grades
+     */
+    public double getAverage() { return getSum() / count; }
+
+    /**
+     * @return The population variance of the grades, or NaN when there are no grades
+     */
+    public double getVariance() {
+        double mean = getAverage();
+        return Math.max(0.0, getSumOfSquares() / count - mean * mean);
+    }
+}
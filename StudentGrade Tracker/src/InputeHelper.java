@@ -1,10 +1,88 @@
-import java.util.Scanner;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.util.NoSuchElementException;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * Helper class for input validation and handling.
+ *
+ * This is the only reader of System.in: the menu and every prompt share one
+ * buffered reader, so piped input is never split between two buffers. Numbers are
+ * parsed by hand, without exceptions for invalid input. After useBufferedOutput,
+ * System.out is buffered and flushed just before each read, so a prompt appears
+ * before the program waits; in script mode prompts are not printed and output is
+ * only flushed when the buffer fills, so a piped session runs at the speed of the
+ * pipe. Reading past the end of input throws NoSuchElementException.
+ * A lock given to releaseWhileReading is let go while waiting for a line, so a
+ * background task that needs it is not held up by someone typing.
  */
 class InputeHelper {
-    private static final Scanner scanner = new Scanner(System.in);
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final double[] POWERS_OF_TEN = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+        1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    private static final BufferedReader in = new BufferedReader(new InputStreamReader(System.in), BUFFER_SIZE);
+    private static boolean script; // No prompts, no flush before reads
+    private static ReentrantLock released; // Let go of while waiting for input, or null
+
+    /**
+     * Replaces System.out with a buffered stream.
+     * Call System.out.flush() before exiting so the last output is written.
+     * @param scriptMode true to stop printing prompts and flushing before reads
+     */
+    static void useBufferedOutput(boolean scriptMode) {
+        script = scriptMode;
+        PrintStream console = System.out;
+        System.setOut(new PrintStream(new BufferedOutputStream(new FileOutputStream(FileDescriptor.out), BUFFER_SIZE),
+                false, console.charset()));
+    }
+
+    /**
+     * Lets go of a lock while waiting for input and takes it back before returning,
+     * whenever the reading thread holds it.
+     * @param lock The lock
+     */
+    static void releaseWhileReading(ReentrantLock lock) {
+        released = lock;
+    }
+
+    /**
+     * @return true if prompts and menus are not being printed
+     */
+    static boolean isScriptMode() {
+        return script;
+    }
+
+    /**
+     * Reads one line of input, flushing pending output first unless in script mode.
+     * @return The line, without its line terminator
+     * @throws NoSuchElementException At the end of input
+     */
+    static String readLine() {
+        if (!script) System.out.flush();
+        ReentrantLock lock = released;
+        int holds = lock != null ? lock.getHoldCount() : 0;
+        for (int i = 0; i < holds; i++) lock.unlock();
+        try {
+            String line = in.readLine();
+            if (line == null) {
+                throw new NoSuchElementException("No line found");
+            }
+            return line;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            for (int i = 0; i < holds; i++) lock.lock();
+        }
+    }
 
     /**
      * Gets a valid integer input from the user.
@@ -13,12 +91,12 @@ class InputeHelper {
      */
     public static int getInt(String prompt) {
         while (true) {
-            try {
-                System.out.print(prompt + " ");
-                return Integer.parseInt(scanner.nextLine());
-            } catch (NumberFormatException e) {
-                System.out.println("Invalid input! Please enter a whole number.");
+            prompt(prompt);
+            long value = parseInt(readLine());
+            if (value != Long.MIN_VALUE) {
+                return (int) value;
             }
+            System.out.println("Invalid input! Please enter a whole number.");
         }
     }
 
@@ -29,15 +107,14 @@ class InputeHelper {
      */
     public static double getGrade(String prompt) {
         while (true) {
-            try {
-                System.out.print(prompt + " ");
-                double grade = Double.parseDouble(scanner.nextLine());
-                if (grade >= 0 && grade <= 100) {
-                    return grade;
-                }
-                System.out.println("Grade must be between 0 and 100!");
-            } catch (NumberFormatException e) {
+            prompt(prompt);
+            double grade = parseDouble(readLine());
+            if (Double.isNaN(grade)) {
                 System.out.println("Invalid input! Please enter a number.");
+            } else if (grade >= 0 && grade <= 100) {
+                return grade;
+            } else {
+                System.out.println("Grade must be between 0 and 100!");
             }
         }
     }
@@ -48,7 +125,85 @@ class InputeHelper {
      * @return User input string
      */
     public static String getString(String prompt) {
-        System.out.print(prompt + " ");
-        return scanner.nextLine();
+        prompt(prompt);
+        return readLine();
+    }
+
+    private static void prompt(String prompt) {
+        if (!script) System.out.print(prompt + " ");
+    }
+
+    /**
+     * Parses a whole number such as "42" or "-7", ignoring surrounding whitespace.
+     * @param s The text to parse
+     * @return The number, or Long.MIN_VALUE if the text is not an int
+     */
+    static long parseInt(String s) {
+        int i = 0, end = s.length();
+        while (i < end && Character.isWhitespace(s.charAt(i))) i++;
+        while (end > i && Character.isWhitespace(s.charAt(end - 1))) end--;
+        boolean negative = i < end && s.charAt(i) == '-';
+        if (i < end && (negative || s.charAt(i) == '+')) i++;
+        if (i == end || end - i > 10) {
+            return Long.MIN_VALUE;
+        }
+        long value = 0;
+        for (; i < end; i++) {
+            int digit = s.charAt(i) - '0';
+            if (digit < 0 || digit > 9) {
+                return Long.MIN_VALUE;
+            }
+            value = value * 10 + digit;
+        }
+        value = negative ? -value : value;
+        return value < Integer.MIN_VALUE || value > Integer.MAX_VALUE ? Long.MIN_VALUE : value;
+    }
+
+    /**
+     * Parses a decimal number such as "87.5", ignoring surrounding whitespace.
+     * Plain decimals of up to 15 significant digits are converted directly, with
+     * the same result as Double.parseDouble; exponents and longer numbers are
+     * handed to Double.parseDouble.
+     * @param s The text to parse
+     * @return The number, or NaN if the text is not a number
+     */
+    static double parseDouble(String s) {
+        int i = 0, end = s.length();
+        while (i < end && Character.isWhitespace(s.charAt(i))) i++;
+        while (end > i && Character.isWhitespace(s.charAt(end - 1))) end--;
+        boolean negative = i < end && s.charAt(i) == '-';
+        if (i < end && (negative || s.charAt(i) == '+')) i++;
+        long mantissa = 0;
+        int seen = 0, significant = 0, scale = 0;
+        boolean point = false;
+        for (; i < end; i++) {
+            char c = s.charAt(i);
+            if (c >= '0' && c <= '9') {
+                seen++;
+                if (mantissa != 0 || c != '0') significant++;
+                mantissa = mantissa * 10 + (c - '0');
+                if (point) scale++;
+            } else if (c == '.' && !point) {
+                point = true;
+            } else {
+                break;
+            }
+        }
+        if (seen == 0) {
+            return Double.NaN;
+        }
+        if (i == end && significant <= 15 && scale < POWERS_OF_TEN.length) {
+            // Both operands are exact doubles, so one division rounds correctly
+            double value = mantissa / POWERS_OF_TEN[scale];
+            return negative ? -value : value;
+        }
+        if (i < end && s.charAt(i) != 'e' && s.charAt(i) != 'E') {
+            return Double.NaN;
+        }
+        try {
+            return Double.parseDouble(s);
+        } catch (NumberFormatException e) { // e.g. "1e" with no exponent
+            return Double.NaN;
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,155 @@
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * A StudentManager that times its operations.
+ *
+ * Lookups, adds and removes, searches (including as-of searches), reports and
+ * every load and save are recorded in a Metrics registry by operation name,
+ * along with gauges for the number of students, the change sequence, the report
+ * cache and the heap. Behaviour is otherwise exactly that of StudentManager.
+ */
+public class InstrumentedStudentManager extends StudentManager {
+    private static final long serialVersionUID = 1L;
+
+    private final transient Metrics metrics = new Metrics("studentgrade");
+
+    private InstrumentedStudentManager() {
+    }
+
+    /**
+     * Creates an empty manager with its gauges registered. The gauges read the
+     * manager, so they are added once it is fully constructed.
+     * @return The new manager
+     */
+    public static InstrumentedStudentManager create() {
+        InstrumentedStudentManager manager = new InstrumentedStudentManager();
+        Metrics metrics = manager.metrics;
+        metrics.gauge("students", "Students in the roster", manager::getStudentCount);
+        metrics.gauge("change_sequence", "Number of the latest change", manager::getChangeSequence);
+        metrics.gauge("report_cache_hits", "searchStudent reports served from the cache", () -> manager.getReportCache().getHits());
+        metrics.gauge("report_cache_misses", "searchStudent reports rendered", () -> manager.getReportCache().getMisses());
+        metrics.gauge("report_cache_evictions", "Reports dropped to stay within the cache size", () -> manager.getReportCache().getEvictions());
+        metrics.addHeapGauges();
+        return manager;
+    }
+
+    /**
+     * @return The registry holding this manager's metrics
+     */
+    public Metrics getMetrics() {
+        return metrics;
+    }
+
+    @Override
+    public Student getStudent(String studentId) {
+        Metrics.Sample sample = metrics.start("getStudent");
+        try {
+            Student s = super.getStudent(studentId);
+            if (s == null) metrics.increment("lookup_misses");
+            return s;
+        } finally {
+            sample.stop();
+        }
+    }
+
+    @Override
+    public boolean registerStudent(Student student) {
+        Metrics.Sample sample = metrics.start("registerStudent");
+        try {
+            return super.registerStudent(student);
+        } finally {
+            sample.stop();
+        }
+    }
+
+    @Override
+    public boolean removeStudent(String studentId) {
+        Metrics.Sample sample = metrics.start("removeStudent");
+        try {
+            return super.removeStudent(studentId);
+        } finally {
+            sample.stop();
+        }
+    }
+
+    @Override
+    public void searchStudent(String studentId) {
+        Metrics.Sample sample = metrics.start("searchStudent");
+        try {
+            super.searchStudent(studentId);
+        } finally {
+            sample.stop();
+        }
+    }
+
+    @Override
+    public boolean searchStudent(String studentId, long asOf) {
+        Metrics.Sample sample = metrics.start("searchStudent.asOf");
+        try {
+            return super.searchStudent(studentId, asOf);
+        } finally {
+            sample.stop();
+        }
+    }
+
+    @Override
+    public void studentReport(boolean parallel) {
+        Metrics.Sample sample = metrics.start(parallel ? "studentReport.parallel" : "studentReport");
+        try {
+            super.studentReport(parallel);
+        } finally {
+            sample.stop();
+        }
+    }
+
+    @Override
+    public void studentReport(boolean parallel, long asOf) {
+        Metrics.Sample sample = metrics.start(parallel ? "studentReport.parallel.asOf" : "studentReport.asOf");
+        try {
+            super.studentReport(parallel, asOf);
+        } finally {
+            sample.stop();
+        }
+    }
+
+    @Override
+    public void exportReport(Writer out, ReportWriter.Format format) throws IOException {
+        Metrics.Sample sample = metrics.start("exportReport");
+        try {
+            super.exportReport(out, format);
+        } finally {
+            sample.stop();
+        }
+    }
+
+    @Override
+    public void saveToFile(String filename) throws IOException {
+        Metrics.Sample sample = metrics.start("saveToFile");
+        try {
+            super.saveToFile(filename);
+        } finally {
+            sample.stop();
+        }
+    }
+
+    @Override
+    public void loadFromFile(String filename) throws IOException, ClassNotFoundException {
+        Metrics.Sample sample = metrics.start("loadFromFile");
+        try {
+            super.loadFromFile(filename);
+        } finally {
+            sample.stop();
+        }
+    }
+
+    @Override
+    public void mapFromFile(String filename) throws IOException, ClassNotFoundException {
+        Metrics.Sample sample = metrics.start("mapFromFile");
+        try {
+            super.mapFromFile(filename);
+        } finally {
+            sample.stop();
+        }
+    }
+}
@@ -0,0 +1,437 @@
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Objects;
+import java.util.function.Supplier;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only write-ahead log of changes made to a StudentManager, or to the
+ * ConcurrentStudentManager the server works on.
+ *
+ * The journal lives next to the database file or shard directory (Database.txt.log)
+ * and records every add/remove student, add course, course/student update and
+ * course rename as it happens. Entries are written immediately and fsync'd in
+ * batches, so saving only has to flush the last batch. Once the log grows past a
+ * threshold, compact() folds it into a new snapshot of the database and empties it.
+ *
+ * Compaction can run in the background: the log is rotated to Database.txt.log.1,
+ * a copy of the roster taken after the rotation is written to the snapshot on a
+ * Snapshotter thread, and the old segment is deleted once the snapshot is in
+ * place. Until then both segments are replayed on startup; entries already in the
+ * snapshot are skipped by sequence. Appending, syncing and rotating lock the
+ * journal, so a roster may keep changing on other threads meanwhile.
+ *
+ * Once a write fails, later entries are not written, since the log would have a
+ * hole in it: sync() and close() throw the error every time, until compact()
+ * moves the log aside and writes a snapshot that holds every change.
+ *
+ * Entry layout: int length, long change sequence, byte type, fields, int CRC32.
+ * On startup open() replays every entry newer than the snapshot's change sequence,
+ * and drops a torn entry left by a crash at the end of the log. Changes are
+ * numbered one by one, so an entry further ahead than the next number means
+ * changes are missing, and replay stops there with an error.
+ */
+public class Journal implements RosterListener, Closeable {
+
+    private static final int SYNC_BATCH = 32;                // fsync after this many entries
+    private static final long COMPACT_THRESHOLD = 4L << 20;  // compact once the log passes 4 MB
+
+    private static final byte ADD_STUDENT = 1;
+    private static final byte REMOVE_STUDENT = 2;
+    private static final byte UPDATE_STUDENT = 3;
+    private static final byte ADD_COURSE = 4;
+    private static final byte UPDATE_COURSE = 5;
+    private static final byte RENAME_COURSE = 6;
+
+    private final Roster roster;
+    private final StudentManager manager; // Replayed into on open; null when recording a roster that is not replayed
+    private final Supplier<RosterWrite> copies; // Takes a copy of the roster for compaction
+    private final Path snapshot;
+    private final Path log;
+    private final Path previous;   // Rotated segment, kept until the snapshot covering it is written
+    private final Snapshotter snapshotter = new Snapshotter("journal-compaction");
+    private FileChannel channel;
+    private int unsynced;          // Entries written since the last fsync
+    private int replayed;          // Entries applied by open()
+    private IOException failure;   // First write error on the current log; nothing is written after it
+
+    // A copy of the roster, written to the snapshot later on the compaction thread
+    private interface RosterWrite {
+        void writeTo(Path path) throws IOException;
+    }
+
+    private Journal(Roster roster, StudentManager manager, Supplier<RosterWrite> copies, Path snapshot, Path log)
+            throws IOException {
+        this.roster = roster;
+        this.manager = manager;
+        this.copies = copies;
+        this.snapshot = snapshot;
+        this.log = log;
+        this.previous = Paths.get(log + ".1");
+        this.replayed = replay(previous) + replay(log);
+        this.channel = openLog();
+    }
+
+    /**
+     * Replays the journal of a database into a manager that already holds the snapshot,
+     * then starts recording the manager's changes.
+     * @param filename The database file; the journal is this name plus ".log"
+     * @param manager The manager to replay into and record
+     * @return The open journal
+     * @throws IOException If the journal cannot be read or opened
+     */
+    public static Journal open(String filename, StudentManager manager) throws IOException {
+        Journal journal = new Journal(manager, manager, () -> {
+            StudentManager.Snapshot taken = manager.snapshot();
+            return path -> ShardedRoster.writeSnapshot(path, taken.copyStudents(), taken.getSequence());
+        }, Paths.get(filename), Paths.get(filename + ".log"));
+        manager.addListener(journal);
+        return journal;
+    }
+
+    /**
+     * Starts recording the changes of a roster loaded from a database, such as the
+     * one the server works on. Nothing is replayed, so the journal must hold no
+     * change newer than the database: open it with a StudentManager and compact
+     * it first.
+     * @param filename The database file; the journal is this name plus ".log"
+     * @param roster The roster to record, loaded from that database
+     * @return The open journal
+     * @throws IOException If the journal cannot be read or opened, or has changes the database does not
+     */
+    public static Journal record(String filename, ConcurrentStudentManager roster) throws IOException {
+        Journal journal = new Journal(roster, null, () -> {
+            ConcurrentStudentManager.Snapshot taken = roster.snapshot();
+            return path -> ShardedRoster.writeSnapshot(path, taken.students(), taken.sequence());
+        }, Paths.get(filename), Paths.get(filename + ".log"));
+        roster.addListener(journal);
+        return journal;
+    }
+
+    /**
+     * @return The number of entries recovered from the log when it was opened
+     */
+    public int getReplayedCount() {
+        return replayed;
+    }
+
+    /**
+     * Forces every written entry to disk.
+     * @throws IOException If the fsync failed, or an earlier write failed and the log has not been compacted since
+     */
+    public synchronized void sync() throws IOException {
+        if (failure != null) {
+            throw new IOException("Journal stopped after a write error; changes since are only in memory until it is"
+                    + " compacted: " + failure, failure);
+        }
+        channel.force(false);
+        unsynced = 0;
+    }
+
+    /**
+     * @return true if a write failed and later changes are missing from the log; compact() recovers
+     */
+    public synchronized boolean hasFailed() {
+        return failure != null;
+    }
+
+    /**
+     * @return true once the log is big enough that it should be folded into the snapshot
+     * @throws IOException If the log size cannot be read
+     */
+    public synchronized boolean needsCompaction() throws IOException {
+        return channel.size() >= COMPACT_THRESHOLD;
+    }
+
+    /**
+     * Writes a new snapshot of the roster and empties the log, waiting for the write.
+     * After a failed write this is how the journal recovers: the log with the hole
+     * is moved aside, and only replaced once the snapshot holding every change is
+     * in place.
+     * @throws IOException If an I/O error occurs
+     */
+    public void compact() throws IOException {
+        compactInBackground();
+        snapshotter.awaitInFlight();
+    }
+
+    /**
+     * Starts writing a new snapshot of the roster on a background thread and empties the log.
+     * The caller only waits for the log to be rotated and a snapshot of the roster to be taken
+     * (see StudentManager.snapshot and ConcurrentStudentManager.snapshot). The snapshot is
+     * taken after the rotation, so it holds every change in the rotated segment, and changes
+     * made meanwhile land in the new log, where replay skips the ones the snapshot already has.
+     * The snapshot is written to a temporary file and
+     * renamed over the old one, and it records the change sequence, so a crash at any point
+     * leaves either the old snapshot and both log segments or the new snapshot.
+     * A compaction still in flight is waited for first.
+     * @throws IOException If the previous compaction or the log rotation failed
+     */
+    public void compactInBackground() throws IOException {
+        snapshotter.awaitInFlight();
+        if (!hasFailed()) sync();
+        if (Files.exists(previous)) {
+            // Left by a crash before its snapshot was written: fold it in before rotating over it
+            copies.get().writeTo(snapshot);
+            Files.delete(previous);
+        }
+        rotate();
+
+        RosterWrite taken = copies.get();
+        snapshotter.submit(() -> {
+            taken.writeTo(snapshot);
+            Files.deleteIfExists(previous);
+        });
+    }
+
+    // Moves the log to the previous segment and starts a new one. A write error stays with the old
+    // segment: the snapshot taken next holds every change before the new log, so the new one has no hole
+    private synchronized void rotate() throws IOException {
+        if (failure == null) channel.force(true);
+        channel.close();
+        Files.move(log, previous, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        channel = openLog();
+        failure = null;
+        unsynced = 0;
+    }
+
+    /**
+     * @return true while a background compaction is writing its snapshot
+     */
+    public boolean isCompacting() {
+        return snapshotter.isWriting();
+    }
+
+    /**
+     * Flushes the log, waits for a compaction in flight and stops recording changes.
+     * @throws IOException If an I/O error occurs
+     */
+    @Override
+    public void close() throws IOException {
+        roster.removeListener(this);
+        try {
+            sync();
+        } finally {
+            try {
+                snapshotter.close();
+            } finally {
+                synchronized (this) {
+                    channel.close();
+                }
+            }
+        }
+    }
+
+    private FileChannel openLog() throws IOException {
+        return FileChannel.open(log, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    @Override
+    public void studentAdded(Student student) {
+        append(ADD_STUDENT, out -> {
+            writeString(out, student.getStudentId());
+            writeString(out, student.getName());
+            writeString(out, student.getLastName());
+            out.writeInt(student.getCourses().size());
+            for (Course c : student.getCourses()) {
+                writeString(out, c.getCourseId());
+                writeString(out, c.getCourseName());
+                out.writeDouble(c.getGrade());
+            }
+        });
+    }
+
+    @Override
+    public void studentRemoved(Student student) {
+        append(REMOVE_STUDENT, out -> writeString(out, student.getStudentId()));
+    }
+
+    @Override
+    public void studentUpdated(Student student, String oldId) {
+        append(UPDATE_STUDENT, out -> {
+            writeString(out, oldId);
+            writeString(out, student.getStudentId());
+            writeString(out, student.getName());
+            writeString(out, student.getLastName());
+        });
+    }
+
+    @Override
+    public void courseAdded(Student student, Course course) {
+        append(ADD_COURSE, out -> {
+            writeString(out, student.getStudentId());
+            writeString(out, course.getCourseId());
+            writeString(out, course.getCourseName());
+            out.writeDouble(course.getGrade());
+        });
+    }
+
+    @Override
+    public void courseUpdated(Student student, Course course, String oldId, double oldGrade) {
+        append(UPDATE_COURSE, out -> {
+            writeString(out, student.getStudentId());
+            writeString(out, oldId);
+            writeString(out, course.getCourseId());
+            writeString(out, course.getCourseName());
+            out.writeDouble(course.getGrade());
+        });
+    }
+
+    @Override
+    public void courseRenamed(String courseId, String courseName) {
+        append(RENAME_COURSE, out -> {
+            writeString(out, courseId);
+            writeString(out, courseName);
+        });
+    }
+
+    // Writes the fields of one entry
+    private interface EntryWriter {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    private synchronized void append(byte type, EntryWriter fields) {
+        if (failure != null) {
+            return;
+        }
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(0); // length, filled in below
+            out.writeLong(roster.getChangeSequence());
+            out.writeByte(type);
+            fields.write(out);
+            out.writeInt(0); // checksum, filled in below
+
+            ByteBuffer entry = ByteBuffer.wrap(bytes.toByteArray());
+            int length = entry.capacity() - 8;
+            entry.putInt(0, length);
+            CRC32 crc = new CRC32();
+            crc.update(entry.array(), 4, length);
+            entry.putInt(4 + length, (int) crc.getValue());
+            while (entry.hasRemaining()) channel.write(entry);
+
+            if (++unsynced >= SYNC_BATCH) {
+                channel.force(false);
+                unsynced = 0;
+            }
+        } catch (IOException e) {
+            failure = e;
+        }
+    }
+
+    // Applies every complete entry of a segment newer than the roster's change sequence and cuts off a torn tail;
+    // with no manager to apply them to, newer entries are an error
+    private int replay(Path log) throws IOException {
+        if (!Files.exists(log)) {
+            return 0;
+        }
+        long size = Files.size(log);
+        long good = 0;
+        int applied = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(log)))) {
+            while (good < size) {
+                int length = in.readInt();
+                if (length < 9 || good + 8 + length > size) break;
+                byte[] body = new byte[length];
+                in.readFully(body);
+                CRC32 crc = new CRC32();
+                crc.update(body);
+                if (in.readInt() != (int) crc.getValue()) break;
+
+                DataInputStream entry = new DataInputStream(new ByteArrayInputStream(body));
+                long sequence = entry.readLong();
+                byte type = entry.readByte();
+                if (sequence > roster.getChangeSequence()) {
+                    if (manager == null) {
+                        throw new IOException(log + " has changes newer than the database");
+                    }
+                    if (sequence != roster.getChangeSequence() + 1) {
+                        throw new IOException(log + " is missing changes after " + roster.getChangeSequence()
+                                + " (next entry is " + sequence + "); recovered up to change " + roster.getChangeSequence());
+                    }
+                    apply(type, entry);
+                    manager.setChangeSequence(sequence);
+                    applied++;
+                }
+                good += 8 + length;
+            }
+        } catch (EOFException e) {
+            // torn entry at the end of the log, dropped below
+        }
+        if (good < size) {
+            try (FileChannel truncate = FileChannel.open(log, StandardOpenOption.WRITE)) {
+                truncate.truncate(good);
+            }
+        }
+        return applied;
+    }
+
+    private void apply(byte type, DataInputStream in) throws IOException {
+        switch (type) {
+            case ADD_STUDENT -> {
+                String id = readString(in);
+                String name = readString(in);
+                String lastName = readString(in);
+                Student s = new Student(name, lastName, id);
+                int courses = in.readInt();
+                for (int i = 0; i < courses; i++) {
+                    s.addCourses(new Course(readString(in), readString(in), in.readDouble()));
+                }
+                manager.registerStudent(s);
+            }
+            case REMOVE_STUDENT -> manager.removeStudent(readString(in));
+            case UPDATE_STUDENT -> {
+                Student s = manager.getStudent(readString(in));
+                String id = readString(in);
+                String name = readString(in);
+                String lastName = readString(in);
+                if (s == null) return;
+                if (!s.getStudentId().equals(id)) s.setStudentId(id);
+                if (!Objects.equals(s.getName(), name)) s.setName(name);
+                if (!Objects.equals(s.getLastName(), lastName)) s.setLastName(lastName);
+            }
+            case ADD_COURSE -> {
+                Student s = manager.getStudent(readString(in));
+                Course c = new Course(readString(in), readString(in), in.readDouble());
+                if (s != null) s.addCourses(c);
+            }
+            case UPDATE_COURSE -> {
+                Student s = manager.getStudent(readString(in));
+                String oldId = readString(in);
+                String id = readString(in);
+                String name = readString(in);
+                double grade = in.readDouble();
+                Course c = s == null ? null : s.getCourse(oldId);
+                if (c == null) return;
+                if (!Objects.equals(c.getCourseName(), name)) c.setCourseName(name);
+                if (!c.getCourseId().equals(id)) c.setCourseId(id);
+                if (Double.compare(c.getGrade(), grade) != 0) c.setGrade(grade);
+            }
+            case RENAME_COURSE -> manager.renameCourse(readString(in), readString(in));
+            default -> throw new IOException("Unknown journal entry type " + type);
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        out.writeBoolean(s != null);
+        if (s != null) out.writeUTF(s);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+}
@@ -0,0 +1,102 @@
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histogram of latencies in nanoseconds with a fixed relative precision, in the
+ * style of HdrHistogram.
+ *
+ * Values below 128 ns get a bucket each. Above that, every power-of-two range is
+ * split into 64 equal buckets, so a recorded value is off by at most 1/64 (about
+ * 1.6%) whatever its size. Recording is a few shifts and one atomic increment,
+ * with no allocation, and is safe from any number of threads. Values above about
+ * 18 minutes are counted in the top bucket.
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BITS = 6;                 // 64 buckets per power of two
+    private static final int SUB_COUNT = 1 << SUB_BITS;
+    private static final int LINEAR = SUB_COUNT * 2;       // Values below this get a bucket each
+    private static final int MAX_BIT = 40;                 // Largest tracked value is just under 2^40 ns
+    private static final int BUCKETS = LINEAR + (MAX_BIT - SUB_BITS - 1) * SUB_COUNT;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder total = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Records one latency.
+     * @param nanos The latency in nanoseconds; negative values count as 0
+     */
+    public void record(long nanos) {
+        long v = Math.max(0, nanos);
+        counts.incrementAndGet(bucketOf(v));
+        total.increment();
+        sum.add(v);
+        if (v > max.get()) max.accumulateAndGet(v, Math::max);
+    }
+
+    /**
+     * @return The number of recorded latencies
+     */
+    public long getCount() { return total.sum(); }
+
+    /**
+     * @return The sum of every recorded latency, in nanoseconds
+     */
+    public long getSum() { return sum.sum(); }
+
+    /**
+     * @return The largest recorded latency, in nanoseconds
+     */
+    public long getMax() { return max.get(); }
+
+    /**
+     * Gets the latency below which a given share of the recorded latencies fall.
+     * The answer is the top of the bucket holding that latency, capped at the maximum.
+     * @param percentile From 0 to 100
+     * @return The latency in nanoseconds, or 0 if nothing was recorded
+     */
+    public long getValueAtPercentile(double percentile) {
+        long[] snapshot = new long[BUCKETS];
+        long n = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = counts.get(i);
+            n += snapshot[i];
+        }
+        if (n == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * n));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) {
+                return Math.min(highestValueIn(i), getMax());
+            }
+        }
+        return getMax();
+    }
+
+    static int bucketOf(long v) {
+        if (v < LINEAR) {
+            return (int) v;
+        }
+        int msb = 63 - Long.numberOfLeadingZeros(v);
+        if (msb >= MAX_BIT) {
+            return BUCKETS - 1;
+        }
+        int shift = msb - SUB_BITS;
+        return LINEAR + (shift - 1) * SUB_COUNT + (int) ((v >>> shift) - SUB_COUNT);
+    }
+
+    static long highestValueIn(int bucket) {
+        if (bucket < LINEAR) {
+            return bucket;
+        }
+        int shift = (bucket - LINEAR) / SUB_COUNT + 1;
+        long mantissa = (bucket - LINEAR) % SUB_COUNT + SUB_COUNT;
+        return ((mantissa + 1) << shift) - 1;
+    }
+}
@@ -0,0 +1,229 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Read-only, memory-mapped view of a RosterFile database.
+ *
+ * Opening the file only reads the header and course table and walks the record
+ * headers to build a compact offset index by student ID (an open-addressing table
+ * of record numbers plus one offset and one hash per record, with no String or
+ * Student objects). Students are decoded from the mapping only when take() or
+ * takeAll() asks for them, and each record is handed out at most once; after
+ * that StudentManager owns the object.
+ */
+final class MappedRoster {
+
+    private static final long SEGMENT_SIZE = 1L << 30; // Files are mapped in 1 GB pieces
+
+    private final MappedByteBuffer[] segments;
+    private final long sequence;      // Change sequence stored in the header
+    private final CourseCatalog catalog; // Catalog the courses are looked up in
+    private final CourseCatalog.Entry[] courses; // Course table, from version 3
+    private final String[] strings;   // String table of course IDs and names, before version 3
+    private final int courseSize;     // Bytes per course in a record
+    private final long[] offsets;     // Record number -> file offset of its length field
+    private final int[] hashes;       // Record number -> hash of the student ID bytes
+    private final int[] slots;        // Hash table of record number + 1, 0 when empty
+    private final BitSet taken;       // Records already handed to StudentManager
+    private int remaining;            // Records not yet taken
+
+    private MappedRoster(FileChannel channel, CourseCatalog catalog) throws IOException {
+        this.catalog = catalog;
+        long size = channel.size();
+        segments = new MappedByteBuffer[(int) ((size + SEGMENT_SIZE - 1) / SEGMENT_SIZE)];
+        for (int i = 0; i < segments.length; i++) {
+            long start = i * SEGMENT_SIZE;
+            segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(SEGMENT_SIZE, size - start));
+        }
+
+        long pos = 0;
+        if (getInt(pos) != RosterFile.MAGIC) {
+            throw new IOException("Not a student grade tracker database");
+        }
+        short version = (short) ((get(pos + 4) << 8) | (get(pos + 5) & 0xFF));
+        if (version > RosterFile.VERSION) {
+            throw new IOException("Unsupported database version " + version);
+        }
+        pos += 6;
+        if (version >= 2) {
+            sequence = ((long) getInt(pos) << 32) | (getInt(pos + 4) & 0xFFFFFFFFL);
+            pos += 8;
+        } else {
+            sequence = 0;
+        }
+
+        int tableSize = getInt(pos);
+        pos += 4;
+        String[] table = new String[version >= 3 ? tableSize * 2 : tableSize];
+        for (int i = 0; i < table.length; i++) {
+            int length = getInt(pos);
+            table[i] = length < 0 ? null : new String(bytes(pos + 4, length), StandardCharsets.UTF_8);
+            pos += 4 + Math.max(0, length);
+        }
+        if (version >= 3) {
+            courses = new CourseCatalog.Entry[tableSize];
+            for (int i = 0; i < tableSize; i++) {
+                courses[i] = catalog.intern(table[2 * i], table[2 * i + 1]);
+            }
+            strings = null;
+            courseSize = 12;
+        } else {
+            courses = null;
+            strings = table;
+            courseSize = 16;
+        }
+
+        int count = getInt(pos);
+        pos += 4;
+        offsets = new long[count];
+        hashes = new int[count];
+        slots = new int[Integer.highestOneBit(count + count / 3 + 1) << 1]; // load factor at most 3/4
+        for (int i = 0; i < count; i++) {
+            offsets[i] = pos;
+            int length = getInt(pos);
+            int idLength = getInt(pos + 4);
+            hashes[i] = hash(pos + 8, idLength);
+            int slot = hashes[i] & (slots.length - 1);
+            while (slots[slot] != 0) slot = (slot + 1) & (slots.length - 1);
+            slots[slot] = i + 1;
+            pos += 4 + length;
+        }
+        taken = new BitSet(count);
+        remaining = count;
+    }
+
+    /**
+     * Maps a database file and indexes its records.
+     * @param path The RosterFile to open
+     * @param catalog The catalog to look the courses up in
+     * @return The mapped roster
+     * @throws IOException If the file cannot be mapped or is not in the RosterFile format
+     */
+    static MappedRoster open(Path path, CourseCatalog catalog) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return new MappedRoster(channel, catalog); // the mapping stays valid after the channel closes
+        }
+    }
+
+    long getSequence() { return sequence; }
+
+    /**
+     * @return The number of records not yet taken
+     */
+    int remaining() { return remaining; }
+
+    /**
+     * Checks for a record that has not been taken yet.
+     * @param studentId The student ID to look for
+     * @return true if take(studentId) would return a student
+     */
+    boolean contains(String studentId) {
+        return find(studentId) >= 0;
+    }
+
+    /**
+     * Decodes a student and marks its record as taken.
+     * @param studentId The student ID to look for
+     * @return The student, or null if there is no such record or it was already taken
+     */
+    Student take(String studentId) {
+        int record = find(studentId);
+        return record < 0 ? null : decode(record);
+    }
+
+    /**
+     * Decodes every record not taken yet, in file order.
+     * @return The remaining students
+     */
+    List<Student> takeAll() {
+        List<Student> students = new ArrayList<>(remaining);
+        for (int i = taken.nextClearBit(0); i < offsets.length; i = taken.nextClearBit(i + 1)) {
+            students.add(decode(i));
+        }
+        return students;
+    }
+
+    private int find(String studentId) {
+        if (studentId == null) return -1;
+        byte[] id = studentId.getBytes(StandardCharsets.UTF_8);
+        int h = hash(id);
+        for (int slot = h & (slots.length - 1); slots[slot] != 0; slot = (slot + 1) & (slots.length - 1)) {
+            int record = slots[slot] - 1;
+            if (hashes[record] == h && !taken.get(record)
+                    && getInt(offsets[record] + 4) == id.length
+                    && Arrays.equals(bytes(offsets[record] + 8, id.length), id)) {
+                return record;
+            }
+        }
+        return -1;
+    }
+
+    private Student decode(int record) {
+        long pos = offsets[record] + 4;
+        String[] fields = new String[3];
+        for (int i = 0; i < 3; i++) {
+            int length = getInt(pos);
+            fields[i] = length < 0 ? null : new String(bytes(pos + 4, length), StandardCharsets.UTF_8);
+            pos += 4 + Math.max(0, length);
+        }
+        Student student = new Student(fields[1], fields[2], fields[0]);
+        int count = getInt(pos);
+        pos += 4;
+        for (int i = 0; i < count; i++, pos += courseSize) {
+            long at = pos + courseSize - 8;
+            double grade = Double.longBitsToDouble(((long) getInt(at) << 32) | (getInt(at + 4) & 0xFFFFFFFFL));
+            CourseCatalog.Entry course = courses != null ? courses[getInt(pos)]
+                    : catalog.intern(strings[getInt(pos)], strings[getInt(pos + 4)]);
+            student.addCourses(new Course(course, grade));
+        }
+        taken.set(record);
+        remaining--;
+        return student;
+    }
+
+    // FNV-1a over the UTF-8 bytes of an ID, computed the same way on disk and in memory
+    private int hash(long pos, int length) {
+        int h = 0x811C9DC5;
+        for (int i = 0; i < length; i++) h = (h ^ (get(pos + i) & 0xFF)) * 0x01000193;
+        return h;
+    }
+
+    private static int hash(byte[] b) {
+        int h = 0x811C9DC5;
+        for (byte x : b) h = (h ^ (x & 0xFF)) * 0x01000193;
+        return h;
+    }
+
+    private byte get(long pos) {
+        return segments[(int) (pos / SEGMENT_SIZE)].get((int) (pos % SEGMENT_SIZE));
+    }
+
+    private int getInt(long pos) {
+        ByteBuffer segment = segments[(int) (pos / SEGMENT_SIZE)];
+        int at = (int) (pos % SEGMENT_SIZE);
+        if (at + 4 <= segment.limit()) return segment.getInt(at);
+        return (get(pos) << 24) | ((get(pos + 1) & 0xFF) << 16) | ((get(pos + 2) & 0xFF) << 8) | (get(pos + 3) & 0xFF);
+    }
+
+    private byte[] bytes(long pos, int length) {
+        byte[] b = new byte[length];
+        int copied = 0;
+        while (copied < length) {
+            ByteBuffer segment = segments[(int) ((pos + copied) / SEGMENT_SIZE)];
+            int at = (int) ((pos + copied) % SEGMENT_SIZE);
+            int n = Math.min(length - copied, segment.limit() - at);
+            segment.get(at, b, copied, n);
+            copied += n;
+        }
+        return b;
+    }
+}
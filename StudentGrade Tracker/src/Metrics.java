@@ -0,0 +1,178 @@
+import java.io.IOException;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.DoubleSupplier;
+
+/**
+ * Operation latencies, counters and gauges, exported as Prometheus text.
+ *
+ * Operations are timed with start/stop: each records into a LatencyHistogram
+ * for that operation and, when a JFR recording has it enabled, emits an
+ * OperationEvent. Everything here is safe to use from many threads.
+ */
+public class Metrics {
+
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+
+    private final String prefix;
+    private final Map<String, LatencyHistogram> timers = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> counters = new ConcurrentHashMap<>();
+    private final Map<String, Gauge> gauges = new ConcurrentHashMap<>();
+
+    private record Gauge(String help, DoubleSupplier value) {
+    }
+
+    /**
+     * An operation being timed. Call stop when it ends, normally in a finally block.
+     */
+    public static final class Sample {
+        private final LatencyHistogram histogram;
+        private final String operation;
+        private final OperationEvent event = new OperationEvent();
+        private final long start;
+
+        private Sample(LatencyHistogram histogram, String operation) {
+            this.histogram = histogram;
+            this.operation = operation;
+            event.begin();
+            this.start = System.nanoTime();
+        }
+
+        /**
+         * Records the time since start.
+         */
+        public void stop() {
+            histogram.record(System.nanoTime() - start);
+            event.end();
+            if (event.shouldCommit()) {
+                event.operation = operation;
+                event.commit();
+            }
+        }
+    }
+
+    /**
+     * @param prefix Prepended to every exported metric name, e.g. "studentgrade"
+     */
+    public Metrics(String prefix) {
+        this.prefix = prefix;
+    }
+
+    /**
+     * Starts timing an operation.
+     * @param operation Name of the operation, exported as the "op" label
+     * @return The sample to stop when the operation ends
+     */
+    public Sample start(String operation) {
+        return new Sample(timer(operation), operation);
+    }
+
+    /**
+     * Gets the latency histogram of an operation, creating it on first use.
+     * @param operation Name of the operation
+     * @return The operation's histogram
+     */
+    public LatencyHistogram timer(String operation) {
+        LatencyHistogram h = timers.get(operation);
+        return h != null ? h : timers.computeIfAbsent(operation, k -> new LatencyHistogram());
+    }
+
+    /**
+     * Adds one to a counter, creating it on first use.
+     * @param name Counter name; exported with a "_total" suffix
+     */
+    public void increment(String name) {
+        counters.computeIfAbsent(name, k -> new LongAdder()).increment();
+    }
+
+    /**
+     * Registers a value read each time the metrics are exported.
+     * @param name Gauge name
+     * @param help One-line description
+     * @param value Reads the current value
+     */
+    public void gauge(String name, String help, DoubleSupplier value) {
+        gauges.put(name, new Gauge(help, value));
+    }
+
+    /**
+     * Registers the JVM heap gauges.
+     */
+    public void addHeapGauges() {
+        Runtime rt = Runtime.getRuntime();
+        gauge("heap_used_bytes", "Heap in use", () -> rt.totalMemory() - rt.freeMemory());
+        gauge("heap_max_bytes", "Largest heap the JVM will use", rt::maxMemory);
+    }
+
+    /**
+     * Writes every metric in the Prometheus text exposition format.
+     * Latencies are a summary in seconds, one series per operation.
+     * @param out Where to write
+     * @throws IOException If an I/O error occurs
+     */
+    public void writePrometheus(Appendable out) throws IOException {
+        String latency = prefix + "_operation_seconds";
+        out.append("# HELP ").append(latency).append(" Latency of each operation\n");
+        out.append("# TYPE ").append(latency).append(" summary\n");
+        for (Map.Entry<String, LatencyHistogram> e : new TreeMap<>(timers).entrySet()) {
+            LatencyHistogram h = e.getValue();
+            String op = "op=\"" + escape(e.getKey()) + "\"";
+            for (double q : QUANTILES) {
+                out.append(latency).append('{').append(op).append(",quantile=\"").append(Double.toString(q))
+                        .append("\"} ").append(seconds(h.getValueAtPercentile(q * 100))).append('\n');
+            }
+            out.append(latency).append("_sum{").append(op).append("} ").append(seconds(h.getSum())).append('\n');
+            out.append(latency).append("_count{").append(op).append("} ").append(Long.toString(h.getCount())).append('\n');
+        }
+        for (Map.Entry<String, LongAdder> e : new TreeMap<>(counters).entrySet()) {
+            String name = prefix + "_" + e.getKey() + "_total";
+            out.append("# TYPE ").append(name).append(" counter\n");
+            out.append(name).append(' ').append(Long.toString(e.getValue().sum())).append('\n');
+        }
+        for (Map.Entry<String, Gauge> e : new TreeMap<>(gauges).entrySet()) {
+            String name = prefix + "_" + e.getKey();
+            out.append("# HELP ").append(name).append(' ').append(e.getValue().help()).append('\n');
+            out.append("# TYPE ").append(name).append(" gauge\n");
+            out.append(name).append(' ').append(number(e.getValue().value().getAsDouble())).append('\n');
+        }
+    }
+
+    /**
+     * Writes one line per operation: count, mean, p50, p99 and max in milliseconds.
+     * @param out Where to write
+     * @throws IOException If an I/O error occurs
+     */
+    public void writeSummary(Appendable out) throws IOException {
+        out.append(String.format("%-28s %10s %10s %10s %10s %10s\n", "OPERATION", "COUNT", "MEAN ms", "P50 ms", "P99 ms", "MAX ms"));
+        for (Map.Entry<String, LatencyHistogram> e : new TreeMap<>(timers).entrySet()) {
+            LatencyHistogram h = e.getValue();
+            long n = h.getCount();
+            out.append(String.format("%-28s %10d %10.3f %10.3f %10.3f %10.3f\n", e.getKey(), n,
+                    n == 0 ? 0.0 : h.getSum() / 1e6 / n, h.getValueAtPercentile(50) / 1e6,
+                    h.getValueAtPercentile(99) / 1e6, h.getMax() / 1e6));
+        }
+        for (Map.Entry<String, LongAdder> e : new TreeMap<>(counters).entrySet()) {
+            out.append(String.format("%-28s %10d\n", e.getKey(), e.getValue().sum()));
+        }
+        for (Map.Entry<String, Gauge> e : new TreeMap<>(gauges).entrySet()) {
+            out.append(String.format("%-28s %10s\n", e.getKey(), number(e.getValue().value().getAsDouble())));
+        }
+    }
+
+    private static String seconds(long nanos) {
+        return number(nanos / 1e9);
+    }
+
+    private static String number(double v) {
+        if (v == Math.rint(v) && Math.abs(v) < 1e15) {
+            return Long.toString((long) v);
+        }
+        return Double.toString(v);
+    }
+
+    private static String escape(String label) {
+        return label.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+}
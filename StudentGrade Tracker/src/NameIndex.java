@@ -0,0 +1,75 @@
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+
+/**
+ * Students ordered by first name, kept separately from the stored records.
+ * Students with the same first name stay in the order they were added, which is
+ * the order a stable sort of the roster by name gives. Reports read this index
+ * instead of sorting the roster every time.
+ */
+class NameIndex {
+
+    /** Position of one student in the index: first name, then the order they were added. */
+    private record Key(String name, long order) implements Comparable<Key> {
+        @Override
+        public int compareTo(Key other) {
+            if (name != other.name) {
+                if (name == null) return -1;
+                if (other.name == null) return 1;
+                int byName = name.compareTo(other.name);
+                if (byName != 0) return byName;
+            }
+            return Long.compare(order, other.order);
+        }
+    }
+
+    private final TreeMap<Key, Student> byName = new TreeMap<>();
+    private final Map<Student, Key> keys = new IdentityHashMap<>();
+    private long nextOrder;
+
+    void add(Student student) {
+        Key key = new Key(student.getName(), nextOrder++);
+        byName.put(key, student);
+        keys.put(student, key);
+    }
+
+    void remove(Student student) {
+        Key key = keys.remove(student);
+        if (key != null) byName.remove(key);
+    }
+
+    /**
+     * Moves a student after their first name changed, keeping their place among equal names.
+     */
+    void rename(Student student) {
+        Key key = keys.get(student);
+        if (key == null || Objects.equals(key.name(), student.getName())) return;
+        byName.remove(key);
+        Key moved = new Key(student.getName(), key.order());
+        byName.put(moved, student);
+        keys.put(student, moved);
+    }
+
+    void clear() {
+        byName.clear();
+        keys.clear();
+    }
+
+    /**
+     * @return Every student, ordered by first name
+     */
+    List<Student> inOrder() {
+        return new ArrayList<>(byName.values());
+    }
+
+    /**
+     * @return A live view of the students in name order, for streaming
+     */
+    Iterable<Student> view() {
+        return byName.values();
+    }
+}
@@ -0,0 +1,416 @@
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Search over student first and last names by prefix, with tolerance for typos.
+ *
+ * Names are split into words, lower-cased with accents removed, and every
+ * distinct word is kept once in a sorted map with the students whose names
+ * contain it, so a common first name costs one entry however many students share
+ * it. Prefix queries are a range scan of the map. Typos are found by walking the
+ * map in order with the edit-distance rows of the query word: words sharing a
+ * prefix share those rows, and a prefix is skipped with all its words as soon as
+ * no word starting with it can be within the edit limit. The limit is one edit
+ * (insert, delete, substitute or swap adjacent letters), or two for query words
+ * of nine letters or more.
+ *
+ * A query matches a student when every query word matches one of their name
+ * words. Each word scores 1 for an exact match, 0.8 for a prefix match and up to
+ * 0.6 for a match within the edit limit; matches are ranked by total score, and
+ * equal scores in alphabetical order of the matching word. Ranking starts from
+ * the longest query word and stops as soon as no later candidate can beat the
+ * matches found, so a query reads only a few index entries however large the
+ * roster is.
+ *
+ * The index registers itself as a RosterListener and follows every added and
+ * removed student and every change of name.
+ */
+public class NameSearch implements RosterListener {
+
+    /** One search result. */
+    public record Match(Student student, double score) {
+    }
+
+    private static final double EXACT = 1.0;
+    private static final double PREFIX = 0.8;
+    private static final double FUZZY = 0.6;
+    private static final int MAX_CANDIDATES = 100_000; // Students scored per query at most
+
+    /** A distinct name word and the students whose names contain it. */
+    private static final class Token {
+        final String text;
+        final List<Student> students = new ArrayList<>(1);
+
+        Token(String text) {
+            this.text = text;
+        }
+    }
+
+    /** A match and the order it was found in, which breaks ties. */
+    private record Ranked(Match match, long arrival) {
+    }
+
+    private final TreeMap<String, Token> tokens = new TreeMap<>();
+    private final Map<Student, Token[]> indexed = new IdentityHashMap<>();
+
+    /**
+     * Builds a name index of every student in a manager and keeps it current.
+     * @param manager The manager to index
+     * @return The attached index
+     */
+    public static NameSearch attach(StudentManager manager) {
+        NameSearch search = new NameSearch();
+        for (Student s : manager.getStudents()) {
+            search.add(s);
+        }
+        manager.addListener(search);
+        return search;
+    }
+
+    /**
+     * Finds the students whose names best match a query such as "ann le" or "jonh".
+     * At most 100,000 students are scored, which bounds queries whose words each
+     * match many students but rarely the same ones.
+     * @param query One or more words; case and accents are ignored
+     * @param limit Most matches to return
+     * @return The matches, best first
+     */
+    public List<Match> search(String query, int limit) {
+        String[] words = words(query);
+        if (words.length == 0 || limit <= 0) {
+            return List.of();
+        }
+        // Drive the search from the longest word, which usually matches the fewest students
+        int longest = 0;
+        for (int i = 1; i < words.length; i++) {
+            if (words[i].length() > words[longest].length()) longest = i;
+        }
+        String driver = words[longest];
+        String[] others = new String[words.length - 1];
+        for (int i = 0, j = 0; i < words.length; i++) {
+            if (i != longest) others[j++] = words[i];
+        }
+
+        Ranking ranking = new Ranking(limit, others);
+        Token exact = tokens.get(driver);
+        if (exact != null && !ranking.offer(exact, EXACT)) {
+            return ranking.result();
+        }
+        for (Token t : tokens.subMap(driver, false, driver + Character.MAX_VALUE, false).values()) {
+            if (!ranking.offer(t, PREFIX)) {
+                return ranking.result();
+            }
+        }
+        // Every word one edit away scores above every word two edits away, so the
+        // wider, costlier walk only runs if one-edit matches leave room in the list
+        for (int edits = 1; edits <= maxEdits(driver.length()); edits++) {
+            double bestSimilarity = 1.0 - (double) edits / (driver.length() + edits);
+            if (!ranking.canRank(FUZZY * bestSimilarity)) {
+                break;
+            }
+            for (Map.Entry<Token, Double> fuzzy : fuzzyTokens(driver, edits)) {
+                if (!ranking.offer(fuzzy.getKey(), FUZZY * fuzzy.getValue())) {
+                    return ranking.result();
+                }
+            }
+        }
+        return ranking.result();
+    }
+
+    /**
+     * @return The number of distinct name words indexed
+     */
+    public int getTokenCount() {
+        return tokens.size();
+    }
+
+    // Collects the best matches in the order candidates arrive, which is best driver score first
+    private final class Ranking {
+        final int limit;
+        final String[] others;
+        final PriorityQueue<Ranked> best; // Lowest score, then latest arrival, on top
+        final Set<Student> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+        long arrivals;
+
+        Ranking(int limit, String[] others) {
+            this.limit = limit;
+            this.others = others;
+            this.best = new PriorityQueue<>((a, b) -> {
+                int byScore = Double.compare(a.match().score(), b.match().score());
+                return byScore != 0 ? byScore : Long.compare(b.arrival(), a.arrival());
+            });
+        }
+
+        // Whether a student whose driver word scores this much could still make the list
+        boolean canRank(double driverScore) {
+            return best.size() < limit || best.peek().match().score() < driverScore + others.length * EXACT;
+        }
+
+        // Scores every student of a token; returns false once no later candidate can rank
+        boolean offer(Token token, double driverScore) {
+            if (!canRank(driverScore)) {
+                return false;
+            }
+            for (Student s : token.students) {
+                if (!seen.add(s)) continue;
+                if (seen.size() > MAX_CANDIDATES) return false;
+                double score = driverScore;
+                for (String word : others) {
+                    double w = bestScore(indexed.get(s), word);
+                    if (w == 0) {
+                        score = -1;
+                        break;
+                    }
+                    score += w;
+                }
+                if (score < 0) continue;
+                if (best.size() < limit) {
+                    best.add(new Ranked(new Match(s, score), arrivals++));
+                } else if (score > best.peek().match().score()) {
+                    best.poll();
+                    best.add(new Ranked(new Match(s, score), arrivals++));
+                }
+            }
+            return true;
+        }
+
+        List<Match> result() {
+            List<Ranked> sorted = new ArrayList<>(best);
+            sorted.sort(best.comparator().reversed());
+            List<Match> out = new ArrayList<>(sorted.size());
+            for (Ranked r : sorted) out.add(r.match());
+            return out;
+        }
+    }
+
+    // Best score of a query word against any of a student's name words, or 0 if none matches
+    private static double bestScore(Token[] names, String word) {
+        double best = 0;
+        for (Token t : names) {
+            if (t.text.equals(word)) return EXACT;
+            if (t.text.startsWith(word)) {
+                best = PREFIX;
+            } else if (best < PREFIX) {
+                int d = distance(word, t.text, maxEdits(word.length()));
+                if (d >= 0) best = Math.max(best, FUZZY * similarity(word, t.text, d));
+            }
+        }
+        return best;
+    }
+
+    // Tokens exactly k edits from a word that are not prefix matches, most similar first
+    private List<Map.Entry<Token, Double>> fuzzyTokens(String word, int k) {
+        int n = word.length();
+        int[][] rows = new int[n + k + 2][n + 1]; // rows[i]: distances from the first i letters of a token
+        for (int j = 0; j <= n; j++) rows[0][j] = j;
+        Map<String, Token> found = new HashMap<>();
+        descend(word, k, rows, "", 0, found);
+        List<Map.Entry<Token, Double>> out = new ArrayList<>(found.size());
+        for (Token t : found.values()) {
+            out.add(Map.entry(t, similarity(word, t.text, k)));
+        }
+        out.sort((a, b) -> {
+            int bySimilarity = Double.compare(b.getValue(), a.getValue());
+            return bySimilarity != 0 ? bySimilarity : a.getKey().text.compareTo(b.getKey().text);
+        });
+        return out;
+    }
+
+    /*
+     * Walks the tokens starting with prefix, whose row of edit distances to the
+     * prefixes of word is rows[prefix.length()] with smallest value min. Tokens
+     * sharing a prefix share its rows, and a prefix whose row is all above k is never
+     * entered. Once a prefix has used up all k edits the rest of a matching token can
+     * only be copied from word, so the few such tokens are looked up directly rather
+     * than walking everything that starts with the prefix.
+     */
+    private void descend(String word, int k, int[][] rows, String prefix, int min, Map<String, Token> found) {
+        int i = prefix.length();
+        int n = word.length();
+        int[] row = rows[i];
+        if (min == k) {
+            for (int j = 0; j <= n; j++) {
+                if (row[j] == k) {
+                    check(word, k, prefix + word.substring(j), found);
+                }
+                // Or the prefix's last letter is swapped with the next one
+                if (i > 0 && j > 0 && j < n && rows[i - 1][j - 1] < k && prefix.charAt(i - 1) == word.charAt(j)) {
+                    check(word, k, prefix + word.charAt(j - 1) + word.substring(j + 1), found);
+                }
+            }
+            return;
+        }
+        if (row[n] == k) {
+            check(word, k, prefix, found);
+        }
+        String key = tokens.higherKey(prefix);
+        while (key != null && key.startsWith(prefix)) {
+            String child = key.substring(0, i + 1);
+            int childMin = row(rows, i + 1, word, child);
+            if (childMin <= k) {
+                descend(word, k, rows, child, childMin, found);
+            }
+            key = tokens.higherKey(child + Character.MAX_VALUE);
+        }
+    }
+
+    private void check(String word, int k, String text, Map<String, Token> found) {
+        Token t = tokens.get(text);
+        if (t != null && !text.startsWith(word) && distance(word, text, k) == k) { // Prefix matches were offered
+            found.put(text, t);
+        }
+    }
+
+    /*
+     * Fills rows[i], the distances between the first i letters of key and each
+     * prefix of word, from the two rows before it, and returns its smallest value.
+     * No row below can have a smaller one, which is what makes pruning safe.
+     */
+    private static int row(int[][] rows, int i, String word, String key) {
+        int[] cur = rows[i];
+        int[] prev = rows[i - 1];
+        char c = key.charAt(i - 1);
+        cur[0] = i;
+        int min = i;
+        for (int j = 1; j <= word.length(); j++) {
+            int d = Math.min(Math.min(prev[j] + 1, cur[j - 1] + 1), prev[j - 1] + (word.charAt(j - 1) == c ? 0 : 1));
+            if (i > 1 && j > 1 && c == word.charAt(j - 2) && key.charAt(i - 2) == word.charAt(j - 1)) {
+                d = Math.min(d, rows[i - 2][j - 2] + 1);
+            }
+            cur[j] = d;
+            min = Math.min(min, d);
+        }
+        return min;
+    }
+
+    private static int maxEdits(int length) {
+        return length < 3 ? 0 : length < 9 ? 1 : 2;
+    }
+
+    private static double similarity(String a, String b, int distance) {
+        return 1.0 - (double) distance / Math.max(a.length(), b.length());
+    }
+
+    /**
+     * Optimal string alignment distance: edits, with swapping two adjacent letters
+     * counting as one, giving up once the distance must exceed a limit.
+     * @return The distance, or -1 if it is more than max
+     */
+    static int distance(String a, String b, int max) {
+        int n = a.length(), m = b.length();
+        if (Math.abs(n - m) > max) {
+            return -1;
+        }
+        int[] prev2 = new int[m + 1];
+        int[] prev = new int[m + 1];
+        int[] cur = new int[m + 1];
+        for (int j = 0; j <= m; j++) prev[j] = j;
+        for (int i = 1; i <= n; i++) {
+            cur[0] = i;
+            int rowMin = i;
+            for (int j = 1; j <= m; j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                int d = Math.min(Math.min(prev[j] + 1, cur[j - 1] + 1), prev[j - 1] + cost);
+                if (i > 1 && j > 1 && a.charAt(i - 1) == b.charAt(j - 2) && a.charAt(i - 2) == b.charAt(j - 1)) {
+                    d = Math.min(d, prev2[j - 2] + 1);
+                }
+                cur[j] = d;
+                rowMin = Math.min(rowMin, d);
+            }
+            if (rowMin > max) {
+                return -1;
+            }
+            int[] t = prev2;
+            prev2 = prev;
+            prev = cur;
+            cur = t;
+        }
+        return prev[m] <= max ? prev[m] : -1;
+    }
+
+    /**
+     * Splits text into lower-case words without accents, dropping duplicates.
+     */
+    static String[] words(String text) {
+        if (text == null || text.isEmpty()) {
+            return new String[0];
+        }
+        String plain = text;
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) >= 0x80) {
+                plain = Normalizer.normalize(text, Normalizer.Form.NFD).replaceAll("\\p{M}+", "");
+                break;
+            }
+        }
+        plain = plain.toLowerCase(Locale.ROOT);
+        LinkedHashSet<String> out = new LinkedHashSet<>(4);
+        int start = -1;
+        for (int i = 0; i <= plain.length(); i++) {
+            boolean letter = i < plain.length() && Character.isLetterOrDigit(plain.charAt(i));
+            if (letter && start < 0) {
+                start = i;
+            } else if (!letter && start >= 0) {
+                out.add(plain.substring(start, i));
+                start = -1;
+            }
+        }
+        return out.toArray(new String[0]);
+    }
+
+    private void add(Student student) {
+        LinkedHashSet<String> words = new LinkedHashSet<>(Arrays.asList(words(student.getName())));
+        words.addAll(Arrays.asList(words(student.getLastName())));
+        Token[] names = new Token[words.size()];
+        int i = 0;
+        for (String w : words) {
+            Token t = tokens.get(w);
+            if (t == null) {
+                t = new Token(w);
+                tokens.put(w, t);
+            }
+            t.students.add(student);
+            names[i++] = t;
+        }
+        indexed.put(student, names);
+    }
+
+    private void remove(Student student) {
+        Token[] names = indexed.remove(student);
+        if (names == null) {
+            return;
+        }
+        for (Token t : names) {
+            t.students.remove(student);
+            if (t.students.isEmpty()) {
+                tokens.remove(t.text);
+            }
+        }
+    }
+
+    @Override
+    public void studentAdded(Student student) {
+        add(student);
+    }
+
+    @Override
+    public void studentRemoved(Student student) {
+        remove(student);
+    }
+
+    @Override
+    public void studentUpdated(Student student, String oldId) {
+        remove(student);
+        add(student);
+    }
+}
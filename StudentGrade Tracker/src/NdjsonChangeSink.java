@@ -0,0 +1,214 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * ChangeSink that appends events as newline-delimited JSON to rotating files.
+ *
+ * Files are named changes-FIRSTSEQUENCE.ndjson (zero-padded, so they sort by name)
+ * and a new one is started once the current one passes a size limit; the oldest
+ * files beyond a count limit are deleted. Each line is one event from
+ * ChangeEvent.appendJson, starting with its "seq". Events are written to the OS
+ * as each batch arrives, so readers see them at once, and forced to disk on flush().
+ *
+ * On open, the sink finds the last sequence already written and cuts off a torn
+ * last line, and later skips events up to that sequence, so replaying a journal
+ * into a manager with the feed attached does not write an event twice. Consumers
+ * use readSince to tail the feed from the last sequence they processed.
+ */
+public class NdjsonChangeSink implements ChangeSink {
+
+    /** Default size at which a new file is started. */
+    public static final long DEFAULT_MAX_FILE_BYTES = 64L << 20;
+    /** Default number of files kept. */
+    public static final int DEFAULT_MAX_FILES = 16;
+    private static final String PREFIX = "changes-";
+    private static final String SUFFIX = ".ndjson";
+
+    private final Path dir;
+    private final long maxFileBytes;
+    private final int maxFiles;
+    private FileChannel channel;   // Current file, or null until the first event
+    private long lastSequence;     // Last sequence written, or -1 if none
+    private final StringBuilder text = new StringBuilder(1 << 16);
+
+    /**
+     * Opens a feed directory with the default limits.
+     * @param dir The directory, created if needed
+     * @throws IOException If the directory cannot be created or read
+     */
+    public NdjsonChangeSink(Path dir) throws IOException {
+        this(dir, DEFAULT_MAX_FILE_BYTES, DEFAULT_MAX_FILES);
+    }
+
+    /**
+     * @param dir The directory, created if needed
+     * @param maxFileBytes Size at which a new file is started
+     * @param maxFiles Number of files kept, at least 1
+     * @throws IOException If the directory cannot be created or read
+     */
+    public NdjsonChangeSink(Path dir, long maxFileBytes, int maxFiles) throws IOException {
+        this.dir = dir;
+        this.maxFileBytes = maxFileBytes;
+        this.maxFiles = Math.max(1, maxFiles);
+        Files.createDirectories(dir);
+        List<Path> files = files(dir);
+        lastSequence = -1;
+        if (!files.isEmpty()) {
+            Path last = files.get(files.size() - 1);
+            lastSequence = recover(last);
+            channel = FileChannel.open(last, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        }
+    }
+
+    /**
+     * @return The sequence of the last event written, or -1 if the feed is empty
+     */
+    public long getLastSequence() {
+        return lastSequence;
+    }
+
+    @Override
+    public void write(List<ChangeEvent> events) throws IOException {
+        text.setLength(0);
+        long first = -1;
+        for (ChangeEvent e : events) {
+            if (e.sequence() <= lastSequence) continue; // Already written before a restart
+            if (first < 0) first = e.sequence();
+            e.appendJson(text).append('\n');
+            lastSequence = e.sequence();
+        }
+        if (first < 0) {
+            return;
+        }
+        if (channel == null || channel.size() >= maxFileBytes) {
+            rotate(first);
+        }
+        ByteBuffer bytes = StandardCharsets.UTF_8.encode(CharBuffer.wrap(text));
+        while (bytes.hasRemaining()) channel.write(bytes);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        if (channel != null) channel.force(false);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (channel != null) {
+            flush();
+            channel.close();
+            channel = null;
+        }
+    }
+
+    /**
+     * Reads the events after a given sequence, oldest first.
+     * @param dir The feed directory
+     * @param afterSequence The last sequence already processed; -1 for everything still kept
+     * @param consumer Receives each event's JSON line
+     * @return The sequence of the last event read, or afterSequence if there were none
+     * @throws IOException If the files cannot be read
+     */
+    public static long readSince(Path dir, long afterSequence, Consumer<String> consumer) throws IOException {
+        List<Path> files = files(dir);
+        long last = afterSequence;
+        for (int i = 0; i < files.size(); i++) {
+            if (i + 1 < files.size() && firstSequence(files.get(i + 1)) <= afterSequence + 1) {
+                continue; // Everything in this file is older
+            }
+            try (BufferedReader in = Files.newBufferedReader(files.get(i), StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = in.readLine()) != null) {
+                    long seq = sequenceOf(line);
+                    if (seq > afterSequence) {
+                        consumer.accept(line);
+                        last = seq;
+                    }
+                }
+            }
+        }
+        return last;
+    }
+
+    private void rotate(long firstSequence) throws IOException {
+        if (channel != null) {
+            channel.force(false);
+            channel.close();
+        }
+        Path file = dir.resolve(String.format("%s%020d%s", PREFIX, firstSequence, SUFFIX));
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        List<Path> files = files(dir);
+        for (int i = 0; i < files.size() - maxFiles; i++) {
+            Files.deleteIfExists(files.get(i));
+        }
+    }
+
+    // Finds the last complete line of a file, cuts off anything after it, and returns its sequence
+    private static long recover(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long size = channel.size();
+            long end = 0;          // Offset just past the last newline
+            long lineStart = 0;    // Offset of the last complete line
+            ByteBuffer chunk = ByteBuffer.allocate(1 << 16);
+            for (long pos = 0; pos < size; pos += chunk.limit()) {
+                chunk.clear();
+                if (channel.read(chunk, pos) <= 0) break;
+                chunk.flip();
+                for (int i = 0; i < chunk.limit(); i++) {
+                    if (chunk.get(i) == '\n') {
+                        lineStart = end;
+                        end = pos + i + 1;
+                    }
+                }
+            }
+            if (end < size) {
+                channel.truncate(end);
+            }
+            if (end == 0) {
+                return firstSequence(file) - 1;
+            }
+            ByteBuffer line = ByteBuffer.allocate((int) Math.min(end - lineStart, 64));
+            channel.read(line, lineStart);
+            return sequenceOf(new String(line.array(), 0, line.position(), StandardCharsets.UTF_8));
+        }
+    }
+
+    // The "seq" value at the start of an event line
+    private static long sequenceOf(String line) {
+        int i = line.indexOf(':') + 1;
+        long seq = 0;
+        while (i < line.length() && Character.isDigit(line.charAt(i))) {
+            seq = seq * 10 + (line.charAt(i++) - '0');
+        }
+        return seq;
+    }
+
+    private static long firstSequence(Path file) {
+        String name = file.getFileName().toString();
+        return Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+    }
+
+    // Feed files, oldest first
+    private static List<Path> files(Path dir) throws IOException {
+        List<Path> files = new ArrayList<>();
+        if (!Files.isDirectory(dir)) {
+            return files;
+        }
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, PREFIX + "*" + SUFFIX)) {
+            for (Path f : stream) files.add(f);
+        }
+        files.sort(null);
+        return files;
+    }
+}
@@ -0,0 +1,21 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR event recorded for every operation timed by Metrics.
+ * Enable it in a recording (for example -XX:StartFlightRecording) to see each
+ * operation with its duration and thread on the JFR timeline.
+ */
+@Name("studentgrade.Operation")
+@Label("Student Grade Tracker Operation")
+@Category("Student Grade Tracker")
+@Description("One timed roster operation")
+@StackTrace(false)
+class OperationEvent extends jdk.jfr.Event {
+
+    @Label("Operation")
+    String operation;
+}
@@ -0,0 +1,160 @@
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Least-recently-used cache of rendered student reports, keyed by student ID.
+ * StudentManager caches searchStudent reports in one, and GradeServer the JSON
+ * it returns for a student.
+ *
+ * The cache is bounded by the total length of the reports it holds, so a few
+ * students with many courses cannot crowd out everyone else. It listens to the
+ * roster and drops a student's report as soon as anything in it changes:
+ * a course added or updated, the student renamed, re-identified or removed. A
+ * course renamed for everyone drops every report.
+ * Hit, miss and eviction counts are kept for tuning the size.
+ *
+ * The cache may be used from many threads; reports are rendered outside its
+ * lock. Each report remembers the record it was rendered from and is only served
+ * for that same record, so with a ConcurrentStudentManager, whose records are
+ * replaced on every change, a report rendered from a record a change has since
+ * replaced is never served for the new one.
+ */
+public class ReportCache implements RosterListener {
+
+    /** Default size limit, in characters of rendered report. */
+    public static final long DEFAULT_MAX_CHARS = 4L << 20;
+
+    /** A rendered report and the record it was rendered from. */
+    private record Cached(Student student, String report) {
+    }
+
+    private final LinkedHashMap<String, Cached> reports = new LinkedHashMap<>(256, 0.75f, true);
+    private final long maxChars;
+    private long chars;      // Total length of the cached reports
+    private long cleared;    // Times every report was dropped, so one rendered before is not cached after
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    /**
+     * Creates a cache holding up to DEFAULT_MAX_CHARS characters of reports.
+     */
+    public ReportCache() {
+        this(DEFAULT_MAX_CHARS);
+    }
+
+    /**
+     * @param maxChars Largest total length of the cached reports
+     */
+    public ReportCache(long maxChars) {
+        this.maxChars = maxChars;
+    }
+
+    /**
+     * Returns the cached report for a student, rendering and caching it on a miss.
+     * A report longer than the whole cache is returned without being cached.
+     * @param student The student
+     * @param render Builds the report for a student
+     * @return The student's report
+     */
+    public String get(Student student, Function<Student, String> render) {
+        long seen;
+        synchronized (this) {
+            Cached cached = reports.get(student.getStudentId());
+            if (cached != null && cached.student == student) {
+                hits++;
+                return cached.report;
+            }
+            misses++;
+            seen = cleared;
+        }
+        String report = render.apply(student);
+        synchronized (this) {
+            if (report.length() <= maxChars && seen == cleared) {
+                Cached replaced = reports.put(student.getStudentId(), new Cached(student, report));
+                if (replaced != null) chars -= replaced.report.length();
+                chars += report.length();
+                evict();
+            }
+        }
+        return report;
+    }
+
+    /**
+     * Drops the cached report of one student.
+     * @param studentId The student's ID
+     */
+    public synchronized void invalidate(String studentId) {
+        Cached removed = reports.remove(studentId);
+        if (removed != null) chars -= removed.report.length();
+    }
+
+    /**
+     * Drops every cached report. Counters are kept.
+     */
+    public synchronized void clear() {
+        reports.clear();
+        chars = 0;
+        cleared++;
+    }
+
+    // Removes least recently used reports until the cache fits its limit
+    private void evict() {
+        Iterator<Map.Entry<String, Cached>> it = reports.entrySet().iterator();
+        while (chars > maxChars && it.hasNext()) {
+            chars -= it.next().getValue().report.length();
+            it.remove();
+            evictions++;
+        }
+    }
+
+    public synchronized long getHits() { return hits; }
+
+    public synchronized long getMisses() { return misses; }
+
+    public synchronized long getEvictions() { return evictions; }
+
+    /**
+     * @return The number of cached reports
+     */
+    public synchronized int size() { return reports.size(); }
+
+    /**
+     * @return The total length of the cached reports, in characters
+     */
+    public synchronized long getChars() { return chars; }
+
+    @Override
+    public void studentAdded(Student student) {
+        invalidate(student.getStudentId());
+    }
+
+    @Override
+    public void studentRemoved(Student student) {
+        invalidate(student.getStudentId());
+    }
+
+    @Override
+    public void studentUpdated(Student student, String oldId) {
+        invalidate(oldId);
+        invalidate(student.getStudentId());
+    }
+
+    @Override
+    public void courseAdded(Student student, Course course) {
+        invalidate(student.getStudentId());
+    }
+
+    @Override
+    public void courseUpdated(Student student, Course course, String oldId, double oldGrade) {
+        invalidate(student.getStudentId());
+    }
+
+    // Which reports name the course is not tracked; renames are rare, so everything goes
+    @Override
+    public void courseRenamed(String courseId, String courseName) {
+        clear();
+    }
+}
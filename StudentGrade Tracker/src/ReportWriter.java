@@ -0,0 +1,263 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.text.DecimalFormatSymbols;
+import java.util.Locale;
+
+/**
+ * Streams the class report to any Writer or OutputStream, one row at a time.
+ *
+ * Rows are built in a reused StringBuilder with hand-written padding and
+ * two-decimal number formatting (the same text as printf's %.2f) instead of a
+ * format string per row, and written through a buffer.
+ */
+public class ReportWriter implements AutoCloseable {
+
+    /** Output layouts. */
+    public enum Format {
+        /** The console layout of studentReport, with headers and class statistics. */
+        TEXT,
+        /** Comma-separated values with a header line, one student per line. */
+        CSV,
+        /** Fixed-width columns, one student per line, no decorations. */
+        FIXED_WIDTH
+    }
+
+    /** Decimal symbols of the locale printf would use, looked up again only when the locale changes. */
+    private record Symbols(Locale locale, char zero, char decimal) {
+    }
+
+    private static volatile Symbols symbols = new Symbols(null, '0', '.');
+
+    private final Writer out;
+    private final Format format;
+    private final StringBuilder line = new StringBuilder(128);
+
+    /**
+     * @param out Where to write; wrapped in a buffer unless it already is one
+     * @param format The layout to use
+     */
+    public ReportWriter(Writer out, Format format) {
+        this.out = out instanceof BufferedWriter ? out : new BufferedWriter(out, 1 << 16);
+        this.format = format;
+    }
+
+    /**
+     * @param out Where to write, as UTF-8
+     * @param format The layout to use
+     */
+    public ReportWriter(OutputStream out, Format format) {
+        this(new OutputStreamWriter(out, StandardCharsets.UTF_8), format);
+    }
+
+    /**
+     * Writes a whole report: header, one row per student and, for TEXT, the class statistics.
+     * @param students The students, in the order they should appear
+     * @param classStats The statistics printed in the TEXT footer
+     * @throws IOException If an I/O error occurs
+     */
+    public void writeReport(Iterable<Student> students, GradeStats classStats) throws IOException {
+        writeHeader();
+        for (Student s : students) {
+            writeRow(s);
+        }
+        if (format == Format.TEXT) {
+            writeFooter(classStats.getHighest(), classStats.getLowest(),
+                    classStats.getCount() > 0 ? classStats.getAverage() : 0);
+        }
+        out.flush();
+    }
+
+    /**
+     * Writes the column headings.
+     * @throws IOException If an I/O error occurs
+     */
+    public void writeHeader() throws IOException {
+        switch (format) {
+            case TEXT -> out.write("\n=============== CLASS GRADE REPORT ===============\n"
+                    + "STUDENT NAME            HIGHEST    AVERAGE     LOWEST\n"
+                    + "------------------------------------------------\n");
+            case CSV -> out.write("student_id,first_name,last_name,courses,highest,average,lowest\n");
+            case FIXED_WIDTH -> {
+                line.setLength(0);
+                padRight(line, "STUDENT ID", 12);
+                padRight(line, "FIRST NAME", 20);
+                padRight(line, "LAST NAME", 20);
+                padLeft(line, "COURSES", 8);
+                padLeft(line, "HIGHEST", 10);
+                padLeft(line, "AVERAGE", 10);
+                padLeft(line, "LOWEST", 10);
+                out.append(line).write('\n');
+            }
+        }
+    }
+
+    /**
+     * Writes one student's row.
+     * @param s The student
+     * @throws IOException If an I/O error occurs
+     */
+    public void writeRow(Student s) throws IOException {
+        line.setLength(0);
+        appendRow(line, s, format);
+        out.append(line);
+    }
+
+    /**
+     * Writes the TEXT class statistics block.
+     * @throws IOException If an I/O error occurs
+     */
+    void writeFooter(double highest, double lowest, double average) throws IOException {
+        line.setLength(0);
+        line.append("\n----------- OVERALL CLASS STATISTICS -----------\n");
+        line.append("Highest Grade (Class): ");
+        appendFixed2(line, highest);
+        line.append("\nLowest Grade (Class): ");
+        appendFixed2(line, lowest);
+        line.append("\nAverage Grade (Class): ");
+        appendFixed2(line, average);
+        line.append('\n');
+        out.append(line);
+    }
+
+    /**
+     * Appends one student's row, ending in a newline.
+     * @param sb Where to append
+     * @param s The student
+     * @param format The layout to use
+     */
+    static void appendRow(StringBuilder sb, Student s, Format format) {
+        GradeStats stats = s.getStats();
+        switch (format) {
+            case TEXT -> {
+                int start = sb.length();
+                sb.append(s.getName()).append(' ').append(s.getLastName());
+                while (sb.length() - start < 20) sb.append(' ');
+                sb.append(' ');
+                appendFixed2(sb, stats.getHighest(), 10);
+                sb.append(' ');
+                appendFixed2(sb, stats.getAverage(), 10);
+                sb.append(' ');
+                appendFixed2(sb, stats.getLowest(), 10);
+            }
+            case CSV -> {
+                appendCsv(sb, s.getStudentId()).append(',');
+                appendCsv(sb, s.getName()).append(',');
+                appendCsv(sb, s.getLastName()).append(',');
+                sb.append(stats.getCount()).append(',');
+                if (stats.getCount() > 0) {
+                    appendFixed2(sb, stats.getHighest(), Locale.ROOT);
+                    sb.append(',');
+                    appendFixed2(sb, stats.getAverage(), Locale.ROOT);
+                    sb.append(',');
+                    appendFixed2(sb, stats.getLowest(), Locale.ROOT);
+                } else {
+                    sb.append(",,");
+                }
+            }
+            case FIXED_WIDTH -> {
+                padRight(sb, s.getStudentId(), 12);
+                padRight(sb, s.getName(), 20);
+                padRight(sb, s.getLastName(), 20);
+                int start = sb.length();
+                sb.append(stats.getCount());
+                padTo(sb, start, 8);
+                appendFixed2(sb, stats.getHighest(), 10);
+                appendFixed2(sb, stats.getAverage(), 10);
+                appendFixed2(sb, stats.getLowest(), 10);
+            }
+        }
+        sb.append('\n');
+    }
+
+    /**
+     * Appends a number with two decimals, right-aligned in a field, like %{width}.2f.
+     */
+    static void appendFixed2(StringBuilder sb, double v, int width) {
+        int start = sb.length();
+        appendFixed2(sb, v);
+        padTo(sb, start, width);
+    }
+
+    /**
+     * Appends a number with two decimals, giving the same text as %.2f.
+     * Values whose third decimal is not close to a rounding tie are formatted
+     * directly from a scaled long; the rest (and NaN, infinities, negatives and very
+     * large values) go through String.format so the result always matches it.
+     * How close counts as a tie grows with the value: above about 1e8 the nearest
+     * double to a decimal like 630404863.925 is off by more than a millionth of a
+     * cent, so the window is a few ulps of the scaled value rather than a fixed size.
+     */
+    static void appendFixed2(StringBuilder sb, double v) {
+        appendFixed2(sb, v, Locale.getDefault(Locale.Category.FORMAT));
+    }
+
+    /**
+     * Appends a number with two decimals, as String.format(locale, "%.2f", v) would.
+     */
+    static void appendFixed2(StringBuilder sb, double v, Locale locale) {
+        Symbols current = symbols;
+        if (!locale.equals(current.locale())) {
+            DecimalFormatSymbols dfs = DecimalFormatSymbols.getInstance(locale);
+            current = new Symbols(locale, dfs.getZeroDigit(), dfs.getDecimalSeparator());
+            symbols = current;
+        }
+        if (v >= 0 && v < 1e13 && current.zero() == '0') {
+            double scaled = v * 100;
+            double fraction = scaled - Math.floor(scaled);
+            if (Math.abs(fraction - 0.5) > Math.max(1e-6, 4 * Math.ulp(scaled))) {
+                long cents = Math.round(scaled);
+                sb.append(cents / 100).append(current.decimal());
+                long rest = cents % 100;
+                if (rest < 10) sb.append('0');
+                sb.append(rest);
+                return;
+            }
+        }
+        sb.append(String.format(locale, "%.2f", v));
+    }
+
+    // Left-aligns text in a field, always leaving at least one space after it
+    private static void padRight(StringBuilder sb, String s, int width) {
+        int start = sb.length();
+        sb.append(s);
+        do {
+            sb.append(' ');
+        } while (sb.length() - start < width);
+    }
+
+    private static void padLeft(StringBuilder sb, String s, int width) {
+        int start = sb.length();
+        sb.append(s);
+        padTo(sb, start, width);
+    }
+
+    // Right-aligns the text appended since start in a field of the given width
+    private static void padTo(StringBuilder sb, int start, int width) {
+        for (int pad = width - (sb.length() - start); pad > 0; pad--) sb.insert(start, ' ');
+    }
+
+    private static StringBuilder appendCsv(StringBuilder sb, String s) {
+        if (s == null) return sb;
+        if (s.indexOf(',') < 0 && s.indexOf('"') < 0 && s.indexOf('\n') < 0) return sb.append(s);
+        sb.append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '"') sb.append('"');
+            sb.append(c);
+        }
+        return sb.append('"');
+    }
+
+    /**
+     * Flushes the buffer and closes the underlying writer.
+     * @throws IOException If an I/O error occurs
+     */
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+}
@@ -0,0 +1,35 @@
+/**
+ * The records a RosterListener can follow: a StudentManager, or the
+ * ConcurrentStudentManager the server works on. Journal, ChangeFeed and
+ * GradeHistory are written against this, so they follow either.
+ *
+ * Every change is numbered, and listeners hear of changes in the order of
+ * their numbers; while a callback runs, getChangeSequence() returns the number
+ * of the change it reports.
+ */
+public interface Roster {
+
+    /**
+     * Registers a listener to be told about every change to the records.
+     * @param listener The listener to add
+     */
+    void addListener(RosterListener listener);
+
+    /**
+     * Stops notifying a listener.
+     * @param listener The listener to remove
+     */
+    void removeListener(RosterListener listener);
+
+    /**
+     * @return The number of the latest change
+     */
+    long getChangeSequence();
+
+    /**
+     * Looks up a student by their ID.
+     * @param studentId The ID of the student
+     * @return The student, or null if there is none
+     */
+    Student getStudent(String studentId);
+}
@@ -0,0 +1,380 @@
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads and writes the compact binary database format.
+ *
+ * Layout (all numbers big-endian, strings as int length + UTF-8 bytes):
+ * - int magic "SGTB", short version, long change sequence (version 2 and later)
+ * - course table: int count, then each course's ID and name. Every ID and name
+ *   pair the students use is stored once here and referenced by index.
+ * - int student count, then one record per student:
+ *   int record length, student ID, first name, last name (inline strings),
+ *   int course count, then per course: int course ref, double grade.
+ *
+ * Version 1 and 2 files hold a string table of course IDs and names instead, and
+ * two refs per course, one for the ID and one for the name; they are still read.
+ * The record length lets a reader skip students without decoding them.
+ * Files are read and written through buffered NIO channels.
+ */
+public class RosterFile {
+
+    static final int MAGIC = 0x53475442;   // "SGTB"
+    static final short VERSION = 3;
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private RosterFile() {
+    }
+
+    /**
+     * Checks whether a file starts with the binary database header.
+     * @param path The file to check
+     * @return true if the file is in this format
+     * @throws IOException If the file cannot be read
+     */
+    public static boolean isRosterFile(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(4);
+            while (header.hasRemaining() && channel.read(header) >= 0) {
+                // keep reading until the magic number is complete or the file ends
+            }
+            return !header.hasRemaining() && header.getInt(0) == MAGIC;
+        }
+    }
+
+    /**
+     * Writes all students to a file, replacing its contents.
+     * @param path The file to write
+     * @param students The students to save
+     * @throws IOException If an I/O error occurs
+     */
+    public static void write(Path path, Collection<Student> students) throws IOException {
+        write(path, students, 0);
+    }
+
+    /**
+     * Writes all students to a file, replacing its contents.
+     * @param path The file to write
+     * @param students The students to save
+     * @param sequence The StudentManager change sequence the snapshot reflects
+     * @throws IOException If an I/O error occurs
+     */
+    public static void write(Path path, Collection<Student> students, long sequence) throws IOException {
+        CourseRefs refs = new CourseRefs();
+        for (Student s : students) {
+            for (Course c : s.getCourses()) {
+                refs.ref(c.getEntry());
+            }
+        }
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            Writer out = new Writer(channel);
+            out.putInt(MAGIC);
+            out.putShort(VERSION);
+            out.putLong(sequence);
+            out.putInt(refs.table.size());
+            for (CourseCatalog.Entry e : refs.table) {
+                out.putString(e.getCourseId());
+                out.putString(e.getCourseName());
+            }
+            out.putInt(students.size());
+            for (Student s : students) {
+                byte[] id = bytes(s.getStudentId());
+                byte[] name = bytes(s.getName());
+                byte[] lastName = bytes(s.getLastName());
+                int length = stringSize(id) + stringSize(name) + stringSize(lastName)
+                        + 4 + s.getCourses().size() * 12;
+                out.putInt(length);
+                out.putBytes(id);
+                out.putBytes(name);
+                out.putBytes(lastName);
+                out.putInt(s.getCourses().size());
+                for (Course c : s.getCourses()) {
+                    out.putInt(refs.ref(c.getEntry()));
+                    out.putDouble(c.getGrade());
+                }
+            }
+            out.flush();
+        }
+    }
+
+    /**
+     * Writes all students to a temporary file next to the target, forces it to disk
+     * and renames it over the target, so a crash at any point leaves either the old
+     * file or the new one, never a partly written file.
+     * @param path The file to replace
+     * @param students The students to save
+     * @param sequence The StudentManager change sequence the snapshot reflects
+     * @throws IOException If an I/O error occurs; the target is then unchanged
+     */
+    public static void writeAtomically(Path path, Collection<Student> students, long sequence) throws IOException {
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        write(temp, students, sequence);
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Reads all students from a file.
+     * @param path The file to read
+     * @param catalog The catalog to look the courses up in, normally the roster's that will hold them
+     * @return The students in the order they were saved
+     * @throws IOException If an I/O error occurs or the file is not in this format
+     */
+    public static List<Student> read(Path path, CourseCatalog catalog) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            Reader in = new Reader(channel);
+            short version = readVersion(in);
+            if (version >= 2) in.getLong(); // change sequence
+            CourseTable table = new CourseTable(in, version, catalog);
+            int count = in.getInt();
+            List<Student> students = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                in.getInt(); // record length, only needed when skipping
+                String id = in.getString();
+                students.add(readStudent(in, table, id));
+            }
+            return students;
+        }
+    }
+
+    /**
+     * Reads only the change sequence stored in a file's header.
+     * @param path The file to read
+     * @return The change sequence, or 0 for files written before it was recorded
+     * @throws IOException If an I/O error occurs or the file is not in this format
+     */
+    public static long readSequence(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return readSequence(new Reader(channel));
+        }
+    }
+
+    // Reads the header up to the change sequence, checking the magic number, and returns the version
+    static short readVersion(Reader in) throws IOException {
+        if (in.getInt() != MAGIC) {
+            throw new IOException("Not a student grade tracker database");
+        }
+        short version = in.getShort();
+        if (version > VERSION) {
+            throw new IOException("Unsupported database version " + version);
+        }
+        return version;
+    }
+
+    // Reads the header and returns the change sequence
+    static long readSequence(Reader in) throws IOException {
+        return readVersion(in) >= 2 ? in.getLong() : 0;
+    }
+
+    // Reads the rest of a student record once its ID has been read
+    static Student readStudent(Reader in, CourseTable table, String id) throws IOException {
+        String name = in.getString();
+        String lastName = in.getString();
+        Student student = new Student(name, lastName, id);
+        int courses = in.getInt();
+        for (int j = 0; j < courses; j++) {
+            student.addCourses(new Course(table.read(in), in.getDouble()));
+        }
+        return student;
+    }
+
+    /**
+     * The course table being written: each ID and name pair the students use, in
+     * the order first used. Entries of the first catalog seen are numbered through
+     * an array by handle; courses from another catalog, or from none, by their pair.
+     */
+    private static final class CourseRefs {
+        final List<CourseCatalog.Entry> table = new ArrayList<>();
+        private CourseCatalog catalog;
+        private int[] byHandle = new int[0]; // Each handle's number in the table + 1
+        private final Map<List<String>, Integer> byPair = new HashMap<>();
+
+        // Returns the entry's number in the table, adding it the first time it is seen
+        int ref(CourseCatalog.Entry e) {
+            e = e.current(); // A folded entry is written as the one it was renamed into
+            if (catalog == null) catalog = e.getCatalog();
+            if (catalog != null && e.getCatalog() == catalog) {
+                if (e.getHandle() >= byHandle.length) {
+                    byHandle = Arrays.copyOf(byHandle, Math.max(e.getHandle() + 1, catalog.size()));
+                }
+                if (byHandle[e.getHandle()] == 0) {
+                    table.add(e);
+                    byHandle[e.getHandle()] = table.size();
+                }
+                return byHandle[e.getHandle()] - 1;
+            }
+            CourseCatalog.Entry first = e;
+            return byPair.computeIfAbsent(Arrays.asList(e.getCourseId(), e.getCourseName()), k -> {
+                table.add(first);
+                return table.size() - 1;
+            });
+        }
+    }
+
+    /**
+     * The course table that follows the header, looked up in a CourseCatalog as
+     * it is read. Older files have a string table instead, and each course's ID
+     * and name are looked up as the course is read.
+     */
+    static final class CourseTable {
+        private final CourseCatalog catalog;
+        private final CourseCatalog.Entry[] entries; // Version 3 and later
+        private final String[] strings;              // Earlier versions
+
+        CourseTable(Reader in, short version, CourseCatalog catalog) throws IOException {
+            this.catalog = catalog;
+            int count = in.getInt();
+            if (version >= 3) {
+                entries = new CourseCatalog.Entry[count];
+                strings = null;
+                for (int i = 0; i < count; i++) {
+                    entries[i] = catalog.intern(in.getString(), in.getString());
+                }
+            } else {
+                entries = null;
+                strings = new String[count];
+                for (int i = 0; i < count; i++) {
+                    strings[i] = in.getString();
+                }
+            }
+        }
+
+        // Reads one course's reference and returns its catalog entry
+        CourseCatalog.Entry read(Reader in) throws IOException {
+            if (entries != null) {
+                return entries[in.getInt()];
+            }
+            String courseId = strings[in.getInt()];
+            return catalog.intern(courseId, strings[in.getInt()]);
+        }
+    }
+
+    private static byte[] bytes(String s) {
+        return s == null ? null : s.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static int stringSize(byte[] b) {
+        return 4 + (b == null ? 0 : b.length);
+    }
+
+    /**
+     * Buffered writer over a file channel. Strings are written as a length
+     * followed by UTF-8 bytes, with length -1 for null.
+     */
+    static final class Writer {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+
+        Writer(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        void putInt(int v) throws IOException { ensure(4); buffer.putInt(v); }
+
+        void putShort(short v) throws IOException { ensure(2); buffer.putShort(v); }
+
+        void putLong(long v) throws IOException { ensure(8); buffer.putLong(v); }
+
+        void putDouble(double v) throws IOException { ensure(8); buffer.putDouble(v); }
+
+        void putString(String s) throws IOException { putBytes(bytes(s)); }
+
+        void putBytes(byte[] b) throws IOException {
+            if (b == null) {
+                putInt(-1);
+                return;
+            }
+            putInt(b.length);
+            if (b.length > buffer.capacity()) {
+                flush();
+                ByteBuffer direct = ByteBuffer.wrap(b);
+                while (direct.hasRemaining()) channel.write(direct);
+                return;
+            }
+            ensure(b.length);
+            buffer.put(b);
+        }
+
+        void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) channel.write(buffer);
+            buffer.clear();
+        }
+
+        private void ensure(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) flush();
+        }
+    }
+
+    /**
+     * Buffered reader over a file channel, the counterpart of Writer.
+     */
+    static final class Reader {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+
+        Reader(FileChannel channel) {
+            this.channel = channel;
+            buffer.limit(0);
+        }
+
+        int getInt() throws IOException { require(4); return buffer.getInt(); }
+
+        short getShort() throws IOException { require(2); return buffer.getShort(); }
+
+        long getLong() throws IOException { require(8); return buffer.getLong(); }
+
+        double getDouble() throws IOException { require(8); return buffer.getDouble(); }
+
+        String getString() throws IOException {
+            int length = getInt();
+            if (length < 0) {
+                return null;
+            }
+            byte[] b = new byte[length];
+            int copied = Math.min(length, buffer.remaining());
+            buffer.get(b, 0, copied);
+            if (copied < length) {
+                ByteBuffer rest = ByteBuffer.wrap(b, copied, length - copied);
+                while (rest.hasRemaining()) {
+                    if (channel.read(rest) < 0) throw new EOFException("Truncated database file");
+                }
+            }
+            return new String(b, StandardCharsets.UTF_8);
+        }
+
+        void skip(int bytes) throws IOException {
+            int inBuffer = Math.min(bytes, buffer.remaining());
+            buffer.position(buffer.position() + inBuffer);
+            if (inBuffer < bytes) {
+                channel.position(channel.position() + (bytes - inBuffer));
+            }
+        }
+
+        private void require(int bytes) throws IOException {
+            if (buffer.remaining() >= bytes) return;
+            buffer.compact();
+            while (buffer.position() < bytes) {
+                if (channel.read(buffer) < 0) throw new EOFException("Truncated database file");
+            }
+            buffer.flip();
+        }
+    }
+}
@@ -0,0 +1,58 @@
+/**
+ * Receives a callback for every change made to the records held by a Roster.
+ * Register one with Roster.addListener. Every callback runs after the change
+ * has been applied, and Roster.getChangeSequence() returns the change's number.
+ * The students and courses passed in are the roster's own; listeners must not change them.
+ * All methods do nothing by default, so implementations only override what they need.
+ */
+public interface RosterListener {
+
+    /**
+     * A student (with any courses already attached) was added.
+     * @param student The new student
+     */
+    default void studentAdded(Student student) {
+    }
+
+    /**
+     * A student was removed.
+     * @param student The removed student
+     */
+    default void studentRemoved(Student student) {
+    }
+
+    /**
+     * A student's ID, first name or last name changed.
+     * @param student The student, holding the new values
+     * @param oldId The student's ID before the change
+     */
+    default void studentUpdated(Student student, String oldId) {
+    }
+
+    /**
+     * A course was added to a student.
+     * @param student The student
+     * @param course The new course
+     */
+    default void courseAdded(Student student, Course course) {
+    }
+
+    /**
+     * A course's ID, name or grade changed.
+     * @param student The student taking the course
+     * @param course The course, holding the new values
+     * @param oldId The course ID before the change
+     * @param oldGrade The grade before the change
+     */
+    default void courseUpdated(Student student, Course course, String oldId, double oldGrade) {
+    }
+
+    /**
+     * A course was renamed for every student taking it, by the roster's renameCourse.
+     * There is no courseUpdated call for each of those students.
+     * @param courseId The course ID
+     * @param courseName The new name
+     */
+    default void courseRenamed(String courseId, String courseName) {
+    }
+}
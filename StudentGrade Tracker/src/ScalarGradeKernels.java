@@ -0,0 +1,63 @@
+/**
+ * Plain-loop versions of the GradeKernels, used when the Vector API is not
+ * available. They add grades in exactly the order VectorGradeKernels does, so the
+ * two give bit-identical results; see GradeKernels.
+ */
+public class ScalarGradeKernels {
+
+    private static final int SUMS = GradeKernels.SUMS;
+
+    private ScalarGradeKernels() {
+    }
+
+    /**
+     * See GradeKernels.totals.
+     */
+    public static GradeKernels.Totals totals(double[] grades, int from, int to) {
+        double[] sums = new double[SUMS];
+        double highest = 0.0;
+        double lowest = Double.MAX_VALUE;
+        int i = from;
+        for (; i <= to - SUMS; i += SUMS) {
+            for (int j = 0; j < SUMS; j++) {
+                double g = grades[i + j];
+                sums[j] += g;
+                if (g > highest) highest = g;
+                if (g < lowest) lowest = g;
+            }
+        }
+        double tail = 0.0;
+        for (; i < to; i++) {
+            double g = grades[i];
+            tail += g;
+            if (g > highest) highest = g;
+            if (g < lowest) lowest = g;
+        }
+        return GradeKernels.totals(to - from, GradeKernels.combine(sums) + tail, highest, lowest);
+    }
+
+    /**
+     * See GradeKernels.countBelow.
+     */
+    public static int countBelow(double[] grades, int from, int to, double threshold) {
+        int count = 0;
+        for (int i = from; i < to; i++) {
+            if (grades[i] < threshold) count++;
+        }
+        return count;
+    }
+
+    /**
+     * See GradeKernels.histogram; the edges must already be checked.
+     */
+    public static int[] histogram(double[] grades, int from, int to, double[] edges) {
+        int[] atOrAbove = new int[edges.length];
+        for (int i = from; i < to; i++) {
+            double g = grades[i];
+            for (int e = 0; e < edges.length; e++) {
+                atOrAbove[e] += g >= edges[e] ? 1 : 0; // No early exit; it would mispredict on every grade
+            }
+        }
+        return GradeKernels.buckets(to - from, atOrAbove);
+    }
+}
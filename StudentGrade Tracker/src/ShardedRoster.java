@@ -0,0 +1,308 @@
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * A database split by student ID hash into several RosterFiles in one directory,
+ * so it can be loaded and saved on several threads, and a lookup only has to
+ * read the shard holding its student.
+ *
+ * Layout: a "manifest" properties file with the shard count, a generation number,
+ * the change sequence and the number of students per shard, and one RosterFile per
+ * shard named shard-INDEX.GENERATION.db. Saving writes a whole new generation of
+ * shard files, then replaces the manifest with an atomic rename, then deletes the
+ * old generation; a crash at any point leaves one complete generation that the
+ * manifest points to. Re-sharding is a save with a different shard count.
+ *
+ * Reading the whole set returns the students grouped by shard, each shard in the
+ * order it was saved.
+ */
+public class ShardedRoster {
+
+    /** Name of the file describing the current shards. */
+    public static final String MANIFEST = "manifest";
+
+    private final Path dir;
+    private final int shards;
+    private final long generation;
+    private final long sequence;
+    private final int[] counts;    // Students per shard
+
+    private ShardedRoster(Path dir, int shards, long generation, long sequence, int[] counts) {
+        this.dir = dir;
+        this.shards = shards;
+        this.generation = generation;
+        this.sequence = sequence;
+        this.counts = counts;
+    }
+
+    /**
+     * @param dir A path that may be a shard directory
+     * @return true if the path is a directory holding a shard manifest
+     */
+    public static boolean isShardedRoster(Path dir) {
+        return Files.isRegularFile(dir.resolve(MANIFEST));
+    }
+
+    /**
+     * Gets the shard a student belongs in. The same ID always maps to the same shard
+     * for a given shard count, in every JVM.
+     * @param studentId The student's ID
+     * @param shards The number of shards
+     * @return The shard index, from 0 to shards - 1
+     */
+    public static int shardOf(String studentId, int shards) {
+        int h = studentId.hashCode();
+        return Math.floorMod(h ^ (h >>> 16), shards);
+    }
+
+    /**
+     * Reads the manifest of a shard directory. No student is read.
+     * @param dir The shard directory
+     * @return The shard set
+     * @throws IOException If the manifest is missing or cannot be read
+     */
+    public static ShardedRoster open(Path dir) throws IOException {
+        Properties manifest = new Properties();
+        try (Reader in = Files.newBufferedReader(dir.resolve(MANIFEST), StandardCharsets.UTF_8)) {
+            manifest.load(in);
+        }
+        try {
+            int shards = Integer.parseInt(manifest.getProperty("shards"));
+            int[] counts = new int[shards];
+            for (int i = 0; i < shards; i++) {
+                counts[i] = Integer.parseInt(manifest.getProperty("count." + i));
+            }
+            return new ShardedRoster(dir, shards,
+                    Long.parseLong(manifest.getProperty("generation")),
+                    Long.parseLong(manifest.getProperty("sequence")), counts);
+        } catch (NumberFormatException e) { // also thrown for a missing property
+            throw new IOException("Damaged shard manifest in " + dir, e);
+        }
+    }
+
+    /**
+     * Saves students as a new generation of shards, writing the shards in parallel.
+     * @param dir The shard directory, created if needed
+     * @param shards The number of shards; may differ from the current count
+     * @param students The students to save
+     * @param sequence The change sequence to record
+     * @return The new shard set
+     * @throws IOException If an I/O error occurs; the previous generation is then left in place
+     */
+    public static ShardedRoster write(Path dir, int shards, Collection<Student> students, long sequence)
+            throws IOException {
+        if (shards < 1) {
+            throw new IllegalArgumentException("Shard count must be at least 1: " + shards);
+        }
+        Files.createDirectories(dir);
+        long generation = isShardedRoster(dir) ? open(dir).generation + 1 : 1;
+
+        List<List<Student>> parts = new ArrayList<>(shards);
+        for (int i = 0; i < shards; i++) {
+            parts.add(new ArrayList<>(students.size() / shards + 1));
+        }
+        for (Student s : students) {
+            parts.get(shardOf(s.getStudentId(), shards)).add(s);
+        }
+        int[] counts = new int[shards];
+        for (int i = 0; i < shards; i++) {
+            counts[i] = parts.get(i).size();
+        }
+
+        ShardedRoster written = new ShardedRoster(dir, shards, generation, sequence, counts);
+        inParallel(shards, i -> {
+            RosterFile.writeAtomically(written.file(i), parts.get(i), sequence);
+            return null;
+        });
+        written.writeManifest();
+        written.deleteOtherGenerations();
+        return written;
+    }
+
+    /**
+     * Saves a snapshot of the database, as a new generation of shards with the same
+     * count if the path is a shard directory, or else as one RosterFile replaced
+     * atomically.
+     * @param path The database file or shard directory
+     * @param students The students to save
+     * @param sequence The change sequence to record
+     * @throws IOException If an I/O error occurs
+     */
+    public static void writeSnapshot(Path path, Collection<Student> students, long sequence) throws IOException {
+        if (isShardedRoster(path)) {
+            write(path, open(path).shards, students, sequence);
+        } else {
+            RosterFile.writeAtomically(path, students, sequence);
+        }
+    }
+
+    /**
+     * Deletes a shard directory and everything in it. The manifest goes first, so an
+     * interrupted delete never leaves a partial set that looks complete.
+     * @param dir The shard directory
+     * @throws IOException If an I/O error occurs
+     */
+    public static void delete(Path dir) throws IOException {
+        Files.deleteIfExists(dir.resolve(MANIFEST));
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "shard-*")) {
+            for (Path f : files) Files.delete(f);
+        }
+        Files.deleteIfExists(dir.resolve(MANIFEST + ".tmp"));
+        Files.delete(dir);
+    }
+
+    public int getShardCount() { return shards; }
+
+    /**
+     * @return The change sequence recorded when the shards were saved
+     */
+    public long getSequence() { return sequence; }
+
+    /**
+     * @param shard The shard index
+     * @return The number of students in the shard
+     */
+    public int getCount(int shard) { return counts[shard]; }
+
+    /**
+     * @return The number of students in every shard together
+     */
+    public int size() {
+        int total = 0;
+        for (int c : counts) total += c;
+        return total;
+    }
+
+    /**
+     * @param studentId A student ID
+     * @return The shard holding the student, if they are saved here
+     */
+    public int shardOf(String studentId) {
+        return shardOf(studentId, shards);
+    }
+
+    /**
+     * Reads the students of one shard.
+     * @param shard The shard index
+     * @param catalog The catalog to look the courses up in
+     * @return The shard's students in the order they were saved
+     * @throws IOException If an I/O error occurs
+     */
+    public List<Student> read(int shard, CourseCatalog catalog) throws IOException {
+        return RosterFile.read(file(shard), catalog);
+    }
+
+    /**
+     * Reads several shards in parallel.
+     * @param shardIndexes The shards to read
+     * @param catalog The catalog to look the courses up in
+     * @return The students of each shard, in the order the shards were given
+     * @throws IOException If an I/O error occurs
+     */
+    public List<List<Student>> read(int[] shardIndexes, CourseCatalog catalog) throws IOException {
+        return inParallel(shardIndexes.length, i -> read(shardIndexes[i], catalog));
+    }
+
+    /**
+     * Reads every shard in parallel.
+     * @param catalog The catalog to look the courses up in
+     * @return Every student, grouped by shard
+     * @throws IOException If an I/O error occurs
+     */
+    public List<Student> readAll(CourseCatalog catalog) throws IOException {
+        int[] all = new int[shards];
+        for (int i = 0; i < shards; i++) all[i] = i;
+        List<Student> students = new ArrayList<>(size());
+        for (List<Student> part : read(all, catalog)) {
+            students.addAll(part);
+        }
+        return students;
+    }
+
+    private Path file(int shard) {
+        return dir.resolve("shard-" + shard + "." + generation + ".db");
+    }
+
+    private void writeManifest() throws IOException {
+        Properties manifest = new Properties();
+        manifest.setProperty("shards", Integer.toString(shards));
+        manifest.setProperty("generation", Long.toString(generation));
+        manifest.setProperty("sequence", Long.toString(sequence));
+        for (int i = 0; i < shards; i++) {
+            manifest.setProperty("count." + i, Integer.toString(counts[i]));
+        }
+        Path temp = dir.resolve(MANIFEST + ".tmp");
+        try (Writer out = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+            manifest.store(out, "Student grade tracker shards");
+        }
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+        Files.move(temp, dir.resolve(MANIFEST), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // Removes shard files left by earlier generations, or by a save that failed part way
+    private void deleteOtherGenerations() throws IOException {
+        String suffix = "." + generation + ".db";
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "shard-*")) {
+            for (Path f : files) {
+                if (!f.getFileName().toString().endsWith(suffix)) Files.delete(f);
+            }
+        }
+    }
+
+    // One shard's worth of work
+    private interface ShardTask<T> {
+        T run(int index) throws IOException;
+    }
+
+    // Runs one task per shard on up to one thread per core and returns the results in order
+    private static <T> List<T> inParallel(int tasks, ShardTask<T> task) throws IOException {
+        int threads = Math.max(1, Math.min(tasks, Runtime.getRuntime().availableProcessors()));
+        if (threads == 1) {
+            List<T> results = new ArrayList<>(tasks);
+            for (int i = 0; i < tasks; i++) results.add(task.run(i));
+            return results;
+        }
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<T>> futures = new ArrayList<>(tasks);
+            for (int i = 0; i < tasks; i++) {
+                int index = i;
+                futures.add(pool.submit(() -> task.run(index)));
+            }
+            List<T> results = new ArrayList<>(tasks);
+            for (Future<T> f : futures) {
+                results.add(f.get());
+            }
+            return results;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while reading or writing shards", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException io) throw io;
+            if (cause instanceof UncheckedIOException io) throw io.getCause();
+            throw new IOException("Shard task failed: " + cause, cause);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,139 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs snapshot writes on a background thread, one at a time, and optionally
+ * triggers them on a fixed autosave interval.
+ *
+ * The caller takes a snapshot of the records (see StudentManager.snapshot) and
+ * submits a task that writes it, normally with RosterFile.writeAtomically, so the
+ * caller never waits for the file. Submitted writes are queued and run in the
+ * order they were submitted; submit itself never waits for a write. A failed
+ * write is reported by the next submit, awaitInFlight or close.
+ */
+public class Snapshotter implements Closeable {
+
+    /** A write to run in the background. */
+    public interface Task {
+        void run() throws IOException;
+    }
+
+    private final ExecutorService writer;
+    private ScheduledExecutorService timer;
+    private Future<?> inFlight;  // The last write submitted; the writes before it finish first
+    private Throwable failure;   // The first failed write not yet reported
+
+    /**
+     * @param name Name of the background thread
+     */
+    public Snapshotter(String name) {
+        this.writer = Executors.newSingleThreadExecutor(r -> daemon(r, name));
+    }
+
+    /**
+     * Queues a write to run in the background after the ones already submitted.
+     * @param task The write
+     * @throws IOException If an earlier write failed; the task is not queued
+     */
+    public synchronized void submit(Task task) throws IOException {
+        reportFailure();
+        inFlight = writer.submit(() -> {
+            try {
+                task.run();
+            } catch (IOException | RuntimeException e) {
+                failed(e);
+            }
+        });
+    }
+
+    /**
+     * @return true while a write is running or queued
+     */
+    public synchronized boolean isWriting() {
+        return inFlight != null && !inFlight.isDone();
+    }
+
+    /**
+     * Waits for every submitted write to finish. Does not start a new one.
+     * @throws IOException If a write failed
+     */
+    public void awaitInFlight() throws IOException {
+        Future<?> pending;
+        synchronized (this) {
+            pending = inFlight; // Not held while waiting, so submit never waits behind it
+        }
+        if (pending != null) {
+            try {
+                pending.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while waiting for a snapshot", e);
+            } catch (ExecutionException e) {
+                failed(e.getCause());
+            }
+        }
+        synchronized (this) {
+            if (inFlight == pending) inFlight = null;
+            reportFailure();
+        }
+    }
+
+    private synchronized void failed(Throwable cause) {
+        if (failure == null) failure = cause;
+    }
+
+    // Throws the first failed write since the last report, if any
+    private synchronized void reportFailure() throws IOException {
+        Throwable cause = failure;
+        failure = null;
+        if (cause == null) return;
+        if (cause instanceof IOException io) throw io;
+        if (cause instanceof UncheckedIOException io) throw io.getCause();
+        throw new IOException("Snapshot failed: " + cause, cause);
+    }
+
+    /**
+     * Runs an action every interval on a background timer thread. The action is
+     * responsible for any locking the records it saves need.
+     * @param seconds The autosave interval; 0 or less does nothing
+     * @param action Usually takes a snapshot of the records and submits its write
+     */
+    public synchronized void scheduleEvery(long seconds, Runnable action) {
+        if (seconds <= 0) {
+            return;
+        }
+        if (timer == null) {
+            timer = Executors.newSingleThreadScheduledExecutor(r -> daemon(r, "autosave"));
+        }
+        timer.scheduleWithFixedDelay(action, seconds, seconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Stops the autosave timer, waits for the write in flight and stops the writer thread.
+     * @throws IOException If the last write failed
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            if (timer != null) timer.shutdownNow();
+        }
+        try {
+            awaitInFlight();
+        } finally {
+            writer.shutdown();
+        }
+    }
+
+    private static Thread daemon(Runnable r, String name) {
+        Thread t = new Thread(r, name);
+        t.setDaemon(true);
+        return t;
+    }
+}
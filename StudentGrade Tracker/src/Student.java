@@ -1,24 +1,38 @@
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * This class represents a student with personal information and a list of enrolled courses.
  * Implements Serializable so that we can save and load the student data.
+ * Courses are also indexed by course ID so lookups don't scan the whole list.
  */
 public class Student implements Serializable {
+    // Pinned to the value of the original class so existing Database.txt files still load
+    private static final long serialVersionUID = -1440796732580438253L;
 
     private String name;        // Student's first name
     private String lastName;    // Student's last name
     private String studentId;   // Unique ID for each student
     private List<Course> course; // A list to hold the courses the student is taking
 
+    private transient Map<String, Course> courseIndex; // Course ID -> course, rebuilt after loading
+    private transient StudentManager manager;          // Manager whose index holds this student
+    private transient GradeStats stats;                // Running grade statistics over the courses
+
     // Constructor to initialize student information
     public Student(String name, String lastName, String studentId) {
         this.studentId = studentId;
         this.name = name;
         this.lastName = lastName;
         this.course = new ArrayList<>();
+        this.courseIndex = new HashMap<>();
+        this.stats = new GradeStats(course);
     }
 
     // Getter methods to access student data
@@ -26,16 +40,127 @@ public class Student implements Serializable {
 
     public String getName() { return name; }
 
-    public List<Course> getCourses() { return course; }
+    public List<Course> getCourses() { return Collections.unmodifiableList(course); }
 
     public String getLastName() { return lastName; }
 
+    /**
+     * Looks up one of the student's courses by its ID.
+     * @param courseId The course ID to look for
+     * @return The matching course, or null if the student is not enrolled in it
+     */
+    public Course getCourse(String courseId) { return courseIndex.get(courseId); }
+
+    /**
+     * Gets the running grade statistics, kept current as courses are added or regraded.
+     * @return The student's grade statistics
+     */
+    public GradeStats getStats() { return stats; }
+
     // Setter methods to update student information if needed later
-    public void setStudentId(String studentId) { this.studentId = studentId; }
+    public void setStudentId(String studentId) {
+        beforeChange();
+        String oldId = this.studentId;
+        if (manager != null) manager.reindexStudent(this, studentId);
+        this.studentId = studentId;
+        if (manager != null) manager.studentChanged(this, oldId);
+    }
 
-    public void addCourses(Course courses) { this.course.add(courses); }
+    public void addCourses(Course courses) {
+        beforeChange();
+        if (manager != null) courses.join(manager.getCatalog());
+        this.course.add(courses);
+        courses.setOwner(this);
+        courseIndex.putIfAbsent(courses.getCourseId(), courses);
+        stats.add(courses.getGrade());
+        if (manager != null) manager.courseAdded(this, courses);
+    }
 
-    public void setLastName(String lastName) { this.lastName = lastName; }
+    public void setLastName(String lastName) {
+        beforeChange();
+        this.lastName = lastName;
+        if (manager != null) manager.studentChanged(this, studentId);
+    }
+
+    public void setName(String name) {
+        beforeChange();
+        this.name = name;
+        if (manager != null) manager.studentChanged(this, studentId);
+    }
+
+    /**
+     * Makes a detached copy of the student and their courses, not attached to any manager.
+     * The copied courses share their IDs and names with the originals through the CourseCatalog.
+     * @return The copy
+     */
+    Student copy() {
+        Student copy = new Student(name, lastName, studentId);
+        for (Course c : course) {
+            copy.addCourses(new Course(c.getEntry(), c.getGrade()));
+        }
+        return copy;
+    }
 
-    public void setName(String name) { this.name = name; }
+    /**
+     * Makes a detached copy whose courses take their IDs and names from a copy
+     * of the catalog, so renames made after the catalog was copied do not show in it.
+     * @param catalog A copy of the catalog the student's courses are in
+     * @return The copy
+     */
+    Student copy(CourseCatalog catalog) {
+        Student copy = new Student(name, lastName, studentId);
+        for (Course c : course) {
+            copy.addCourses(new Course(catalog.copyOf(c.getEntry()), c.getGrade()));
+        }
+        return copy;
+    }
+
+    // Moves the courses into a roster's catalog; called before the roster indexes the student
+    void join(CourseCatalog catalog) {
+        for (Course c : course) c.join(catalog);
+    }
+
+    // Called by StudentManager when the student is added to or removed from its index
+    void setManager(StudentManager manager) { this.manager = manager; }
+
+    // Called before the student or one of their courses changes, so a snapshot in progress can keep the old record
+    void beforeChange() {
+        if (manager != null) manager.beforeChange(this);
+    }
+
+    /**
+     * Moves a course to its new key after its ID was changed.
+     * If another course still uses the old ID, it takes over the old key.
+     */
+    void reindexCourse(Course changed, String oldId) {
+        if (courseIndex.get(oldId) == changed) {
+            courseIndex.remove(oldId);
+            for (Course c : course) {
+                if (c != changed && c.getCourseId().equals(oldId)) {
+                    courseIndex.put(oldId, c);
+                    break;
+                }
+            }
+        }
+        courseIndex.putIfAbsent(changed.getCourseId(), changed);
+    }
+
+    // Called by Course after any of its fields change, to keep the index and statistics current
+    void courseChanged(Course changed, String oldId, double oldGrade) {
+        if (!changed.getCourseId().equals(oldId)) reindexCourse(changed, oldId);
+        if (Double.compare(oldGrade, changed.getGrade()) != 0) stats.replace(oldGrade, changed.getGrade());
+        if (manager != null) manager.courseChanged(this, changed, oldId, oldGrade);
+    }
+
+    // Rebuilds the transient course index and statistics after deserialization
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        courseIndex = new HashMap<>();
+        stats = new GradeStats(course);
+        for (Course c : course) {
+            c.setOwner(this);
+            courseIndex.putIfAbsent(c.getCourseId(), c);
+            stats.add(c.getGrade());
+        }
+    }
 }
@@ -1,31 +1,199 @@
 import java.io.*;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
-import java.util.Comparator;
+import java.util.BitSet;
+import java.util.Formatter;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * Manages student records including their courses and grades.
  * Provides functionality to add, remove, update students and courses,
  * generate reports, and persist data to files.
  * Implements Serializable to support object serialization for data persistence.
+ * Students are kept in a map keyed by student ID so lookups run in constant time.
+ * Every change is numbered and reported to registered RosterListeners.
+ * With mapFromFile, students stay in the memory-mapped file until an operation touches them;
+ * with openShards, each shard of a ShardedRoster is read when a student in it is first needed.
  */
-public class StudentManager implements Serializable {
+public class StudentManager implements Serializable, Roster {
     private static final long serialVersionUID = 1L;
-    private List<Student> students;
+    private Map<String, Student> students;
+    private transient GradeStats classStats; // Running statistics over every grade in the class
+    private transient List<RosterListener> listeners; // Notified after every change
+    private transient long changeSequence;   // Number of the latest change
+    private transient MappedRoster mapped;   // Students not yet read from a mapped file, or null
+    private transient ShardedRoster sharded; // Shard set with shards not yet read, or null
+    private transient BitSet unreadShards;   // Shards of sharded not yet read
+    private transient int unreadCount;       // Students in the unread shards
+    private transient ColumnarGradeStore columnar; // Column copy of the grades, created on first use
+    private transient GradeRanking ranking;  // Students ranked by average, created on first use
+    private transient CourseIndex courseIndex; // Enrollments by course ID, created on first use
+    private transient NameSearch nameSearch; // Prefix and typo-tolerant name search, created on first use
+    private transient GradeHistory gradeHistory; // Every grade change with its time, recorded from first use
+    private transient NameIndex nameIndex;   // Students in first-name order, for reports
+    private transient ReportCache reportCache; // Rendered searchStudent reports, dropped as students change
+    private transient List<Snapshot> snapshots; // Snapshots not yet copied; see beforeChange
+    private transient CourseCatalog catalog; // Course IDs and names of this manager's students
 
     /**
      * Initializes a new StudentManager with an empty student list.
      */
     public StudentManager() {
-        this.students = new ArrayList<>();
+        this.students = new LinkedHashMap<>();
+        this.classStats = new GradeStats();
+        this.listeners = new ArrayList<>();
+        this.nameIndex = new NameIndex();
+        this.reportCache = new ReportCache();
+        this.listeners.add(reportCache);
+        this.snapshots = new CopyOnWriteArrayList<>();
+        this.catalog = new CourseCatalog();
     }
 
     /**
      * Gets the list of all students.
-     * @return List of Student objects
+     * @return List of Student objects, in insertion order
      */
     public List<Student> getStudents() {
-        return students;
+        materializeAll();
+        return new ArrayList<>(students.values());
+    }
+
+    /**
+     * Looks up a student by their ID.
+     * @param studentId The ID of the student
+     * @return The matching student, or null if there is none
+     */
+    public Student getStudent(String studentId) {
+        return find(studentId);
+    }
+
+    /**
+     * Gets the catalog holding the course IDs and names of this manager's students.
+     * Courses added to the manager are moved into it. Loading a file replaces it.
+     * @return The course catalog
+     */
+    public CourseCatalog getCatalog() {
+        return catalog;
+    }
+
+    /**
+     * Gets the number of students, including any not yet read from a mapped file or shard.
+     * @return The number of students
+     */
+    public int getStudentCount() {
+        return students.size() + (mapped == null ? 0 : mapped.remaining()) + unreadCount;
+    }
+
+    /**
+     * Gets the running statistics over every grade of every student.
+     * @return Class-wide grade statistics
+     */
+    public GradeStats getClassStats() {
+        materializeAll();
+        return classStats;
+    }
+
+    /**
+     * Gets the column-oriented copy of every grade, for analytics scans.
+     * It is built on first use and then kept current as records change.
+     * @return The columnar grade store
+     */
+    public ColumnarGradeStore getColumnarStore() {
+        if (columnar == null) {
+            columnar = ColumnarGradeStore.attach(this);
+        }
+        return columnar;
+    }
+
+    /**
+     * Gets the class ranking by average grade, for rank, top-N, percentile and
+     * distribution queries. It is built on first use and then kept current.
+     * @return The grade ranking
+     */
+    public GradeRanking getRanking() {
+        if (ranking == null) {
+            ranking = GradeRanking.attach(this);
+        }
+        return ranking;
+    }
+
+    /**
+     * Gets the index of enrollments by course ID, with running statistics per course.
+     * It is built on first use and then kept current.
+     * @return The course index
+     */
+    public CourseIndex getCourseIndex() {
+        if (courseIndex == null) {
+            courseIndex = CourseIndex.attach(this);
+        }
+        return courseIndex;
+    }
+
+    /**
+     * Gets the prefix and typo-tolerant search over student names.
+     * It is built on first use and then kept current.
+     * @return The name search
+     */
+    public NameSearch getNameSearch() {
+        if (nameSearch == null) {
+            nameSearch = NameSearch.attach(this);
+        }
+        return nameSearch;
+    }
+
+    /**
+     * Gets the history of every grade change, for reports as of an earlier time.
+     * Recording starts on first use; grades changed before then are not in it.
+     * @return The grade history
+     */
+    public GradeHistory getGradeHistory() {
+        if (gradeHistory == null) {
+            gradeHistory = GradeHistory.attach(this);
+        }
+        return gradeHistory;
+    }
+
+    /**
+     * Gets the cache of rendered student reports used by searchStudent.
+     * @return The report cache, with its hit, miss and eviction counts
+     */
+    public ReportCache getReportCache() {
+        return reportCache;
+    }
+
+    /**
+     * Registers a listener to be told about every change to the records.
+     * @param listener The listener to add
+     */
+    public void addListener(RosterListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Stops notifying a listener.
+     * @param listener The listener to remove
+     */
+    public void removeListener(RosterListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Gets the number of the latest change. It goes up by one for every change,
+     * and is saved with the data so it keeps counting across restarts.
+     * @return The current change sequence
+     */
+    public long getChangeSequence() {
+        return changeSequence;
+    }
+
+    // Used when replaying a journal, so replayed changes keep their original numbers
+    void setChangeSequence(long changeSequence) {
+        this.changeSequence = changeSequence;
     }
 
     /**
@@ -34,6 +202,10 @@ public class StudentManager implements Serializable {
      * @param student The student to add
      */
     public void addStudent(Student student) {
+        if (find(student.getStudentId()) != null) {
+            System.out.println("Student with ID " + student.getStudentId() + " already exists!");
+            return;
+        }
         int courseCount = InputeHelper.getInt("How many courses has the student enrolled in?");
         for (int i = 0; i < courseCount; i++) {
             System.out.println("\nCourse Details #" + (i + 1));
@@ -42,79 +214,158 @@ public class StudentManager implements Serializable {
             double grade = InputeHelper.getGrade("Enter Grade (0-100): ");
             student.addCourses(new Course(courseId, courseName, grade));
         }
-        students.add(student);
+        registerStudent(student);
         System.out.println("\nStudent with courses successfully added.");
     }
 
+    /**
+     * Adds a student, along with any courses already attached, without prompting.
+     * @param student The student to add
+     * @return true if the student was added, false if the ID is already taken
+     */
+    public boolean registerStudent(Student student) {
+        if (sharded != null) {
+            readShard(sharded.shardOf(student.getStudentId()));
+        }
+        if (mapped != null && mapped.contains(student.getStudentId())
+                || students.putIfAbsent(student.getStudentId(), student) != null) {
+            return false;
+        }
+        student.join(catalog);
+        student.setManager(this);
+        classStats.addAll(student.getCourses());
+        nameIndex.add(student);
+        changeSequence++;
+        for (RosterListener l : listeners) l.studentAdded(student);
+        return true;
+    }
+
     /**
      * Removes a student by their ID.
      * @param studentId The ID of the student to remove
      * @return true if student was found and removed, false otherwise
      */
     public boolean removeStudent(String studentId) {
-        return students.removeIf(s -> s.getStudentId().equals(studentId));
+        Student removed = find(studentId);
+        if (removed == null) {
+            return false;
+        }
+        beforeChange(removed); // Detached, the record could change without a snapshot hearing of it
+        students.remove(studentId);
+        nameIndex.remove(removed);
+        removed.setManager(null);
+        classStats.removeAll(removed.getCourses());
+        changeSequence++;
+        for (RosterListener l : listeners) l.studentRemoved(removed);
+        return true;
+    }
+
+    // Called by Student when a course is added so the class statistics stay current
+    void courseAdded(Student student, Course course) {
+        classStats.add(course.getGrade());
+        changeSequence++;
+        for (RosterListener l : listeners) l.courseAdded(student, course);
+    }
+
+    // Called by Student after one of its courses changed
+    void courseChanged(Student student, Course course, String oldId, double oldGrade) {
+        if (Double.compare(oldGrade, course.getGrade()) != 0) classStats.replace(oldGrade, course.getGrade());
+        changeSequence++;
+        for (RosterListener l : listeners) l.courseUpdated(student, course, oldId, oldGrade);
+    }
+
+    /**
+     * Renames a course for every student taking it, by changing its name in the
+     * manager's CourseCatalog. No student record is visited.
+     * @param courseId The ID of the course
+     * @param courseName The new name
+     * @return false if no course has that ID
+     */
+    public boolean renameCourse(String courseId, String courseName) {
+        materializeAll(); // Students still in a file would otherwise be read with the old name
+        if (!catalog.rename(courseId, courseName)) {
+            return false;
+        }
+        changeSequence++;
+        for (RosterListener l : listeners) l.courseRenamed(courseId, courseName);
+        return true;
+    }
+
+    // Called by Student after its ID or name changed
+    void studentChanged(Student student, String oldId) {
+        nameIndex.rename(student);
+        changeSequence++;
+        for (RosterListener l : listeners) l.studentUpdated(student, oldId);
     }
 
     /**
-     * Updates course information for a student.
+     * Moves a student to a new key in the index when their ID changes.
+     * Called by Student.setStudentId before the new ID is stored.
+     * @param student The student whose ID is changing
+     * @param newId The ID the student is about to take
+     * @throws IllegalArgumentException If another student already has the new ID
+     */
+    void reindexStudent(Student student, String newId) {
+        String oldId = student.getStudentId();
+        if (oldId.equals(newId)) {
+            return;
+        }
+        if (find(newId) != null) {
+            throw new IllegalArgumentException("Student ID " + newId + " is already in use");
+        }
+        students.remove(oldId);
+        students.put(newId, student);
+    }
+
+    /**
+     * Updates course information for a student. A new course name is given to
+     * every student taking the course (see renameCourse).
      * @param studentId The ID of the student
      * @param courseId The ID of the course to update
      */
 
 
     public void updateCourse(String studentId, String courseId) {
-        boolean studentFound = false;
-        boolean courseFound = false;
-
-        for (Student student : students) {
-            if (student.getStudentId().equals(studentId)) {
-                studentFound = true;
-
-                for (Course course : student.getCourses()) {
-                    if (course.getCourseId().equals(courseId)) {
-                        courseFound = true;
-
-                        System.out.println("\nCurrent Course Details:");
-                        System.out.println("1. Course Name: " + course.getCourseName());
-                        System.out.println("2. Course ID: " + course.getCourseId());
-                        System.out.println("3. Grade: " + course.getGrade());
-
-                        System.out.println("\nEnter new values (press Enter to keep current):");
-                        String newName = InputeHelper.getString("New course name [" + course.getCourseName() + "]: ");
-                        String newId = InputeHelper.getString("New course ID [" + course.getCourseId() + "]: ");
-                        String gradeInput = InputeHelper.getString("New grade [" + course.getGrade() + "]: ");
-
-                        if (!newName.isEmpty()) course.setCourseName(newName);
-                        if (!newId.isEmpty()) course.setCourseId(newId);
-                        if (!gradeInput.isEmpty()) {
-                            try {
-                                double newGrade = Double.parseDouble(gradeInput);
-                                if (newGrade >= 0 && newGrade <= 100) {
-                                    course.setGrade(newGrade);
-                                } else {
-                                    System.out.println("Grade must be 0-100. Keeping old value.");
-                                }
-                            } catch (NumberFormatException e) {
-                                System.out.println("Invalid grade format. Keeping old value.");
-                            }
-                        }
-
-                        System.out.println("Course updated successfully!");
-                        break;
-                    }
-                }
-
-                if (!courseFound) {
-                    System.out.println("Course with ID " + courseId + " not found for student " + studentId);
-                }
-
-                break;
-            }
+        Student student = find(studentId);
+        if (student == null) {
+            System.out.println("Student with ID " + studentId + " not found!");
+            return;
         }
 
-        if (!studentFound) {
-            System.out.println("Student with ID " + studentId + " not found!");
+        Course course = student.getCourse(courseId);
+        if (course == null) {
+            System.out.println("Course with ID " + courseId + " not found for student " + studentId);
+            return;
+        }
+
+        System.out.println("\nCurrent Course Details:");
+        System.out.println("1. Course Name: " + course.getCourseName());
+        System.out.println("2. Course ID: " + course.getCourseId());
+        System.out.println("3. Grade: " + course.getGrade());
+
+        System.out.println("\nEnter new values (press Enter to keep current):");
+        String newName = InputeHelper.getString("New course name [" + course.getCourseName() + "]: ");
+        String newId = InputeHelper.getString("New course ID [" + course.getCourseId() + "]: ");
+        String gradeInput = InputeHelper.getString("New grade [" + course.getGrade() + "]: ");
+
+        if (!newName.isEmpty()) {
+            renameCourse(course.getCourseId(), newName);
+            System.out.println("Course " + course.getCourseId() + " is now named " + newName
+                    + " for every student taking it.");
+        }
+        if (!newId.isEmpty()) course.setCourseId(newId);
+        if (!gradeInput.isEmpty()) {
+            double newGrade = InputeHelper.parseDouble(gradeInput);
+            if (Double.isNaN(newGrade)) {
+                System.out.println("Invalid grade format. Keeping old value.");
+            } else if (newGrade >= 0 && newGrade <= 100) {
+                course.setGrade(newGrade);
+            } else {
+                System.out.println("Grade must be 0-100. Keeping old value.");
+            }
         }
+
+        System.out.println("Course updated successfully!");
     }
 
 
@@ -123,45 +374,71 @@ public class StudentManager implements Serializable {
      * @param studentId The ID of the student
      */
     public void addCourse(String studentId){
-        for(Student s:students){
-            if(s.getStudentId().equals(studentId)){
-                String cName=InputeHelper.getString("Enter courseName: ");
-                String cId=InputeHelper.getString("Enter course ID: ");
-                double grad=InputeHelper.getGrade("Enter Grade:");
-                s.addCourses(new Course(cId,cName,grad));
-                System.out.println("Course added successfully!");
-            }
-
+        Student s = find(studentId);
+        if (s == null) {
+            System.out.println("Student with ID " + studentId + " not found!");
+            return;
         }
-
+        String cName=InputeHelper.getString("Enter courseName: ");
+        String cId=InputeHelper.getString("Enter course ID: ");
+        double grad=InputeHelper.getGrade("Enter Grade:");
+        s.addCourses(new Course(cId,cName,grad));
+        System.out.println("Course added successfully!");
     }
 
 
     /**
      * Searches for a student and displays their complete report.
+     * Reports are cached (see ReportCache) until the student's record changes.
      * @param studentId The ID of the student to search for
      */
     public void searchStudent(String studentId) {
-        students.stream()
-                .filter(s -> s.getStudentId().equals(studentId))
-                .findFirst()
-                .ifPresent(student -> {
-                    GradeCalculator gc = new GradeCalculator();
-                    System.out.println("\n------ STUDENT REPORT ------");
-                    System.out.printf("%-15s: %s %s\n", "Full Name", student.getName(), student.getLastName());
-                    System.out.printf("%-15s: %s\n", "ID", student.getStudentId());
-
-                    System.out.println("\n--- ENROLLED COURSES ---");
-                    System.out.printf("%-10s %-20s %s\n", "ID", "Course Name", "Grade");
-                    student.getCourses().forEach(c ->
-                            System.out.printf("%-10s %-20s %.2f\n",
-                                    c.getCourseId(), c.getCourseName(), c.getGrade()));
-
-                    System.out.println("\n--- GRADE SUMMARY ---");
-                    System.out.printf("%-15s: %.2f\n", "Highest Grade", gc.get_HighestGrade(student));
-                    System.out.printf("%-15s: %.2f\n", "Lowest Grade", gc.get_LowestGrade(student));
-                    System.out.printf("%-15s: %.2f\n", "Average Grade", gc.get_Average(student));
-                });
+        Student student = find(studentId);
+        if (student == null) {
+            return;
+        }
+        System.out.print(reportCache.get(student, StudentManager::renderReport));
+    }
+
+    /**
+     * Displays a student's report as it stood at an earlier time (see GradeHistory).
+     * A student whose grades have not changed since gets the cached current report.
+     * @param studentId The student's ID, or the ID they had when they were removed
+     * @param asOf Milliseconds since the epoch
+     * @return false if no student with that ID was on the roster at that time
+     * @throws IllegalArgumentException If the history cannot answer for that time (see GradeHistory.canAnswer)
+     */
+    public boolean searchStudent(String studentId, long asOf) {
+        Student student = find(studentId);
+        Student past = getGradeHistory().asOf(studentId, asOf);
+        if (past == null) {
+            return false;
+        }
+        System.out.print(past == student ? reportCache.get(student, StudentManager::renderReport) : renderReport(past));
+        return true;
+    }
+
+    // Formats the report printed by searchStudent
+    private static String renderReport(Student student) {
+        GradeCalculator gc = new GradeCalculator();
+        String nl = System.lineSeparator();
+        StringBuilder sb = new StringBuilder(256 + 48 * student.getCourses().size());
+        Formatter f = new Formatter(sb);
+        sb.append("\n------ STUDENT REPORT ------").append(nl);
+        f.format("%-15s: %s %s\n", "Full Name", student.getName(), student.getLastName());
+        f.format("%-15s: %s\n", "ID", student.getStudentId());
+
+        sb.append("\n--- ENROLLED COURSES ---").append(nl);
+        f.format("%-10s %-20s %s\n", "ID", "Course Name", "Grade");
+        student.getCourses().forEach(c ->
+                f.format("%-10s %-20s %.2f\n",
+                        c.getCourseId(), c.getCourseName(), c.getGrade()));
+
+        sb.append("\n--- GRADE SUMMARY ---").append(nl);
+        f.format("%-15s: %.2f\n", "Highest Grade", gc.get_HighestGrade(student));
+        f.format("%-15s: %.2f\n", "Lowest Grade", gc.get_LowestGrade(student));
+        f.format("%-15s: %.2f\n", "Average Grade", gc.get_Average(student));
+        return sb.toString();
     }
 
     /**
@@ -170,72 +447,356 @@ public class StudentManager implements Serializable {
      * - Overall class statistics
      */
     public void studentReport() {
+        studentReport(false);
+    }
+
+    /**
+     * Generates the class report, optionally splitting the work across a ForkJoinPool.
+     * Both modes print the same report.
+     * @param parallel true to compute the report in parallel
+     */
+    public void studentReport(boolean parallel) {
+        materializeAll();
         if (students.isEmpty()) {
             System.out.println("No students found in records.");
             return;
         }
+        ClassReport.build(nameIndex.inOrder(), parallel).print(System.out);
+    }
 
-        GradeCalculator gc = new GradeCalculator();
-        students.sort(Comparator.comparing(Student::getName));
-
-        // Initialize overall statistics
-        double classHighest = Double.MIN_VALUE;
-        double classLowest = Double.MAX_VALUE;
-        double sumAllGrades = 0;
-        int totalCourses = 0;
-
-        // Print report header
-        System.out.println("\n=============== CLASS GRADE REPORT ===============");
-        System.out.printf("%-20s %10s %10s %10s\n", "STUDENT NAME", "HIGHEST", "AVERAGE", "LOWEST");
-        System.out.println("------------------------------------------------");
-
-        // Process each student
-        for (Student student : students) {
-            double highest = gc.get_HighestGrade(student);
-            double average = gc.get_Average(student);
-            double lowest = gc.get_LowestGrade(student);
-
-            // Update overall statistics
-            classHighest = Math.max(classHighest, highest);
-            classLowest = Math.min(classLowest, lowest);
-            sumAllGrades += student.getCourses().stream().mapToDouble(Course::getGrade).sum();
-            totalCourses += student.getCourses().size();
-
-            // Print student row
-            System.out.printf("%-20s %10.2f %10.2f %10.2f\n",
-                    student.getName() + " " + student.getLastName(),
-                    highest, average, lowest);
+    /**
+     * Generates the class report as it stood at an earlier time (see GradeHistory),
+     * including students removed since. Only students whose grades changed after
+     * that time are rebuilt; the report itself costs what the current one does.
+     * @param parallel true to compute the report in parallel
+     * @param asOf Milliseconds since the epoch
+     * @throws IllegalArgumentException If the history cannot answer for that time (see GradeHistory.canAnswer)
+     */
+    public void studentReport(boolean parallel, long asOf) {
+        materializeAll();
+        List<Student> past = getGradeHistory().rosterAsOf(nameIndex.inOrder(), asOf);
+        if (past.isEmpty()) {
+            System.out.println("No students found in records.");
+            return;
         }
+        ClassReport.build(past, parallel).print(System.out);
+    }
 
-        // Print overall statistics
-        System.out.println("\n----------- OVERALL CLASS STATISTICS -----------");
-        System.out.printf("%-20s: %.2f\n", "Highest Grade (Class)", classHighest);
-        System.out.printf("%-20s: %.2f\n", "Lowest Grade (Class)", classLowest);
-        System.out.printf("%-20s: %.2f\n", "Average Grade (Class)",
-                totalCourses > 0 ? sumAllGrades / totalCourses : 0);
+    /**
+     * Streams the class report, in first-name order, to a writer.
+     * @param out Where to write the report
+     * @param format The layout to use
+     * @throws IOException If an I/O error occurs
+     */
+    public void exportReport(Writer out, ReportWriter.Format format) throws IOException {
+        materializeAll();
+        new ReportWriter(out, format).writeReport(nameIndex.view(), classStats);
     }
 
     /**
-     * Saves the student data to a file.
+     * Saves the student data to a file in the binary RosterFile format.
+     * The current change sequence is stored with it. If the name is a ShardedRoster
+     * directory, the shards are rewritten instead, keeping their count.
      * @param filename The name of the file to save to
      * @throws IOException If an I/O error occurs
      */
     public void saveToFile(String filename) throws IOException {
-        try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(filename))) {
-            oos.writeObject(students);
+        Path path = Paths.get(filename);
+        if (ShardedRoster.isShardedRoster(path)) {
+            saveToShards(filename, ShardedRoster.open(path).getShardCount());
+            return;
+        }
+        materializeAll();
+        RosterFile.write(path, students.values(), changeSequence);
+    }
+
+    /**
+     * Saves the student data as a ShardedRoster, writing the shards in parallel.
+     * Saving an existing shard directory with a different count re-shards it.
+     * @param dirname The shard directory, created if needed
+     * @param shards The number of shards
+     * @throws IOException If an I/O error occurs
+     */
+    public void saveToShards(String dirname, int shards) throws IOException {
+        materializeAll();
+        ShardedRoster.write(Paths.get(dirname), shards, students.values(), changeSequence);
+    }
+
+    /**
+     * Takes a snapshot of every student at the current change, for writing on
+     * another thread while this manager keeps changing. Only references are taken
+     * here; Snapshot.copyStudents copies the students on the writing thread.
+     * @return The snapshot
+     */
+    Snapshot snapshot() {
+        materializeAll();
+        Snapshot snapshot = new Snapshot(this, students.values().toArray(new Student[0]), changeSequence,
+                catalog.copy());
+        snapshots.add(snapshot);
+        return snapshot;
+    }
+
+    // Called by Student, and by Course through its owner, just before a student on this roster changes
+    void beforeChange(Student student) {
+        for (Snapshot s : snapshots) s.preserve(student);
+    }
+
+    /**
+     * Every student as they were at one change, copied lazily. copyStudents makes
+     * the copies on whichever thread writes the snapshot; a student the manager
+     * is about to change before then is copied by the manager first, so the menu
+     * only pays for the students it touches. The copies take their course IDs and
+     * names from a copy of the catalog made with the snapshot, so a course renamed
+     * since shows its old name.
+     */
+    static final class Snapshot {
+        private static final Student TAKEN = new Student(null, null, null); // Marks a student already copied
+
+        private final StudentManager manager;
+        private final Student[] students;
+        private final long sequence;
+        private final CourseCatalog catalog; // The manager's catalog as it was when the snapshot was taken
+        private final Map<Student, Student> copies = new ConcurrentHashMap<>(); // Copy made before a change, or TAKEN
+
+        private Snapshot(StudentManager manager, Student[] students, long sequence, CourseCatalog catalog) {
+            this.manager = manager;
+            this.students = students;
+            this.sequence = sequence;
+            this.catalog = catalog;
+        }
+
+        /**
+         * @return The number of the last change the snapshot includes
+         */
+        long getSequence() {
+            return sequence;
+        }
+
+        // Copying under the map's lock for the student makes a change wait for copyStudents, or the reverse
+        private void preserve(Student student) {
+            copies.computeIfAbsent(student, s -> s.copy(catalog));
+        }
+
+        /**
+         * Stops keeping old records for a snapshot that will not be copied.
+         */
+        void discard() {
+            manager.snapshots.remove(this);
+        }
+
+        /**
+         * Copies the students, as they were when the snapshot was taken. Call it once.
+         * @return Detached copies of the students, in no particular order
+         */
+        List<Student> copyStudents() {
+            List<Student> out = new ArrayList<>(students.length);
+            Student[] copy = new Student[1];
+            for (Student s : students) {
+                copies.compute(s, (k, before) -> {
+                    copy[0] = before != null ? before : k.copy(catalog);
+                    return TAKEN;
+                });
+                out.add(copy[0]);
+            }
+            manager.snapshots.remove(this);
+            return out;
         }
     }
 
     /**
      * Loads student data from a file.
+     * Reads the binary RosterFile format, and also files saved with Java serialization
+     * by older versions (see DatabaseMigrator).
+     * Listeners are not notified; the change sequence is reset to the one saved in the file.
      * @param filename The name of the file to load from
      * @throws IOException If an I/O error occurs
      * @throws ClassNotFoundException If the class of a serialized object cannot be found
      */
-    @SuppressWarnings("unchecked")
     public void loadFromFile(String filename) throws IOException, ClassNotFoundException {
-        try (ObjectInputStream ois = new ObjectInputStream(new FileInputStream(filename))) {
-            students = (List<Student>) ois.readObject();
+        Path path = Paths.get(filename);
+        if (ShardedRoster.isShardedRoster(path)) {
+            loadFromShards(filename);
+        } else if (DatabaseMigrator.isLegacyFile(path)) {
+            setStudents(DatabaseMigrator.readLegacy(path), new CourseCatalog());
+            changeSequence = 0;
+        } else {
+            CourseCatalog loaded = new CourseCatalog();
+            setStudents(RosterFile.read(path, loaded), loaded);
+            changeSequence = RosterFile.readSequence(path);
+        }
+    }
+
+    /**
+     * Loads every shard of a ShardedRoster, reading the shards in parallel.
+     * Listeners are not notified; the change sequence is reset to the one saved with the shards.
+     * @param dirname The shard directory
+     * @throws IOException If an I/O error occurs
+     */
+    public void loadFromShards(String dirname) throws IOException {
+        ShardedRoster roster = ShardedRoster.open(Paths.get(dirname));
+        CourseCatalog loaded = new CourseCatalog();
+        setStudents(roster.readAll(loaded), loaded);
+        changeSequence = roster.getSequence();
+    }
+
+    /**
+     * Opens a ShardedRoster without reading any shard. A shard is read the first time
+     * an operation looks up a student who hashes to it, so looking up a few students
+     * only reads their shards; operations over the whole roster (reports, saving)
+     * read the remaining shards in parallel.
+     * @param dirname The shard directory
+     * @throws IOException If the manifest cannot be read
+     */
+    public void openShards(String dirname) throws IOException {
+        ShardedRoster roster = ShardedRoster.open(Paths.get(dirname));
+        setStudents(new ArrayList<>(), new CourseCatalog());
+        sharded = roster;
+        unreadShards = new BitSet(roster.getShardCount());
+        unreadShards.set(0, roster.getShardCount());
+        unreadCount = roster.size();
+        changeSequence = roster.getSequence();
+    }
+
+    /**
+     * Opens a saved RosterFile without reading the students into memory.
+     * The file is memory-mapped and indexed by student ID; each student is decoded
+     * the first time an operation looks them up, and operations over the whole
+     * roster (reports, saving) read in the rest. Files saved with Java serialization
+     * are loaded fully instead, and a ShardedRoster directory is opened with openShards.
+     * @param filename The name of the file to open
+     * @throws IOException If an I/O error occurs
+     * @throws ClassNotFoundException If the class of a serialized object cannot be found
+     */
+    public void mapFromFile(String filename) throws IOException, ClassNotFoundException {
+        Path path = Paths.get(filename);
+        if (ShardedRoster.isShardedRoster(path)) {
+            openShards(filename);
+            return;
+        }
+        if (DatabaseMigrator.isLegacyFile(path)) {
+            loadFromFile(filename);
+            return;
+        }
+        CourseCatalog loaded = new CourseCatalog();
+        MappedRoster roster = MappedRoster.open(path, loaded);
+        setStudents(new ArrayList<>(), loaded);
+        mapped = roster.remaining() > 0 ? roster : null;
+        changeSequence = roster.getSequence();
+    }
+
+    // Looks a student up in memory, then in the mapped file or their shard if not read yet
+    private Student find(String studentId) {
+        Student s = students.get(studentId);
+        if (s == null && mapped != null) {
+            s = mapped.take(studentId);
+            if (s != null) attach(s);
+            if (mapped.remaining() == 0) mapped = null;
+        }
+        if (s == null && sharded != null && readShard(sharded.shardOf(studentId))) {
+            s = students.get(studentId);
+        }
+        return s;
+    }
+
+    // Reads in every student still in the mapped file or unread shards
+    private void materializeAll() {
+        if (mapped != null) {
+            List<Student> rest = mapped.takeAll();
+            mapped = null;
+            for (Student s : rest) attach(s);
+        }
+        if (sharded != null) {
+            int[] rest = unreadShards.stream().toArray();
+            List<List<Student>> parts;
+            try {
+                parts = sharded.read(rest, catalog);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Error reading shards: " + e.getMessage(), e);
+            }
+            for (List<Student> part : parts) {
+                for (Student s : part) attach(s);
+            }
+            sharded = null;
+            unreadShards = null;
+            unreadCount = 0;
+        }
+    }
+
+    // Reads in one shard if it has not been read yet; returns true if it was read now
+    private boolean readShard(int shard) {
+        if (!unreadShards.get(shard)) {
+            return false;
+        }
+        List<Student> part;
+        try {
+            part = sharded.read(shard, catalog);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error reading shard " + shard + ": " + e.getMessage(), e);
+        }
+        for (Student s : part) attach(s);
+        unreadShards.clear(shard);
+        unreadCount -= sharded.getCount(shard);
+        if (unreadShards.isEmpty()) {
+            sharded = null;
+            unreadShards = null;
+        }
+        return true;
+    }
+
+    // Indexes a student read from the mapped file; this is not a change, so listeners aren't told
+    private void attach(Student s) {
+        students.put(s.getStudentId(), s);
+        s.setManager(this);
+        classStats.addAll(s.getCourses());
+        nameIndex.add(s);
+    }
+
+    /**
+     * Replaces all records and the course catalog, and rebuilds the ID index.
+     * If the list holds duplicate IDs, the first record with each ID is kept.
+     * @param loaded The students to index
+     * @param courses The catalog to use from now on; the students' courses are moved into it
+     */
+    private void setStudents(List<Student> loaded, CourseCatalog courses) {
+        for (Student s : students.values()) {
+            s.setManager(null);
+        }
+        if (columnar != null) {
+            listeners.remove(columnar);
+            columnar = null;
+        }
+        if (ranking != null) {
+            listeners.remove(ranking);
+            ranking = null;
+        }
+        if (courseIndex != null) {
+            listeners.remove(courseIndex);
+            courseIndex = null;
+        }
+        if (nameSearch != null) {
+            listeners.remove(nameSearch);
+            nameSearch = null;
+        }
+        if (gradeHistory != null) {
+            listeners.remove(gradeHistory);
+            gradeHistory = null;
+        }
+        students = new LinkedHashMap<>();
+        classStats = new GradeStats();
+        nameIndex.clear();
+        reportCache.clear();
+        mapped = null;
+        sharded = null;
+        unreadShards = null;
+        unreadCount = 0;
+        catalog = courses;
+        for (Student s : loaded) {
+            if (students.putIfAbsent(s.getStudentId(), s) == null) {
+                s.join(catalog);
+                s.setManager(this);
+                classStats.addAll(s.getCourses());
+                nameIndex.add(s);
+            }
         }
     }
 }
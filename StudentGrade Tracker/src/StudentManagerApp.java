@@ -1,5 +1,24 @@
 import java.io.IOException;
-import java.util.Scanner;
+import java.io.PrintWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * The main application class for managing student records and grades.
@@ -7,49 +26,151 @@ import java.util.Scanner;
  * This console-based application provides a menu-driven interface to:
  * - Add, remove, and search for students
  * - Add or update course grades
- * - Generate reports and save/load student data to/from a file
+ * - Generate reports, export them to CSV or fixed-width files, and save/load student data
+ *
+ * Run with "--import file.csv [file.tsv ...]" to bulk-load enrollment files
+ * without the menu (see BulkImporter), or with "--serve [port]" to serve the
+ * records over HTTP/JSON instead of the menu (see GradeServer). The server only
+ * listens on the loopback address unless "--bind ADDRESS" comes first; it has no
+ * authentication, so only bind another address on a trusted network. Either can be
+ * preceded by "--autosave SECONDS" to change how often data is saved in the
+ * background (default 60; 0 turns autosave off), and by "--script" to read menu
+ * choices and answers from piped input without printing menus or prompts, until
+ * the input ends (see InputeHelper), and by "--changes DIR" to write every change
+ * as a sequenced event to rotating NDJSON files in DIR (see ChangeFeed and
+ * NdjsonChangeSink), and by "--history-days DAYS" to keep that many days of grade
+ * history (see GradeHistory; by default all of it is kept). "--shards N" splits the database
+ * into N files that load in parallel (see ShardedRoster), or joins it back into
+ * one file when N is 0.
  *
  * Dependencies:
- * - StudentManager: Handles core logic and data storage
+ * - StudentManager: Handles core logic and data storage (timed by InstrumentedStudentManager)
  * - InputeHelper: Manages validated user input
  *
- * File persistence is handled through serialization.
+ * File persistence uses the binary RosterFile format; older serialized
+ * databases are converted on startup by DatabaseMigrator. Changes are recorded
+ * in a Journal as they are made, so saving only flushes what changed; snapshots
+ * of the whole file are written on a background thread (see Snapshotter), so
+ * saving never makes the menu wait for the disk, and autosave runs while the menu
+ * waits for input, taking only references to the records. Every grade change is kept with
+ * its time in a GradeHistory, saved next to the database, so reports can be
+ * shown as they stood at an earlier time.
  */
 public class StudentManagerApp {
-    private static final Scanner scanner = new Scanner(System.in);
-    private static final StudentManager manager = new StudentManager();
+    private static final InstrumentedStudentManager manager = InstrumentedStudentManager.create();
+    private static final ReentrantLock records = new ReentrantLock(); // Held by a menu command, except while it waits for input, and by autosave
+    private static Journal journal; // Records changes between snapshots; null if it could not be opened
+    private static final Snapshotter snapshotter = new Snapshotter("snapshot-writer"); // Used without a journal and by --serve
+    private static final long DEFAULT_AUTOSAVE_SECONDS = 60;
+    private static final String DATABASE_FILE = "Database.txt";
+    private static final String SHARD_DIR = "Database.shards";
+    private static final String HISTORY_SUFFIX = ".history"; // Grade history file, next to the database
+    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static String database = DATABASE_FILE; // SHARD_DIR once the database has been sharded
+    private static long savedSequence = -1; // Change sequence of the last snapshot written without the journal
+    private static String changesDir;       // Where the change feed is written, or null for no feed
+    private static String bindAddress;      // Address the server listens on, or null for loopback
+    private static ChangeFeed feed;
+    private static long historyDays;        // Days of grade history kept; 0 keeps all of it
+    private static long savedHistory = -1;  // GradeHistory change count of the last history file written
 
     /**
      * Main entry point of the application. Loads data and presents menu options.
      *
-     * @param args Command-line arguments (not used)
+     * @param args Optional "--autosave SECONDS", "--script", "--changes DIR", "--history-days DAYS"
+     *             and "--bind ADDRESS",
+     *             then "--import" followed by
+     *             files to bulk-load, "--serve" and an optional port, "--shards" and a shard
+     *             count, or nothing for the menu
      */
     public static void main(String[] args) {
+        long autosaveSeconds = DEFAULT_AUTOSAVE_SECONDS;
+        boolean script = false;
+        while (args.length > 0) {
+            if (args.length > 1 && args[0].equals("--autosave")) {
+                autosaveSeconds = Long.parseLong(args[1]);
+                args = Arrays.copyOfRange(args, 2, args.length);
+            } else if (args.length > 1 && args[0].equals("--changes")) {
+                changesDir = args[1];
+                args = Arrays.copyOfRange(args, 2, args.length);
+            } else if (args.length > 1 && args[0].equals("--history-days")) {
+                historyDays = Long.parseLong(args[1]);
+                args = Arrays.copyOfRange(args, 2, args.length);
+            } else if (args.length > 1 && args[0].equals("--bind")) {
+                bindAddress = args[1];
+                args = Arrays.copyOfRange(args, 2, args.length);
+            } else if (args[0].equals("--script")) {
+                script = true;
+                args = Arrays.copyOfRange(args, 1, args.length);
+            } else {
+                break;
+            }
+        }
+
         loadData(); // Attempt to load saved data on startup
 
-        while (true) {
-            displayMainMenu();
-            int choice = getMenuChoice(1, 8);
-
-            switch (choice) {
-                case 1 -> addStudent();
-                case 2 -> removeStudent();
-                case 3 -> updateCourse();
-                case 4 -> addCourseToStudent();
-                case 5 -> searchStudent();
-                case 6 -> generateReport();
-                case 7 -> saveData();
-                case 8 -> {
-                    saveData(); // Auto-save on exit
-                    System.out.println("Exiting program. Goodbye!");
-                    System.exit(0);
+        if (args.length > 0 && args[0].equals("--import")) {
+            importFiles(Arrays.copyOfRange(args, 1, args.length));
+            saveAndClose();
+            return;
+        }
+        if (args.length > 0 && args[0].equals("--serve")) {
+            serve(args.length > 1 ? Integer.parseInt(args[1]) : GradeServer.DEFAULT_PORT, autosaveSeconds);
+            return;
+        }
+        if (args.length > 1 && args[0].equals("--shards")) {
+            reshard(Integer.parseInt(args[1]));
+            return;
+        }
+
+        InputeHelper.useBufferedOutput(script);
+        InputeHelper.releaseWhileReading(records);
+        snapshotter.scheduleEvery(autosaveSeconds, StudentManagerApp::autosave);
+        try {
+            while (true) {
+                if (!InputeHelper.isScriptMode()) displayMainMenu();
+                int choice = getMenuChoice(1, 13);
+
+                records.lock(); // Autosave takes its snapshot under the same lock
+                try {
+                    switch (choice) {
+                        case 1 -> addStudent();
+                        case 2 -> removeStudent();
+                        case 3 -> updateCourse();
+                        case 4 -> addCourseToStudent();
+                        case 5 -> searchStudent();
+                        case 6 -> generateReport();
+                        case 7 -> saveData();
+                        case 8 -> exit();
+                        case 9 -> exportReport();
+                        case 10 -> showMetrics();
+                        case 11 -> showRankings();
+                        case 12 -> courseReport();
+                        case 13 -> gradeHistory();
+                    }
+                } finally {
+                    records.unlock();
                 }
             }
+        } catch (NoSuchElementException e) {
+            records.lock();
+            exit(); // End of input, e.g. the end of a script; a command cut short is dropped
         }
     }
 
     /**
-     * Displays the main menu options to the user.
+     * Saves, flushes buffered output and ends the program.
+     */
+    private static void exit() {
+        saveAndClose(); // Auto-save on exit
+        System.out.println("Exiting program. Goodbye!");
+        System.out.flush();
+        System.exit(0);
+    }
+
+    /**
+     * Displays the main menu options to the user. Options keep their numbers, so
+     * scripts written for earlier versions still work; new ones are added after Exit.
      */
     private static void displayMainMenu() {
         System.out.println("\n===== STUDENT GRADE TRACKER =====");
@@ -61,7 +182,12 @@ public class StudentManagerApp {
         System.out.println("6. Generate Class Report");
         System.out.println("7. Save Data");
         System.out.println("8. Exit");
-        System.out.print("Enter your choice (1-8): ");
+        System.out.println("9. Export Class Report");
+        System.out.println("10. Show Metrics");
+        System.out.println("11. Class Rankings");
+        System.out.println("12. Course Report");
+        System.out.println("13. Grade History");
+        System.out.print("Enter your choice (1-13): ");
     }
 
     /**
@@ -73,14 +199,13 @@ public class StudentManagerApp {
      */
     private static int getMenuChoice(int min, int max) {
         while (true) {
-            try {
-                int choice = Integer.parseInt(scanner.nextLine());
-                if (choice >= min && choice <= max) {
-                    return choice;
-                }
-                System.out.printf("Please enter a number between %d and %d.\n", min, max);
-            } catch (NumberFormatException e) {
+            long choice = InputeHelper.parseInt(InputeHelper.readLine());
+            if (choice == Long.MIN_VALUE) {
                 System.out.println("Invalid input! Please enter a number.");
+            } else if (choice >= min && choice <= max) {
+                return (int) choice;
+            } else {
+                System.out.printf("Please enter a number between %d and %d.\n", min, max);
             }
         }
     }
@@ -135,23 +260,538 @@ public class StudentManagerApp {
      */
     private static void searchStudent() {
         System.out.println("\n--- SEARCH STUDENT ---");
-        String id = InputeHelper.getString("Enter student ID: ");
-        manager.searchStudent(id);
+        String text = InputeHelper.getString("Enter student ID or name: ");
+        if (manager.getStudent(text) != null) {
+            manager.searchStudent(text);
+            return;
+        }
+        List<NameSearch.Match> matches = manager.getNameSearch().search(text, 10);
+        if (matches.isEmpty()) {
+            System.out.println("No student matches \"" + text + "\".");
+            return;
+        }
+        System.out.printf("%-12s %-15s %-15s%n", "ID", "Name", "Last Name");
+        for (NameSearch.Match m : matches) {
+            Student s = m.student();
+            System.out.printf("%-12s %-15s %-15s%n", s.getStudentId(), s.getName(), s.getLastName());
+        }
     }
 
     /**
      * Generates and displays a class-wide report of all students.
+     * Large rosters are reported in parallel.
      */
     private static void generateReport() {
-        manager.studentReport();
+        manager.studentReport(manager.getStudentCount() >= ClassReport.PARALLEL_THRESHOLD);
+    }
+
+    /**
+     * Writes the class report to a file chosen by the user.
+     */
+    private static void exportReport() {
+        System.out.println("\n--- EXPORT CLASS REPORT ---");
+        String file = InputeHelper.getString("Enter output file name: ");
+        String type = InputeHelper.getString("Format (csv / fixed / text) [csv]: ").trim().toLowerCase();
+        ReportWriter.Format format = switch (type) {
+            case "fixed" -> ReportWriter.Format.FIXED_WIDTH;
+            case "text" -> ReportWriter.Format.TEXT;
+            default -> ReportWriter.Format.CSV;
+        };
+        try (Writer out = Files.newBufferedWriter(Paths.get(file), StandardCharsets.UTF_8)) {
+            manager.exportReport(out, format);
+            System.out.println("Report exported to " + file);
+        } catch (IOException e) {
+            System.out.println("Error exporting report: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Shows the top ten students, the deciles and the grade distribution,
+     * then the rank of a student chosen by the user.
+     */
+    private static void showRankings() {
+        GradeRanking ranking = manager.getRanking();
+        System.out.println("\n--- CLASS RANKINGS ---");
+        if (ranking.getRankedCount() == 0) {
+            System.out.println("No graded students found in records.");
+            return;
+        }
+        System.out.printf("%-6s %-20s %-10s %10s\n", "RANK", "STUDENT NAME", "ID", "AVERAGE");
+        for (Student s : ranking.top(10)) {
+            System.out.printf("%-6d %-20s %-10s %10.2f\n", ranking.rankOf(s),
+                    s.getName() + " " + s.getLastName(), s.getStudentId(), s.getStats().getAverage());
+        }
+
+        System.out.println("\n--- DECILES (AVERAGE GRADE) ---");
+        for (int d = 10; d <= 90; d += 10) {
+            System.out.printf("%-15s: %.2f\n", d + "th", ranking.percentile(d));
+        }
+
+        System.out.println("\n--- DISTRIBUTION (AVERAGE GRADE) ---");
+        int[] bins = ranking.histogram(10);
+        for (int i = 0; i < bins.length; i++) {
+            System.out.printf("%3d-%-3d: %d\n", i * 10, i == bins.length - 1 ? 100 : i * 10 + 9, bins[i]);
+        }
+
+        String id = InputeHelper.getString("\nEnter a student ID to see their rank (Enter to skip): ").trim();
+        if (id.isEmpty()) {
+            return;
+        }
+        Student s = manager.getStudent(id);
+        if (s == null) {
+            System.out.println("Student with ID " + id + " not found!");
+        } else if (ranking.rankOf(s) == 0) {
+            System.out.println(s.getName() + " " + s.getLastName() + " has no grades yet.");
+        } else {
+            System.out.printf("%s %s is ranked %d of %d (above %.1f%% of the class).\n", s.getName(),
+                    s.getLastName(), ranking.rankOf(s), ranking.getRankedCount(), ranking.percentileOf(s));
+        }
+    }
+
+    /**
+     * Prints enrollment and grade statistics for every course, then lists the
+     * students below a grade in a course chosen by the user.
+     */
+    private static void courseReport() {
+        CourseIndex index = manager.getCourseIndex();
+        System.out.println("\n=============== COURSE REPORT ===============");
+        if (index.getCourses().isEmpty()) {
+            System.out.println("No courses found in records.");
+            return;
+        }
+        System.out.printf("%-10s %-20s %8s %10s %10s %10s\n", "ID", "COURSE NAME", "ENROLLED", "HIGHEST", "AVERAGE", "LOWEST");
+        for (CourseIndex.Enrollment e : index.getCourses()) {
+            GradeStats stats = e.getStats();
+            System.out.printf("%-10s %-20s %8d %10.2f %10.2f %10.2f\n", e.getCourseId(), e.getCourseName(),
+                    e.size(), stats.getHighest(), stats.getAverage(), stats.getLowest());
+        }
+
+        ColumnarGradeStore grades = manager.getColumnarStore();
+        GradeKernels.Totals all = grades.classTotals();
+        System.out.printf("%-10s %-20s %8d %10.2f %10.2f %10.2f\n", "ALL", "(every enrollment)",
+                all.count(), all.highest(), all.average(), all.lowest());
+        System.out.println("\n--- DISTRIBUTION (ALL GRADES) ---");
+        int[] bins = grades.histogram(GradeKernels.edges(10, 10, 8)); // Edges 10, 20, ..., 90
+        for (int i = 0; i < bins.length; i++) {
+            System.out.printf("%3d-%-3d: %d\n", i * 10, i == bins.length - 1 ? 100 : i * 10 + 9, bins[i]);
+        }
+
+        String courseId = InputeHelper.getString("\nEnter a course ID to list students below a grade (Enter to skip): ").trim();
+        if (courseId.isEmpty()) {
+            return;
+        }
+        CourseIndex.Enrollment e = index.get(courseId);
+        if (e == null) {
+            System.out.println("Course with ID " + courseId + " not found!");
+            return;
+        }
+        double threshold = InputeHelper.getGrade("Grade threshold (0-100): ");
+        List<Student> below = e.studentsBelow(threshold);
+        System.out.printf("\n%d student(s) below %.2f in %s:\n", below.size(), threshold, courseId);
+        for (Student s : below) {
+            System.out.printf("%-10s %-20s %10.2f\n", s.getStudentId(), s.getName() + " " + s.getLastName(),
+                    s.getCourse(courseId).getGrade());
+        }
+    }
+
+    /**
+     * Shows a student's record, with every recorded change of their grades, or the
+     * class report, as it stood at a time chosen by the user.
+     */
+    private static void gradeHistory() {
+        System.out.println("\n--- GRADE HISTORY ---");
+        long asOf = getTime("As of (yyyy-mm-dd for the end of that day, or yyyy-mm-dd hh:mm) [now]: ");
+        GradeHistory history = manager.getGradeHistory();
+        if (!history.canAnswer(asOf)) {
+            System.out.println("Changes made before " + TIME_FORMAT.format(LocalDateTime.ofInstant(
+                    Instant.ofEpochMilli(history.getUnrecordedBefore()), ZoneId.systemDefault()))
+                    + " were not recorded with their times, so records cannot be shown as of earlier.");
+            return;
+        }
+        String id = InputeHelper.getString("Student ID (Enter for the class report): ").trim();
+        if (id.isEmpty()) {
+            manager.studentReport(manager.getStudentCount() >= ClassReport.PARALLEL_THRESHOLD, asOf);
+            return;
+        }
+        if (!manager.searchStudent(id, asOf)) {
+            System.out.println("Student with ID " + id + " was not on the roster at that time.");
+            return;
+        }
+        Student s = manager.getStudent(id);
+        if (s == null) {
+            return; // Removed since; only their record at removal is kept
+        }
+        System.out.println("\n--- GRADE CHANGES ---");
+        boolean any = false;
+        for (Course c : s.getCourses()) {
+            for (GradeHistory.Version v : history.versions(s, c)) {
+                String time = v.isInitial() ? "(initial)"
+                        : TIME_FORMAT.format(LocalDateTime.ofInstant(Instant.ofEpochMilli(v.time()), ZoneId.systemDefault()));
+                System.out.printf("%-10s %-20s %10.2f\n", c.getCourseId(), time, v.grade());
+                any = true;
+            }
+        }
+        if (!any) {
+            System.out.println("No grade changes recorded.");
+        }
+    }
+
+    /**
+     * Reads a date, or a date and time, in the local time zone.
+     *
+     * @param prompt The prompt to show
+     * @return Milliseconds since the epoch: the last moment of a date given alone, or now if nothing is entered
+     */
+    private static long getTime(String prompt) {
+        while (true) {
+            String text = InputeHelper.getString(prompt).trim();
+            try {
+                if (text.isEmpty()) {
+                    return System.currentTimeMillis();
+                } else if (text.length() <= 10) {
+                    return LocalDate.parse(text).plusDays(1).atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli() - 1;
+                }
+                return LocalDateTime.parse(text.replace(' ', 'T')).atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+            } catch (DateTimeParseException e) {
+                System.out.println("Invalid date! Use yyyy-mm-dd or yyyy-mm-dd hh:mm.");
+            }
+        }
+    }
+
+    /**
+     * Prints how long each operation has taken so far, with counters and gauges,
+     * and optionally writes them to a file in the Prometheus text format.
+     */
+    private static void showMetrics() {
+        System.out.println("\n--- METRICS ---");
+        Metrics metrics = manager.getMetrics();
+        try {
+            metrics.writeSummary(System.out);
+        } catch (IOException e) {
+            System.out.println("Error printing metrics: " + e.getMessage());
+        }
+        String file = InputeHelper.getString("Write Prometheus metrics to file (Enter to skip): ").trim();
+        if (file.isEmpty()) {
+            return;
+        }
+        try (Writer out = Files.newBufferedWriter(Paths.get(file), StandardCharsets.UTF_8)) {
+            metrics.writePrometheus(out);
+            System.out.println("Metrics written to " + file);
+        } catch (IOException e) {
+            System.out.println("Error writing metrics: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Bulk-loads enrollment files, printing throughput and rejected rows.
+     * The full list of rejected rows for a file is written next to it with an ".errors" suffix.
+     * Imported rows are not journaled one by one; a new snapshot is written at the end instead.
+     *
+     * @param files CSV or TSV files to import
+     */
+    private static void importFiles(String[] files) {
+        if (journal != null) {
+            manager.removeListener(journal);
+        }
+        BulkImporter importer = new BulkImporter(manager);
+        for (String file : files) {
+            try (Reader in = Files.newBufferedReader(Paths.get(file), StandardCharsets.UTF_8)) {
+                BulkImporter.Result result = importer.importFrom(in);
+                System.out.println(file + ": " + result.summary());
+                List<BulkImporter.RowError> errors = result.getErrors();
+                for (int i = 0; i < Math.min(errors.size(), 10); i++) {
+                    System.out.println("  line " + errors.get(i).line() + ": " + errors.get(i).message());
+                }
+                if (!errors.isEmpty()) {
+                    try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(Paths.get(file + ".errors")))) {
+                        for (BulkImporter.RowError e : errors) {
+                            out.println(e.line() + "\t" + e.message() + "\t" + e.text());
+                        }
+                    }
+                    System.out.println("  " + errors.size() + " rejected row(s) listed in " + file + ".errors");
+                }
+            } catch (IOException e) {
+                System.out.println(file + ": error importing - " + e.getMessage());
+            }
+        }
+        try {
+            if (journal != null) {
+                manager.addListener(journal);
+                journal.compact();
+            }
+        } catch (IOException e) {
+            System.out.println("Error saving imported data: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Serves the records over HTTP until the process is stopped.
+     * The journal is folded into the database first, and the grade history saved;
+     * the server works on a ConcurrentStudentManager loaded from them, with a new
+     * journal recording its changes and its own grade history, and the change feed
+     * moves over to it, so events carry on with the next sequence number. Every autosave
+     * interval the journal is flushed (and compacted once it is large), or without
+     * one the roster is written back in the background if it changed, and the
+     * history is saved if it changed; once more on shutdown.
+     *
+     * @param port Port to listen on, on the loopback address or the one given with --bind
+     * @param autosaveSeconds Seconds between background saves; 0 turns them off
+     */
+    private static void serve(int port, long autosaveSeconds) {
+        // The JDK server writes headers and body separately; with Nagle's algorithm on, each
+        // kept-alive response waits for the client's delayed ACK (around 40 ms). The server reads
+        // this once, when the first one is created, so it is set here before anything else runs.
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+        ConcurrentStudentManager roster;
+        Path historyPath = Paths.get(database + HISTORY_SUFFIX);
+        try {
+            if (journal != null) {
+                journal.compact();
+                journal.close();
+                journal = null;
+            } else {
+                manager.saveToFile(database);
+            }
+            snapshotter.awaitInFlight(); // So an older history being written cannot land over this one
+            GradeHistory.writeAtomically(historyPath, manager.getGradeHistory().toBytes());
+            roster = ConcurrentStudentManager.load(database);
+        } catch (IOException | ClassNotFoundException e) {
+            System.out.println("Error preparing data for the server: " + e.getMessage());
+            return;
+        }
+        GradeHistory history = GradeHistory.attach(roster);
+        try {
+            history.load(historyPath);
+        } catch (IOException e) {
+            System.out.println("Error loading grade history: " + e.getMessage() + ". Recording starts now.");
+        }
+        savedHistory = history.getChangeCount();
+        try {
+            journal = Journal.record(database, roster);
+        } catch (IOException e) {
+            System.out.println("Error opening journal: " + e.getMessage() + ". Saving will rewrite the whole file.");
+        }
+        if (feed != null) {
+            try {
+                feed.follow(roster);
+            } catch (IllegalArgumentException e) {
+                System.out.println("Error moving the change feed to the server: " + e.getMessage());
+                try {
+                    feed.close();
+                } catch (IOException closing) {
+                    System.out.println("Error closing change feed: " + closing.getMessage());
+                }
+                feed = null;
+            }
+        }
+        GradeServer server = new GradeServer(roster);
+        if (feed != null) {
+            server.getMetrics().gauge("change_feed_queued", "Change events waiting to be written", feed::getQueued);
+        }
+        try {
+            server.start(bindAddress == null ? InetAddress.getLoopbackAddress() : InetAddress.getByName(bindAddress), port);
+        } catch (IOException e) {
+            System.out.println("Error starting server: " + e.getMessage());
+            return;
+        }
+        savedSequence = roster.getChangeSequence();
+        snapshotter.scheduleEvery(autosaveSeconds, () -> {
+            try {
+                saveServer(roster, history);
+            } catch (IOException e) {
+                System.out.println("Error saving data: " + e.getMessage());
+            }
+        });
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.stop();
+            try {
+                saveServer(roster, history);
+                if (feed != null) {
+                    feed.close();
+                    feed = null;
+                }
+                if (journal != null) {
+                    journal.close();
+                    journal = null;
+                }
+                snapshotter.close();
+                System.out.println("Data saved successfully!");
+            } catch (IOException e) {
+                System.out.println("Error saving data: " + e.getMessage());
+            }
+        }));
+        System.out.println("Serving " + roster.getStudentCount() + " student(s) on http://"
+                + (bindAddress == null ? "localhost" : bindAddress) + ":" + server.getPort() + "/ (Ctrl+C to stop)");
+    }
+
+    // Saves the server's roster and grade history; runs on the autosave thread while requests change the roster
+    private static void saveServer(ConcurrentStudentManager roster, GradeHistory history) throws IOException {
+        if (feed != null) {
+            feed.flush();
+        }
+        if (journal != null) {
+            syncJournal();
+        } else if (roster.getChangeSequence() != savedSequence) {
+            ConcurrentStudentManager.Snapshot snapshot = roster.snapshot();
+            Path path = Paths.get(database);
+            snapshotter.submit(() -> ShardedRoster.writeSnapshot(path, snapshot.students(), snapshot.sequence()));
+            savedSequence = snapshot.sequence();
+        }
+        byte[] bytes = roster.holdChanges(() -> {
+            if (historyDays > 0) {
+                history.compact(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(historyDays));
+            }
+            if (history.getChangeCount() == savedHistory) {
+                return null;
+            }
+            savedHistory = history.getChangeCount();
+            return history.toBytes();
+        });
+        if (bytes != null) {
+            Path path = Paths.get(database + HISTORY_SUFFIX);
+            snapshotter.submit(() -> GradeHistory.writeAtomically(path, bytes));
+        }
+    }
+
+    /**
+     * Rewrites the database as shards in Database.shards, or back into the single
+     * Database.txt when the count is 0. The journal is folded in first; later runs
+     * load from whichever form the database is now in.
+     *
+     * @param shards Number of shards, or 0 for one file
+     */
+    private static void reshard(int shards) {
+        try {
+            boolean compacted = journal != null;
+            if (compacted) {
+                journal.compact();
+                journal.close();
+                journal = null;
+            }
+            if (shards > 0) {
+                manager.saveToShards(SHARD_DIR, shards);
+                moveHistory(database, SHARD_DIR);
+                if (compacted && !database.equals(SHARD_DIR)) {
+                    Files.deleteIfExists(Paths.get(DATABASE_FILE));
+                    Files.deleteIfExists(Paths.get(DATABASE_FILE + ".log"));
+                }
+                System.out.println("Saved " + manager.getStudentCount() + " student(s) in " + shards
+                        + " shard(s) in " + SHARD_DIR);
+            } else {
+                RosterFile.writeAtomically(Paths.get(DATABASE_FILE), manager.getStudents(), manager.getChangeSequence());
+                moveHistory(database, DATABASE_FILE);
+                if (compacted && database.equals(SHARD_DIR)) {
+                    ShardedRoster.delete(Paths.get(SHARD_DIR));
+                    Files.deleteIfExists(Paths.get(SHARD_DIR + ".log"));
+                }
+                System.out.println("Saved " + manager.getStudentCount() + " student(s) in " + DATABASE_FILE);
+            }
+        } catch (IOException e) {
+            System.out.println("Error re-sharding data: " + e.getMessage());
+        }
+    }
+
+    // Keeps the grade history next to the database when the database moves
+    private static void moveHistory(String from, String to) throws IOException {
+        Path history = Paths.get(from + HISTORY_SUFFIX);
+        if (!from.equals(to) && Files.exists(history)) {
+            Files.move(history, Paths.get(to + HISTORY_SUFFIX), StandardCopyOption.REPLACE_EXISTING);
+        }
     }
 
     /**
      * Saves current student data to file.
+     * Flushes the journal, and once it has grown large starts folding it into
+     * the database in the background. Without a journal, a snapshot of the records is
+     * written to the database in the background.
      */
     private static void saveData() {
+        Metrics.Sample sample = manager.getMetrics().start("saveData");
         try {
-            manager.saveToFile("Database.txt");
+            save();
+            System.out.println("Data saved successfully!");
+        } catch (IOException e) {
+            System.out.println("Error saving data: " + e.getMessage());
+        } finally {
+            sample.stop();
+        }
+    }
+
+    // Called on the autosave timer; a menu command holds the same lock except while it waits for input
+    private static void autosave() {
+        records.lock();
+        try {
+            save();
+        } catch (IOException e) {
+            System.out.println("Error autosaving data: " + e.getMessage());
+        } finally {
+            records.unlock();
+        }
+    }
+
+    // Caller holds the records lock, or is the only thread using the manager
+    private static void save() throws IOException {
+        if (feed != null) {
+            feed.flush();
+        }
+        if (journal != null) {
+            syncJournal();
+        } else if (manager.getChangeSequence() != savedSequence) {
+            StudentManager.Snapshot snapshot = manager.snapshot();
+            Path path = Paths.get(database);
+            try {
+                snapshotter.submit(() -> ShardedRoster.writeSnapshot(path, snapshot.copyStudents(), snapshot.getSequence()));
+            } catch (IOException e) {
+                snapshot.discard();
+                throw e;
+            }
+            savedSequence = snapshot.getSequence();
+        }
+        GradeHistory history = manager.getGradeHistory();
+        if (historyDays > 0) {
+            history.compact(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(historyDays));
+        }
+        if (history.getChangeCount() != savedHistory) {
+            byte[] bytes = history.toBytes();
+            Path path = Paths.get(database + HISTORY_SUFFIX);
+            savedHistory = history.getChangeCount();
+            snapshotter.submit(() -> GradeHistory.writeAtomically(path, bytes));
+        }
+    }
+
+    // Flushes the journal and compacts it once large; after a write error, compacts it at once so the
+    // changes it missed are in the database before saving counts as done
+    private static void syncJournal() throws IOException {
+        if (journal.hasFailed()) {
+            System.out.println("The journal stopped after a write error; writing the whole database instead.");
+            journal.compact();
+            return;
+        }
+        journal.sync();
+        if (journal.needsCompaction() && !journal.isCompacting()) {
+            journal.compactInBackground();
+        }
+    }
+
+    /**
+     * Saves before the program ends. With a journal this only flushes the log and
+     * waits for a snapshot already being written; without one it waits for a full
+     * snapshot to be written.
+     */
+    private static void saveAndClose() {
+        try {
+            save();
+            if (feed != null) {
+                feed.close();
+                feed = null;
+            }
+            if (journal != null) {
+                journal.close();
+                journal = null;
+            }
+            snapshotter.close();
             System.out.println("Data saved successfully!");
         } catch (IOException e) {
             System.out.println("Error saving data: " + e.getMessage());
@@ -159,14 +799,51 @@ public class StudentManagerApp {
     }
 
     /**
-     * Loads student data from file (if available).
+     * Loads student data from file (if available), starts the change feed if one
+     * was asked for, then recovers any changes recorded in the journal since the
+     * file was written, and finally loads the grade history. The history is
+     * attached after the journal is replayed, since it was saved with those
+     * changes already in it; a grade the saved history does not match is recorded
+     * as changed at startup.
      */
     private static void loadData() {
         try {
-            manager.loadFromFile("Database.txt");
+            if (ShardedRoster.isShardedRoster(Paths.get(SHARD_DIR))) {
+                database = SHARD_DIR;
+            } else if (DatabaseMigrator.migrateIfLegacy(DATABASE_FILE)) {
+                System.out.println("Converted Database.txt to the new format (backup: Database.txt.bak).");
+            }
+            manager.mapFromFile(database);
             System.out.println("Previous data loaded successfully.");
         } catch (IOException | ClassNotFoundException e) {
             System.out.println("No previous data found or error loading. Starting with empty records.");
         }
+        if (changesDir != null) { // Attached before the journal, so recovered changes reach the feed too
+            try {
+                NdjsonChangeSink sink = new NdjsonChangeSink(Paths.get(changesDir));
+                feed = ChangeFeed.attach(manager, ChangeFeed.DEFAULT_CAPACITY);
+                feed.addSink(sink);
+                manager.getMetrics().gauge("change_feed_queued", "Change events waiting to be written", feed::getQueued);
+            } catch (IOException e) {
+                System.out.println("Error opening change feed: " + e.getMessage());
+            }
+        }
+        try {
+            journal = Journal.open(database, manager);
+            if (journal.getReplayedCount() > 0) {
+                System.out.println("Recovered " + journal.getReplayedCount() + " unsaved change(s) from the journal.");
+            }
+        } catch (IOException e) {
+            System.out.println("Error opening journal: " + e.getMessage() + ". Saving will rewrite the whole file.");
+            savedSequence = manager.getChangeSequence();
+        }
+        GradeHistory history = manager.getGradeHistory();
+        try {
+            history.load(Paths.get(database + HISTORY_SUFFIX));
+        } catch (IOException e) {
+            System.out.println("Error loading grade history: " + e.getMessage() + ". Recording starts now.");
+        }
+        manager.getMetrics().gauge("grade_history_versions", "Grade versions kept by the grade history", history::getVersionCount);
+        manager.getMetrics().gauge("grade_history_bytes", "Bytes of encoded grade versions", history::getByteCount);
     }
 }
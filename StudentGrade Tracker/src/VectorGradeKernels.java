@@ -0,0 +1,122 @@
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Vector API versions of the GradeKernels. Only loaded when the
+ * jdk.incubator.vector module is present; see GradeKernels.
+ *
+ * totals keeps four 256-bit accumulators of four grades each, so lane j of
+ * accumulator k is running sum 4k + j of the ScalarGradeKernels order. The lanes
+ * are combined with ordinary additions rather than reduceLanes, whose order is
+ * unspecified for floating point. The counting kernels have exact integer results
+ * and use the widest vectors the hardware has.
+ */
+public class VectorGradeKernels {
+
+    private static final VectorSpecies<Double> SUM_SPECIES = DoubleVector.SPECIES_256;
+    private static final VectorSpecies<Double> COUNT_SPECIES = DoubleVector.SPECIES_PREFERRED;
+    private static final int STEP = SUM_SPECIES.length() * 4;
+
+    private VectorGradeKernels() {
+    }
+
+    /**
+     * @return true if the hardware runs 256-bit vectors natively; narrower
+     *         hardware would emulate them more slowly than the scalar loops
+     */
+    public static boolean isSupported() {
+        return COUNT_SPECIES.vectorBitSize() >= SUM_SPECIES.vectorBitSize() && STEP == GradeKernels.SUMS;
+    }
+
+    /**
+     * See GradeKernels.totals.
+     */
+    public static GradeKernels.Totals totals(double[] grades, int from, int to) {
+        DoubleVector s0 = DoubleVector.zero(SUM_SPECIES);
+        DoubleVector s1 = s0;
+        DoubleVector s2 = s0;
+        DoubleVector s3 = s0;
+        DoubleVector high0 = DoubleVector.broadcast(SUM_SPECIES, 0.0); // Two of each, to halve the chain of
+        DoubleVector high1 = high0;                                    // compares each loop waits on
+        DoubleVector low0 = DoubleVector.broadcast(SUM_SPECIES, Double.MAX_VALUE);
+        DoubleVector low1 = low0;
+        int i = from;
+        for (; i <= to - STEP; i += STEP) {
+            DoubleVector v0 = DoubleVector.fromArray(SUM_SPECIES, grades, i);
+            DoubleVector v1 = DoubleVector.fromArray(SUM_SPECIES, grades, i + 4);
+            DoubleVector v2 = DoubleVector.fromArray(SUM_SPECIES, grades, i + 8);
+            DoubleVector v3 = DoubleVector.fromArray(SUM_SPECIES, grades, i + 12);
+            s0 = s0.add(v0);
+            s1 = s1.add(v1);
+            s2 = s2.add(v2);
+            s3 = s3.add(v3);
+            high0 = above(above(high0, v0), v1);
+            high1 = above(above(high1, v2), v3);
+            low0 = below(below(low0, v0), v1);
+            low1 = below(below(low1, v2), v3);
+        }
+        double[] sums = new double[GradeKernels.SUMS];
+        s0.intoArray(sums, 0);
+        s1.intoArray(sums, 4);
+        s2.intoArray(sums, 8);
+        s3.intoArray(sums, 12);
+        // The lanes hold no NaN, so merging them in any order gives the same value
+        double highest = above(high0, high1).reduceLanes(VectorOperators.MAX);
+        double lowest = below(low0, low1).reduceLanes(VectorOperators.MIN);
+        double tail = 0.0;
+        for (; i < to; i++) {
+            double g = grades[i];
+            tail += g;
+            if (g > highest) highest = g;
+            if (g < lowest) lowest = g;
+        }
+        return GradeKernels.totals(to - from, GradeKernels.combine(sums) + tail, highest, lowest);
+    }
+
+    // Lanes of v greater than those of high replace them; a compare and a blend,
+    // cheaper than max, which has to order NaN and -0.0
+    private static DoubleVector above(DoubleVector high, DoubleVector v) {
+        return high.blend(v, high.compare(VectorOperators.LT, v));
+    }
+
+    private static DoubleVector below(DoubleVector low, DoubleVector v) {
+        return low.blend(v, low.compare(VectorOperators.GT, v));
+    }
+
+    /**
+     * See GradeKernels.countBelow.
+     */
+    public static int countBelow(double[] grades, int from, int to, double threshold) {
+        int count = 0;
+        int i = from;
+        for (int bound = from + COUNT_SPECIES.loopBound(to - from); i < bound; i += COUNT_SPECIES.length()) {
+            count += DoubleVector.fromArray(COUNT_SPECIES, grades, i).compare(VectorOperators.LT, threshold).trueCount();
+        }
+        for (; i < to; i++) {
+            if (grades[i] < threshold) count++;
+        }
+        return count;
+    }
+
+    /**
+     * See GradeKernels.histogram; the edges must already be checked.
+     */
+    public static int[] histogram(double[] grades, int from, int to, double[] edges) {
+        int[] atOrAbove = new int[edges.length];
+        int i = from;
+        for (int bound = from + COUNT_SPECIES.loopBound(to - from); i < bound; i += COUNT_SPECIES.length()) {
+            DoubleVector v = DoubleVector.fromArray(COUNT_SPECIES, grades, i);
+            for (int e = 0; e < edges.length; e++) {
+                atOrAbove[e] += v.compare(VectorOperators.GE, edges[e]).trueCount();
+            }
+        }
+        for (; i < to; i++) {
+            double g = grades[i];
+            for (int e = 0; e < edges.length && g >= edges[e]; e++) {
+                atOrAbove[e]++;
+            }
+        }
+        return GradeKernels.buckets(to - from, atOrAbove);
+    }
+}